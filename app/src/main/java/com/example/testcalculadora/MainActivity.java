@@ -2,16 +2,23 @@ package com.example.testcalculadora;
 
 import androidx.appcompat.app.AppCompatActivity;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
 import com.example.testcalculadora.viewmodel.CalculatorViewModel;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
 public class MainActivity extends AppCompatActivity implements CalculatorViewModel.CalculatorListener {
     
     private TextView tvExpression;
     private TextView tvResult;
     private CalculatorViewModel viewModel;
+    private ScheduledExecutorService previewExecutor;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -23,13 +30,28 @@ public class MainActivity extends AppCompatActivity implements CalculatorViewMod
         setupButtons();
     }
     
+    @Override
+    protected void onDestroy() {
+        previewExecutor.shutdownNow();
+        super.onDestroy();
+    }
+    
     private void initializeViews() {
         tvExpression = findViewById(R.id.tvExpression);
         tvResult = findViewById(R.id.tvResult);
     }
     
     private void initializeViewModel() {
-        viewModel = new CalculatorViewModel();
+        // Previews are computed off the UI thread and posted back to it
+        previewExecutor = Executors.newSingleThreadScheduledExecutor();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        Executor mainThread = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                mainHandler.post(task);
+            }
+        };
+        viewModel = new CalculatorViewModel(previewExecutor, mainThread);
         viewModel.setListener(this);
     }
     
@@ -208,7 +230,23 @@ public class MainActivity extends AppCompatActivity implements CalculatorViewMod
     
     @Override
     public void onStateChanged(String expression, String result) {
+        onStateChanged((CharSequence) expression, result);
+    }
+    
+    @Override
+    public void onStateChanged(CharSequence expression, String result) {
         tvExpression.setText(expression);
         tvResult.setText(result);
     }
+    
+    @Override
+    public void onStateChanged(CalculatorViewModel.StateChange change) {
+        // Each setText costs a layout pass, so only the changed views are set
+        if (change.isExpressionChanged()) {
+            tvExpression.setText(change.getExpression());
+        }
+        if (change.isResultChanged()) {
+            tvResult.setText(change.getResult());
+        }
+    }
 }
\ No newline at end of file
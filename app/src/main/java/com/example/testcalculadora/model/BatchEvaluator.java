@@ -0,0 +1,141 @@
+package com.example.testcalculadora.model;
+
+/**
+ * Evaluates a {@link CompiledExpression} over columns of input values.
+ *
+ * <p>Rows are processed in fixed-size blocks, and within a block every node
+ * runs one simple loop over primitive arrays, which the JIT can unroll and
+ * vectorize. Scratch buffers are allocated once per evaluator and reused, so
+ * nothing is allocated per row. An evaluator is not thread-safe; create one
+ * per thread and share the compiled expression instead.
+ */
+public final class BatchEvaluator {
+
+    /** Rows per block; small enough that a block's buffers stay in L1/L2 cache. */
+    static final int BLOCK_SIZE = 512;
+
+    private final CompiledExpression expression;
+    private final Scratch scratch;
+    private final double[] rowBindings;
+
+    public BatchEvaluator(CompiledExpression expression) {
+        this.expression = expression;
+        this.scratch = new Scratch(expression.getLocals().length);
+        this.rowBindings = new double[expression.getVariableCount()];
+    }
+
+    /**
+     * Evaluates every row of {@code results}. {@code columns[i]} holds the
+     * values of variable i and must be at least as long as {@code results}.
+     */
+    public void evaluate(double[][] columns, double[] results) throws Exception {
+        evaluate(columns, 0, results.length, results);
+    }
+
+    /**
+     * Evaluates rows {@code from} (inclusive) to {@code to} (exclusive), writing
+     * row r to {@code results[r]}.
+     */
+    public void evaluate(double[][] columns, int from, int to, double[] results) throws Exception {
+        if (columns.length < expression.getVariableCount()) {
+            throw new IllegalArgumentException("Esperadas " + expression.getVariableCount()
+                    + " colunas de variáveis, recebidas " + columns.length);
+        }
+        if (from < 0 || to > results.length || from > to) {
+            throw new IndexOutOfBoundsException("Intervalo inválido: " + from + ".." + to);
+        }
+        for (int i = 0; i < expression.getVariableCount(); i++) {
+            if (columns[i].length < to) {
+                throw new IllegalArgumentException("Coluna " + expression.getVariableName(i)
+                        + " tem " + columns[i].length + " linhas, esperadas " + to);
+            }
+        }
+
+        StackProgram program = expression.getProgram();
+        if (program != null) {
+            // Block evaluation recurses through the tree, so deep trees go row by row
+            for (int row = from; row < to; row++) {
+                for (int i = 0; i < rowBindings.length; i++) {
+                    rowBindings[i] = columns[i][row];
+                }
+                results[row] = expression.evaluate(rowBindings);
+            }
+            return;
+        }
+
+        ExpressionNode root = expression.getRoot();
+        ExpressionNode[] locals = expression.getLocals();
+        for (int row = from; row < to; row += BLOCK_SIZE) {
+            int length = Math.min(BLOCK_SIZE, to - row);
+            try {
+                for (int i = 0; i < locals.length; i++) {
+                    locals[i].evaluateBlock(columns, row, length, scratch.local(i), 0, scratch);
+                }
+                root.evaluateBlock(columns, row, length, results, row, scratch);
+            } catch (Exception e) {
+                throw firstRowError(columns, row, length, e);
+            }
+        }
+    }
+
+    /**
+     * The error of the first failing row of a block, as
+     * {@link CompiledExpression#evaluate(double[])} reports it. Each node
+     * runs over the whole block at once, so the error {@code e} a block meets
+     * may come from a later row or a later node.
+     */
+    private Exception firstRowError(double[][] columns, int from, int length, Exception e) {
+        for (int row = from; row < from + length; row++) {
+            for (int i = 0; i < rowBindings.length; i++) {
+                rowBindings[i] = columns[i][row];
+            }
+            try {
+                expression.evaluate(rowBindings);
+            } catch (Exception rowError) {
+                return rowError;
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Block-sized buffers for intermediate results. A binary node
+     * acquires one buffer for its right operand and releases it when done, so
+     * the stack never grows deeper than the tree. Locals get one buffer each.
+     */
+    static final class Scratch {
+        private final double[][] locals;
+        private double[][] buffers = new double[4][];
+        private int top;
+
+        Scratch(int localCount) {
+            locals = new double[localCount][BLOCK_SIZE];
+        }
+
+        /**
+         * Buffer holding the current block's values of a hoisted subexpression.
+         */
+        double[] local(int index) {
+            return locals[index];
+        }
+
+        double[] acquire() {
+            if (top == buffers.length) {
+                double[][] grown = new double[buffers.length * 2][];
+                System.arraycopy(buffers, 0, grown, 0, buffers.length);
+                buffers = grown;
+            }
+            double[] buffer = buffers[top];
+            if (buffer == null) {
+                buffer = new double[BLOCK_SIZE];
+                buffers[top] = buffer;
+            }
+            top++;
+            return buffer;
+        }
+
+        void release() {
+            top--;
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package com.example.testcalculadora.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns a {@link CompiledExpression} into a generated JVM class, so that hot
+ * formulas run as straight-line bytecode HotSpot can inline and optimize
+ * instead of a chain of virtual calls through the tree.
+ *
+ * <p>The class is written by hand (no bytecode library is needed) and defined
+ * in its own class loader, so it can be unloaded with the function. Repeated
+ * subexpressions live in JVM local variables, computed at their first use. Division by zero and the domain
+ * checks of {@code sqrt}, {@code log} and {@code ln} throw the same exceptions
+ * as the tree, and memoized functions go through {@link FunctionMemo}.
+ *
+ * <p>Android's ART cannot load JVM class files. There, for expressions too
+ * deeply nested to translate, or whenever class generation fails,
+ * {@link #compile(CompiledExpression)} returns a function that evaluates the
+ * expression directly instead.
+ */
+public final class BytecodeCompiler {
+
+    private static final String CLASS_PREFIX = "com/example/testcalculadora/model/GeneratedExpression$";
+    private static final String INTERFACE = "com/example/testcalculadora/model/ExpressionFunction";
+    private static final boolean SUPPORTED =
+            !System.getProperty("java.vm.name", "").toLowerCase(Locale.ROOT).contains("dalvik");
+    private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+    // Code generation recurses through the tree; the JVM's thread stacks allow
+    // much deeper trees than CompiledExpression.MAX_RECURSION_DEPTH
+    private static final int MAX_DEPTH = 1024;
+
+    private BytecodeCompiler() {
+    }
+
+    /**
+     * Whether this runtime can load generated classes. When false,
+     * {@link #compile(CompiledExpression)} always falls back to the tree.
+     */
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    public static ExpressionFunction compile(CompiledExpression expression) {
+        if (SUPPORTED && expression.getDepth() <= MAX_DEPTH) {
+            try {
+                return generate(expression);
+            } catch (LinkageError | RuntimeException | ReflectiveOperationException e) {
+                // Fall back to the tree below
+            }
+        }
+        return expression::evaluate;
+    }
+
+    /**
+     * Generates and loads the class, without the tree fallback.
+     */
+    static ExpressionFunction generate(CompiledExpression expression) throws ReflectiveOperationException {
+        String className = CLASS_PREFIX + CLASS_COUNTER.incrementAndGet();
+        byte[] classFile = new ClassAssembler(className).assemble(expression);
+        FunctionLoader loader = new FunctionLoader(ExpressionFunction.class.getClassLoader());
+        Class<?> generated = loader.define(className.replace('/', '.'), classFile);
+        return (ExpressionFunction) generated.getDeclaredConstructor().newInstance();
+    }
+
+    private static final class FunctionLoader extends ClassLoader {
+        FunctionLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+
+    /**
+     * Writes a class file implementing {@link ExpressionFunction}. The class
+     * version is 49 so branches need no stack map frames.
+     */
+    private static final class ClassAssembler {
+        private static final int ACC_PUBLIC = 0x0001;
+        private static final int ACC_FINAL = 0x0010;
+        private static final int ACC_SUPER = 0x0020;
+
+        private static final int ICONST_0 = 0x03;
+        private static final int DCONST_0 = 0x0e;
+        private static final int DCONST_1 = 0x0f;
+        private static final int BIPUSH = 0x10;
+        private static final int SIPUSH = 0x11;
+        private static final int LDC_W = 0x13;
+        private static final int LDC2_W = 0x14;
+        private static final int DLOAD = 0x18;
+        private static final int ALOAD_0 = 0x2a;
+        private static final int ALOAD_1 = 0x2b;
+        private static final int DALOAD = 0x31;
+        private static final int DSTORE = 0x39;
+        private static final int DUP = 0x59;
+        private static final int DUP2 = 0x5c;
+        private static final int DADD = 0x63;
+        private static final int DSUB = 0x67;
+        private static final int DMUL = 0x6b;
+        private static final int DDIV = 0x6f;
+        private static final int DNEG = 0x77;
+        private static final int DCMPL = 0x97;
+        private static final int DCMPG = 0x98;
+        private static final int IFNE = 0x9a;
+        private static final int IFGE = 0x9c;
+        private static final int IFGT = 0x9d;
+        private static final int DRETURN = 0xaf;
+        private static final int RETURN = 0xb1;
+        private static final int INVOKESPECIAL = 0xb7;
+        private static final int INVOKESTATIC = 0xb8;
+        private static final int NEW = 0xbb;
+        private static final int ATHROW = 0xbf;
+        private static final int WIDE = 0xc4;
+
+        private static final int MAX_CODE_LENGTH = 65535;
+
+        private final String className;
+        private final ConstantPool pool = new ConstantPool();
+        private byte[] code = new byte[256];
+        private int codeLength;
+        private int stack;
+        private int maxStack;
+        private ExpressionNode[] locals;
+        // Locals already computed by the code emitted so far
+        private boolean[] stored;
+
+        ClassAssembler(String className) {
+            this.className = className;
+        }
+
+        byte[] assemble(CompiledExpression expression) {
+            int thisClass = pool.classRef(className);
+            int superClass = pool.classRef("java/lang/Object");
+            int interfaceClass = pool.classRef(INTERFACE);
+            int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+
+            byte[] constructor = {(byte) ALOAD_0, (byte) INVOKESPECIAL,
+                    (byte) (objectInit >> 8), (byte) objectInit, (byte) RETURN};
+
+            locals = expression.getLocals();
+            stored = new boolean[locals.length];
+            emit(expression.getRoot());
+            op(DRETURN);
+            if (codeLength > MAX_CODE_LENGTH) {
+                throw new IllegalStateException("Expressão grande demais para bytecode");
+            }
+            int maxLocals = 2 + 2 * locals.length;
+
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(49);
+                // Resolve every name before the pool is written
+                int codeName = pool.utf8("Code");
+                int initName = pool.utf8("<init>");
+                int initType = pool.utf8("()V");
+                int evaluateName = pool.utf8("evaluate");
+                int evaluateType = pool.utf8("([D)D");
+                pool.write(out);
+                out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(1);
+                out.writeShort(interfaceClass);
+                out.writeShort(0); // fields
+                out.writeShort(2); // methods
+                writeMethod(out, initName, initType, codeName, 1, 1, constructor);
+                writeMethod(out, evaluateName, evaluateType, codeName, maxStack, maxLocals, Arrays.copyOf(code, codeLength));
+                out.writeShort(0); // attributes
+                out.flush();
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeName,
+                                        int maxStack, int maxLocals, byte[] code) throws IOException {
+            out.writeShort(ACC_PUBLIC);
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + code.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        }
+
+        /**
+         * Emits code leaving the node's value on the operand stack. Local i of
+         * the compiled expression lives in JVM slot 2 + 2i.
+         */
+        private void emit(ExpressionNode node) {
+            if (node instanceof ExpressionNode.Constant) {
+                double value = ((ExpressionNode.Constant) node).value;
+                if (Double.doubleToRawLongBits(value) == 0L) {
+                    op(DCONST_0);
+                } else if (value == 1) {
+                    op(DCONST_1);
+                } else {
+                    op(LDC2_W);
+                    u2(pool.doubleConstant(value));
+                }
+                push(2);
+            } else if (node instanceof ExpressionNode.Variable) {
+                op(ALOAD_1);
+                push(1);
+                pushInt(((ExpressionNode.Variable) node).slot);
+                op(DALOAD);
+            } else if (node instanceof ExpressionNode.Local) {
+                int index = ((ExpressionNode.Local) node).index;
+                if (stored[index]) {
+                    emitLocal(DLOAD, index);
+                    push(2);
+                } else {
+                    // Computed where the tree first reads it, so errors come in tree order
+                    stored[index] = true;
+                    emit(locals[index]);
+                    op(DUP2);
+                    push(2);
+                    emitLocal(DSTORE, index);
+                    pop(2);
+                }
+            } else if (node instanceof ExpressionNode.Negate) {
+                emit(((ExpressionNode.Negate) node).operand);
+                op(DNEG);
+            } else if (node instanceof ExpressionNode.Binary) {
+                ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+                emit(binary.left);
+                emit(binary.right);
+                switch (binary.operator) {
+                    case '+':
+                        op(DADD);
+                        break;
+                    case '-':
+                        op(DSUB);
+                        break;
+                    case '*':
+                        op(DMUL);
+                        break;
+                    default:
+                        op(DUP2);
+                        push(2);
+                        op(DCONST_0);
+                        push(2);
+                        op(DCMPL);
+                        pop(3);
+                        emitThrowUnless(IFNE, "Divisão por zero");
+                        op(DDIV);
+                        break;
+                }
+                pop(2);
+            } else if (node instanceof ExpressionNode.Power) {
+                ExpressionNode.Power power = (ExpressionNode.Power) node;
+                emit(power.base);
+                emit(power.exponent);
+                invokeMath("pow", "(DD)D");
+                pop(2);
+            } else if (node instanceof ExpressionNode.IntegerPower) {
+                ExpressionNode.IntegerPower power = (ExpressionNode.IntegerPower) node;
+                emit(power.base);
+                // Same operation order as IntegerPower.pow
+                switch (power.exponent) {
+                    case 2:
+                        op(DUP2);
+                        op(DMUL);
+                        break;
+                    case 3:
+                        op(DUP2);
+                        op(DUP2);
+                        push(4);
+                        op(DMUL);
+                        op(DMUL);
+                        pop(4);
+                        break;
+                    default:
+                        op(DUP2);
+                        op(DMUL);
+                        op(DUP2);
+                        op(DMUL);
+                        break;
+                }
+                push(2);
+                pop(2);
+            } else if (node instanceof ExpressionNode.Function) {
+                ExpressionNode.Function function = (ExpressionNode.Function) node;
+                emit(function.argument);
+                if (function.memoized) {
+                    // Generated classes live in their own loader and only see public members
+                    pushInt(function.function.ordinal());
+                    op(INVOKESTATIC);
+                    u2(pool.methodRef("com/example/testcalculadora/model/FunctionMemo", "applyCurrent", "(DI)D"));
+                    pop(1);
+                } else {
+                    emitFunction(function.function);
+                }
+            } else {
+                throw new IllegalArgumentException("Nó inesperado: " + node.getClass().getSimpleName());
+            }
+        }
+
+        private void emitFunction(MathFunction function) {
+            switch (function) {
+                case SIN:
+                    invokeMath("toRadians", "(D)D");
+                    invokeMath("sin", "(D)D");
+                    break;
+                case COS:
+                    invokeMath("toRadians", "(D)D");
+                    invokeMath("cos", "(D)D");
+                    break;
+                case TAN:
+                    invokeMath("toRadians", "(D)D");
+                    invokeMath("tan", "(D)D");
+                    break;
+                case SQRT:
+                    // Throw when argument < 0; NaN compares as greater with dcmpg
+                    emitCompareWithZero(DCMPG);
+                    emitThrowUnless(IFGE, "Raiz quadrada de número negativo");
+                    invokeMath("sqrt", "(D)D");
+                    break;
+                case LOG:
+                    emitCompareWithZero(DCMPG);
+                    emitThrowUnless(IFGT, "Logaritmo de número não positivo");
+                    invokeMath("log10", "(D)D");
+                    break;
+                default:
+                    emitCompareWithZero(DCMPG);
+                    emitThrowUnless(IFGT, "Logaritmo de número não positivo");
+                    invokeMath("log", "(D)D");
+                    break;
+            }
+        }
+
+        private void emitCompareWithZero(int compare) {
+            op(DUP2);
+            push(2);
+            op(DCONST_0);
+            push(2);
+            op(compare);
+            pop(3);
+        }
+
+        /**
+         * Pops the int comparison result and continues if {@code branch}
+         * holds; otherwise throws an {@link Exception} with the message.
+         */
+        private void emitThrowUnless(int branch, String message) {
+            pop(1);
+            int branchAt = codeLength;
+            op(branch);
+            u2(0); // patched below
+            op(NEW);
+            u2(pool.classRef("java/lang/Exception"));
+            op(DUP);
+            op(LDC_W);
+            u2(pool.string(message));
+            push(3);
+            op(INVOKESPECIAL);
+            u2(pool.methodRef("java/lang/Exception", "<init>", "(Ljava/lang/String;)V"));
+            op(ATHROW);
+            pop(3);
+            int offset = codeLength - branchAt;
+            code[branchAt + 1] = (byte) (offset >> 8);
+            code[branchAt + 2] = (byte) offset;
+        }
+
+        private void emitLocal(int opcode, int index) {
+            int slot = 2 + 2 * index;
+            if (slot <= 255) {
+                op(opcode);
+                op(slot);
+            } else {
+                op(WIDE);
+                op(opcode);
+                u2(slot);
+            }
+        }
+
+        private void invokeMath(String name, String descriptor) {
+            op(INVOKESTATIC);
+            u2(pool.methodRef("java/lang/Math", name, descriptor));
+        }
+
+        private void pushInt(int value) {
+            if (value <= 5) {
+                op(ICONST_0 + value);
+            } else if (value <= Byte.MAX_VALUE) {
+                op(BIPUSH);
+                op(value);
+            } else {
+                op(SIPUSH);
+                u2(value);
+            }
+            push(1);
+        }
+
+        private void op(int value) {
+            if (codeLength == code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            code[codeLength++] = (byte) value;
+        }
+
+        private void u2(int value) {
+            op(value >> 8);
+            op(value);
+        }
+
+        private void push(int slots) {
+            stack += slots;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void pop(int slots) {
+            stack -= slots;
+        }
+    }
+
+    /**
+     * Class file constant pool with de-duplicated entries.
+     */
+    private static final class ConstantPool {
+        private static final int UTF8 = 1;
+        private static final int DOUBLE = 6;
+        private static final int CLASS = 7;
+        private static final int STRING = 8;
+        private static final int METHOD_REF = 10;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<byte[]> entries = new ArrayList<>();
+        private int nextIndex = 1;
+
+        int utf8(String value) {
+            Integer existing = indexes.get("U" + value);
+            if (existing != null) {
+                return existing;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return add("U" + value, bytes.toByteArray(), 1);
+        }
+
+        int classRef(String internalName) {
+            return reference("C" + internalName, CLASS, utf8(internalName));
+        }
+
+        int string(String value) {
+            return reference("S" + value, STRING, utf8(value));
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            String key = "M" + owner + '.' + name + descriptor;
+            Integer existing = indexes.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            int ownerIndex = classRef(owner);
+            int nameAndType = nameAndType(name, descriptor);
+            return add(key, new byte[] {METHOD_REF,
+                    (byte) (ownerIndex >> 8), (byte) ownerIndex,
+                    (byte) (nameAndType >> 8), (byte) nameAndType}, 1);
+        }
+
+        int doubleConstant(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            String key = "D" + bits;
+            Integer existing = indexes.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            byte[] entry = new byte[9];
+            entry[0] = DOUBLE;
+            for (int i = 0; i < 8; i++) {
+                entry[1 + i] = (byte) (bits >>> (56 - 8 * i));
+            }
+            // Doubles take two pool indexes
+            return add(key, entry, 2);
+        }
+
+        private int nameAndType(String name, String descriptor) {
+            String key = "N" + name + ':' + descriptor;
+            Integer existing = indexes.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            int nameIndex = utf8(name);
+            int typeIndex = utf8(descriptor);
+            return add(key, new byte[] {NAME_AND_TYPE,
+                    (byte) (nameIndex >> 8), (byte) nameIndex,
+                    (byte) (typeIndex >> 8), (byte) typeIndex}, 1);
+        }
+
+        private int reference(String key, int tag, int target) {
+            Integer existing = indexes.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            return add(key, new byte[] {(byte) tag, (byte) (target >> 8), (byte) target}, 1);
+        }
+
+        private int add(String key, byte[] entry, int size) {
+            int index = nextIndex;
+            if (index + size > 0xFFFF) {
+                throw new IllegalStateException("Pool de constantes cheio");
+            }
+            indexes.put(key, index);
+            entries.add(entry);
+            nextIndex += size;
+            return index;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeShort(nextIndex);
+            for (byte[] entry : entries) {
+                out.write(entry);
+            }
+        }
+    }
+}
@@ -1,23 +1,41 @@
 package com.example.testcalculadora.model;
 
 public class CalculatorState {
-    private String expression;
+    private final ExpressionBuffer expression;
+    private final CharSequence expressionText;
     private String result;
     private boolean lastWasOperator;
     private boolean lastWasEquals;
     private int openParentheses;
+    // The number the expression ends with: where it starts (-1 if the
+    // expression does not end with one) and whether it has a ','
+    private int numberStart;
+    private boolean numberHasDecimal;
 
     public CalculatorState() {
-        this.expression = "";
+        this.expression = new ExpressionBuffer();
+        this.expressionText = new ReadOnlyText(expression);
         this.result = "";
         this.lastWasOperator = false;
         this.lastWasEquals = false;
         this.openParentheses = 0;
+        this.numberStart = -1;
+        this.numberHasDecimal = false;
     }
 
     // Getters
     public String getExpression() { 
-        return expression; 
+        return expression.toString(); 
+    }
+    
+    /**
+     * The expression without copying it: a read-only view that follows
+     * later edits, so it must not be kept. Edit the expression through
+     * {@link #setExpression}, {@link #appendToExpression} and
+     * {@link #truncateExpression}, which keep the current number in sync.
+     */
+    public CharSequence getExpressionText() {
+        return expressionText;
     }
     
     public String getResult() { 
@@ -35,10 +53,63 @@ public class CalculatorState {
     public int getOpenParentheses() { 
         return openParentheses; 
     }
+    
+    /** Start of the number the expression ends with, or -1 if it does not end with one. */
+    public int getNumberStart() {
+        return numberStart;
+    }
+    
+    public boolean isNumberHasDecimal() {
+        return numberHasDecimal;
+    }
+    
+    /** Value of the number the expression ends with. */
+    public double getNumberValue() {
+        if (numberStart < 0) {
+            throw new NumberFormatException("Número esperado");
+        }
+        return DecimalParser.parse(expression, numberStart, expression.length());
+    }
 
     // Setters
-    public void setExpression(String expression) { 
-        this.expression = expression; 
+    public void setExpression(CharSequence expression) { 
+        if (expression != this.expression && expression != expressionText) {
+            this.expression.clear();
+            this.numberStart = -1;
+            this.numberHasDecimal = false;
+            appendToExpression(expression);
+        }
+    }
+    
+    public void appendToExpression(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!isNumberPart(c)) {
+                numberStart = -1;
+                numberHasDecimal = false;
+            } else if (numberStart < 0) {
+                numberStart = expression.length();
+                numberHasDecimal = c == ',';
+            } else if (c == ',') {
+                numberHasDecimal = true;
+            }
+            expression.append(c);
+        }
+    }
+    
+    /** Keeps the first {@code length} characters of the expression. */
+    public void truncateExpression(int length) {
+        expression.setLength(length);
+        // Only the characters of the new last number are looked at
+        numberStart = length;
+        numberHasDecimal = false;
+        while (numberStart > 0 && isNumberPart(expression.charAt(numberStart - 1))) {
+            numberStart--;
+            numberHasDecimal |= expression.charAt(numberStart) == ',';
+        }
+        if (numberStart == length) {
+            numberStart = -1;
+        }
     }
     
     public void setResult(String result) { 
@@ -66,10 +137,45 @@ public class CalculatorState {
     }
 
     public void reset() {
-        this.expression = "";
+        this.expression.clear();
         this.result = "";
         this.lastWasOperator = false;
         this.lastWasEquals = false;
         this.openParentheses = 0;
+        this.numberStart = -1;
+        this.numberHasDecimal = false;
+    }
+    
+    private static boolean isNumberPart(char c) {
+        return (c >= '0' && c <= '9') || c == ',' || c == '.';
+    }
+    
+    /** Hides the buffer's editing methods from whoever reads the text. */
+    private static final class ReadOnlyText implements CharSequence {
+        private final ExpressionBuffer text;
+        
+        ReadOnlyText(ExpressionBuffer text) {
+            this.text = text;
+        }
+        
+        @Override
+        public int length() {
+            return text.length();
+        }
+        
+        @Override
+        public char charAt(int index) {
+            return text.charAt(index);
+        }
+        
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+        
+        @Override
+        public String toString() {
+            return text.toString();
+        }
     }
 }
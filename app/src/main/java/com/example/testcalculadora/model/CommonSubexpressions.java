@@ -0,0 +1,173 @@
+package com.example.testcalculadora.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds structurally identical subtrees, such as the two {@code sin(x)} in
+ * {@code sin(x)^2+sin(x)*cos(x)}, so each is evaluated once per evaluation.
+ *
+ * <p>The tree is first hash-consed into a DAG in which equal subtrees are
+ * the same node. Every non-leaf node referenced from more than one place
+ * becomes a local: its definition is evaluated once into a frame slot, and
+ * the occurrences read that slot through {@link ExpressionNode.Local}.
+ * Definitions are listed children first, so each only reads earlier ones.
+ */
+final class CommonSubexpressions {
+
+    private final Map<Key, ExpressionNode> canonical = new HashMap<>();
+    private final Map<ExpressionNode, Integer> references = new IdentityHashMap<>();
+    private final Map<ExpressionNode, ExpressionNode> rewritten = new IdentityHashMap<>();
+    private final List<ExpressionNode> locals = new ArrayList<>();
+    private final int firstSlot;
+
+    private CommonSubexpressions(int firstSlot) {
+        this.firstSlot = firstSlot;
+    }
+
+    /**
+     * Builds the compiled form of {@code root}, hoisting repeated subtrees
+     * into locals stored after the {@code variables} in the evaluation frame.
+     */
+    static CompiledExpression compile(ExpressionNode root, String[] variables) {
+        CommonSubexpressions pass = new CommonSubexpressions(variables.length);
+        ExpressionNode dag = pass.intern(root);
+        pass.reference(dag);
+        ExpressionNode body = pass.rewrite(dag);
+        return new CompiledExpression(body, variables,
+                pass.locals.toArray(new ExpressionNode[0]));
+    }
+
+    private ExpressionNode intern(ExpressionNode root) {
+        return new ExpressionNode.Transform() {
+            @Override
+            ExpressionNode combine(ExpressionNode node, ExpressionNode first, ExpressionNode second) {
+                return canonicalize(node.withChildren(first, second));
+            }
+        }.apply(root);
+    }
+
+    private ExpressionNode canonicalize(ExpressionNode candidate) {
+        Key key = new Key(candidate);
+        ExpressionNode existing = canonical.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        canonical.put(key, candidate);
+        // Children of a node are counted once, however often the node itself is used
+        if (key.first != null) {
+            reference(key.first);
+        }
+        if (key.second != null) {
+            reference(key.second);
+        }
+        return candidate;
+    }
+
+    private void reference(ExpressionNode node) {
+        Integer count = references.get(node);
+        references.put(node, count == null ? 1 : count + 1);
+    }
+
+    private ExpressionNode rewrite(ExpressionNode root) {
+        return new ExpressionNode.Transform() {
+            @Override
+            ExpressionNode replace(ExpressionNode node) {
+                return isShared(node) ? rewritten.get(node) : null;
+            }
+
+            @Override
+            ExpressionNode combine(ExpressionNode node, ExpressionNode first, ExpressionNode second) {
+                ExpressionNode result = node.withChildren(first, second);
+                if (!isShared(node)) {
+                    return result;
+                }
+                int index = locals.size();
+                locals.add(result);
+                ExpressionNode local = new ExpressionNode.Local(firstSlot + index, index);
+                rewritten.put(node, local);
+                return local;
+            }
+        }.apply(root);
+    }
+
+    private boolean isShared(ExpressionNode node) {
+        if (node instanceof ExpressionNode.Constant || node instanceof ExpressionNode.Variable) {
+            return false;
+        }
+        Integer count = references.get(node);
+        return count != null && count > 1;
+    }
+
+    /**
+     * Structural identity of a node whose children are already canonical, so
+     * children can be compared by reference.
+     */
+    private static final class Key {
+        private final Class<?> type;
+        private final long attribute;
+        private final ExpressionNode first;
+        private final ExpressionNode second;
+
+        Key(ExpressionNode node) {
+            type = node.getClass();
+            if (node instanceof ExpressionNode.Constant) {
+                attribute = Double.doubleToLongBits(((ExpressionNode.Constant) node).value);
+                first = null;
+                second = null;
+            } else if (node instanceof ExpressionNode.Variable) {
+                attribute = ((ExpressionNode.Variable) node).slot;
+                first = null;
+                second = null;
+            } else if (node instanceof ExpressionNode.Negate) {
+                attribute = 0;
+                first = ((ExpressionNode.Negate) node).operand;
+                second = null;
+            } else if (node instanceof ExpressionNode.Binary) {
+                ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+                attribute = binary.operator;
+                first = binary.left;
+                second = binary.right;
+            } else if (node instanceof ExpressionNode.Power) {
+                ExpressionNode.Power power = (ExpressionNode.Power) node;
+                attribute = 0;
+                first = power.base;
+                second = power.exponent;
+            } else if (node instanceof ExpressionNode.IntegerPower) {
+                ExpressionNode.IntegerPower power = (ExpressionNode.IntegerPower) node;
+                attribute = power.exponent;
+                first = power.base;
+                second = null;
+            } else if (node instanceof ExpressionNode.Function) {
+                ExpressionNode.Function function = (ExpressionNode.Function) node;
+                attribute = function.function.ordinal() * 2 + (function.memoized ? 1 : 0);
+                first = function.argument;
+                second = null;
+            } else {
+                throw new IllegalArgumentException("Nó inesperado: " + node.getClass().getSimpleName());
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return type == key.type && attribute == key.attribute
+                    && first == key.first && second == key.second;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = type.hashCode();
+            hash = 31 * hash + Long.hashCode(attribute);
+            hash = 31 * hash + System.identityHashCode(first);
+            hash = 31 * hash + System.identityHashCode(second);
+            return hash;
+        }
+    }
+}
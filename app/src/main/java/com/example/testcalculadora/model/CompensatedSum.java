@@ -0,0 +1,34 @@
+package com.example.testcalculadora.model;
+
+/**
+ * Neumaier's variant of Kahan summation: the low-order bits lost by each
+ * addition are accumulated separately and added back at the end, so the
+ * error does not grow with the number of terms, even when a term is larger
+ * than the running sum.
+ */
+final class CompensatedSum {
+
+    private double sum;
+    private double compensation;
+    private double absoluteSum;
+
+    void add(double term) {
+        double total = sum + term;
+        if (Math.abs(sum) >= Math.abs(term)) {
+            compensation += (sum - total) + term;
+        } else {
+            compensation += (term - total) + sum;
+        }
+        sum = total;
+        absoluteSum += Math.abs(term);
+    }
+
+    double value() {
+        return sum + compensation;
+    }
+
+    /** Sum of the magnitudes of the terms, which bounds the rounding error. */
+    double absoluteValue() {
+        return absoluteSum;
+    }
+}
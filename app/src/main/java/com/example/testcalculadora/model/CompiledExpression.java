@@ -0,0 +1,186 @@
+package com.example.testcalculadora.model;
+
+/**
+ * A parsed expression that can be evaluated repeatedly without parsing
+ * again. Instances are immutable and safe to share between threads.
+ */
+public final class CompiledExpression {
+
+    private static final double[] NO_BINDINGS = new double[0];
+
+    private static final ExpressionNode[] NO_LOCALS = new ExpressionNode[0];
+
+    /**
+     * Deepest tree evaluated by recursion through the nodes. Deeper trees,
+     * from heavily nested input, run as a {@link StackProgram} instead so they
+     * cannot overflow a small thread stack.
+     */
+    static final int MAX_RECURSION_DEPTH = 128;
+
+    private final ExpressionNode root;
+    private final String[] variables;
+    private final ExpressionNode[] locals;
+    private final ThreadLocal<double[]> frames;
+    private final int depth;
+    private final StackProgram program;
+    // The expression without locals, built on the first error to find the one to report
+    private volatile CompiledExpression inlined;
+
+    CompiledExpression(ExpressionNode root, String[] variables) {
+        this(root, variables, NO_LOCALS);
+    }
+
+    /**
+     * @param locals definitions of repeated subexpressions, evaluated in order
+     *               into the frame slots that follow the variables
+     */
+    CompiledExpression(ExpressionNode root, String[] variables, ExpressionNode[] locals) {
+        this.root = root;
+        this.variables = variables;
+        this.locals = locals;
+        this.depth = depth(root, locals);
+        this.program = depth > MAX_RECURSION_DEPTH ? StackProgram.compile(root, locals, variables.length) : null;
+        this.frames = locals.length == 0 ? null : new ThreadLocal<double[]>() {
+            @Override
+            protected double[] initialValue() {
+                return new double[variables.length + locals.length];
+            }
+        };
+    }
+
+    ExpressionNode getRoot() {
+        return root;
+    }
+
+    ExpressionNode[] getLocals() {
+        return locals;
+    }
+
+    /**
+     * The program evaluating this expression when its tree is too deep for
+     * recursion, or null when the tree is used directly.
+     */
+    StackProgram getProgram() {
+        return program;
+    }
+
+    /**
+     * Depth of the deepest tree among the root and the local definitions.
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    private static int depth(ExpressionNode root, ExpressionNode[] locals) {
+        int depth = ExpressionNode.depth(root);
+        for (ExpressionNode local : locals) {
+            depth = Math.max(depth, ExpressionNode.depth(local));
+        }
+        return depth;
+    }
+
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    public String getVariableName(int slot) {
+        return variables[slot];
+    }
+
+    /**
+     * Returns the slot of a variable in the bindings array, or -1 if the
+     * expression was not compiled with that variable.
+     */
+    public int indexOfVariable(String name) {
+        for (int i = 0; i < variables.length; i++) {
+            if (variables[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public double evaluate() throws Exception {
+        return evaluate(NO_BINDINGS);
+    }
+
+    /**
+     * Evaluates the expression with {@code bindings[i]} as the value of the
+     * i-th variable passed to {@link ExpressionParser#compile(String, String...)}.
+     * The array is only read, so callers can reuse it between calls.
+     */
+    public double evaluate(double[] bindings) throws Exception {
+        if (bindings.length < variables.length) {
+            throw new IllegalArgumentException("Esperados " + variables.length
+                    + " valores de variáveis, recebidos " + bindings.length);
+        }
+        if (program != null) {
+            return program.evaluate(bindings, variables.length);
+        }
+        if (frames == null) {
+            return root.evaluate(bindings);
+        }
+        try {
+            // Each thread reuses its own frame: variables first, then the locals
+            double[] frame = frames.get();
+            System.arraycopy(bindings, 0, frame, 0, variables.length);
+            for (int i = 0; i < locals.length; i++) {
+                frame[variables.length + i] = locals[i].evaluate(frame);
+            }
+            return root.evaluate(frame);
+        } catch (Exception e) {
+            throw treeOrderError(bindings, e);
+        }
+    }
+
+    /**
+     * The error that evaluating the expression as written reports for
+     * {@code bindings}, given the {@code error} met with the locals. Locals
+     * are evaluated before the root, so in {@code ln(x-1)+1/x+1/x} at
+     * {@code x = 0} the shared {@code 1/x} fails before the logarithm would;
+     * the error reported is still the logarithm's. Only errors pay for this.
+     */
+    private Exception treeOrderError(double[] bindings, Exception error) {
+        CompiledExpression tree = inlined;
+        if (tree == null) {
+            tree = new CompiledExpression(inline(root, locals), variables);
+            inlined = tree;
+        }
+        try {
+            tree.evaluate(bindings);
+        } catch (Exception e) {
+            return e;
+        }
+        return error;
+    }
+
+    /** The tree with every local replaced by its definition. */
+    private static ExpressionNode inline(ExpressionNode root, ExpressionNode[] locals) {
+        final ExpressionNode[] definitions = new ExpressionNode[locals.length];
+        ExpressionNode.Transform transform = new ExpressionNode.Transform() {
+            @Override
+            ExpressionNode replace(ExpressionNode node) {
+                return node instanceof ExpressionNode.Local ? definitions[((ExpressionNode.Local) node).index] : null;
+            }
+
+            @Override
+            ExpressionNode combine(ExpressionNode node, ExpressionNode first, ExpressionNode second) {
+                return node.withChildren(first, second);
+            }
+        };
+        // Definitions only read earlier ones
+        for (int i = 0; i < locals.length; i++) {
+            definitions[i] = transform.apply(locals[i]);
+        }
+        return transform.apply(root);
+    }
+
+    /**
+     * Evaluates the expression for every row of {@code results}, reading
+     * variable i from {@code columns[i]}. See {@link BatchEvaluator} for
+     * repeated batches, which reuses its scratch buffers between calls.
+     */
+    public void evaluate(double[][] columns, double[] results) throws Exception {
+        new BatchEvaluator(this).evaluate(columns, results);
+    }
+}
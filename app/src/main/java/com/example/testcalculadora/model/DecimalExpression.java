@@ -0,0 +1,126 @@
+package com.example.testcalculadora.model;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Map;
+
+/**
+ * An expression compiled by
+ * {@link ExpressionParser#compileExact(String, MathContext, String...)} for
+ * evaluation with {@link BigDecimal}. It runs as a postfix program over a
+ * value stack, so nesting depth does not touch the native stack. Instances
+ * are immutable and safe to share between threads.
+ */
+public final class DecimalExpression {
+
+    private static final BigDecimal[] NO_BINDINGS = new BigDecimal[0];
+
+    private static final MathFunction[] FUNCTIONS = MathFunction.values();
+
+    private final String[] variables;
+    private final DecimalMath math;
+    private final int[] code;
+    private final BigDecimal[] constants;
+    private final int maxStack;
+
+    DecimalExpression(ExpressionNode root, String[] variables, Map<ExpressionNode, BigDecimal> literals,
+                      DecimalMath math) {
+        this.variables = variables;
+        this.math = math;
+        Assembler assembler = new Assembler(literals, math.getContext());
+        assembler.apply(root);
+        this.code = assembler.code();
+        this.constants = assembler.constants().toArray(new BigDecimal[0]);
+        this.maxStack = assembler.maxStack();
+    }
+
+    public MathContext getMathContext() {
+        return math.getContext();
+    }
+
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    public BigDecimal evaluate() throws Exception {
+        return evaluate(NO_BINDINGS);
+    }
+
+    /**
+     * Evaluates with {@code bindings[i]} as the value of the i-th variable.
+     * The result is rounded to the {@link MathContext} of the expression;
+     * compare results with {@link BigDecimal#compareTo}, as the scale
+     * depends on the operations.
+     */
+    public BigDecimal evaluate(BigDecimal... bindings) throws Exception {
+        if (bindings.length < variables.length) {
+            throw new IllegalArgumentException("Esperados " + variables.length
+                    + " valores de variáveis, recebidos " + bindings.length);
+        }
+        BigDecimal[] stack = new BigDecimal[maxStack];
+        int top = -1;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case PostfixCode.CONSTANT:
+                    stack[++top] = constants[code[pc++]];
+                    break;
+                case PostfixCode.LOAD:
+                    stack[++top] = bindings[code[pc++]].round(math.getContext());
+                    break;
+                case PostfixCode.NEGATE:
+                    stack[top] = stack[top].negate();
+                    break;
+                case PostfixCode.ADD:
+                    top--;
+                    stack[top] = math.add(stack[top], stack[top + 1]);
+                    break;
+                case PostfixCode.SUBTRACT:
+                    top--;
+                    stack[top] = math.subtract(stack[top], stack[top + 1]);
+                    break;
+                case PostfixCode.MULTIPLY:
+                    top--;
+                    stack[top] = math.multiply(stack[top], stack[top + 1]);
+                    break;
+                case PostfixCode.DIVIDE:
+                    top--;
+                    stack[top] = math.divide(stack[top], stack[top + 1]);
+                    break;
+                case PostfixCode.POWER:
+                    top--;
+                    stack[top] = math.pow(stack[top], stack[top + 1]);
+                    break;
+                case PostfixCode.FUNCTION:
+                    stack[top] = math.apply(FUNCTIONS[code[pc++]], stack[top]);
+                    break;
+                default:
+                    throw new IllegalStateException("Instrução inválida: " + code[pc - 1]);
+            }
+        }
+        return stack[top];
+    }
+
+    /**
+     * Numbers come from the literals recorded by the parser, rounded to the
+     * context.
+     */
+    private static final class Assembler extends PostfixCode<BigDecimal> {
+        private final Map<ExpressionNode, BigDecimal> literals;
+        private final MathContext context;
+
+        Assembler(Map<ExpressionNode, BigDecimal> literals, MathContext context) {
+            this.literals = literals;
+            this.context = context;
+        }
+
+        @Override
+        BigDecimal constant(ExpressionNode.Constant node) {
+            BigDecimal literal = literals.get(node);
+            if (literal == null) {
+                literal = new BigDecimal(node.value);
+            }
+            return literal.round(context);
+        }
+    }
+}
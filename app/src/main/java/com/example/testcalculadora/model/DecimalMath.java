@@ -0,0 +1,460 @@
+package com.example.testcalculadora.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Arithmetic and scientific functions on {@link BigDecimal} for one
+ * {@link MathContext}. Every result is rounded to the context once;
+ * intermediate steps carry {@link #GUARD_DIGITS} extra digits.
+ *
+ * <ul>
+ *   <li>{@code +}, {@code -} and {@code *} skip rounding when the exact
+ *       result fits in the precision, which is the common case for typed
+ *       numbers.</li>
+ *   <li>Trigonometric functions take degrees, reduced modulo 360 exactly, so
+ *       multiples of 90 give exact results.</li>
+ *   <li>Sine, cosine and {@code exp} sum Taylor series after argument
+ *       reduction. The series run in binary fixed point, where rounding is a
+ *       shift rather than a decimal division.</li>
+ *   <li>Square roots use Newton's method and logarithms Halley's method on
+ *       {@code exp}, both started from the double result.</li>
+ * </ul>
+ *
+ * <p>Instances are shared per context through {@link #forContext}; they
+ * cache pi, ln(10) and the series coefficients, and are thread-safe.
+ */
+final class DecimalMath {
+
+    static final int GUARD_DIGITS = 10;
+
+    private static final ConcurrentHashMap<MathContext, DecimalMath> INSTANCES = new ConcurrentHashMap<>();
+
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final BigDecimal FORTY_FIVE = BigDecimal.valueOf(45);
+    private static final BigDecimal NINETY = BigDecimal.valueOf(90);
+    private static final BigDecimal FULL_TURN = BigDecimal.valueOf(360);
+    private static final BigDecimal HALF_TURN = BigDecimal.valueOf(180);
+    // Above this the square root of the mantissa moves to the next power of ten
+    private static final BigDecimal SQRT_TEN = new BigDecimal("3.1622776601683793");
+    // exp sums its series for x / 2^8 and squares the result back
+    private static final int EXP_HALVINGS = 8;
+
+    private final MathContext context;
+    private final MathContext working;
+    private final int precision;
+    // Fixed-point numbers are BigIntegers counting units of 2^-bits, with
+    // fixedDigits decimal digits after the point
+    private final int fixedDigits;
+    private final int bits;
+    private final BigInteger fixedOne;
+    private final BigInteger fixedScale;
+    private volatile BigDecimal pi;
+    private volatile BigDecimal ln10;
+    private volatile BigInteger radiansPerDegree;
+    // 1/n! in fixed point, grown on demand; series multiply by these
+    // instead of dividing, which costs far more
+    private volatile BigInteger[] inverseFactorials;
+
+    private DecimalMath(MathContext context) {
+        this.context = context;
+        this.precision = context.getPrecision() + GUARD_DIGITS;
+        this.working = new MathContext(precision, RoundingMode.HALF_EVEN);
+        // A quarter more digits than the working precision, so a sine as
+        // small as 10^(-precision/4) keeps all its digits
+        this.fixedDigits = precision + precision / 4 + 2;
+        this.bits = (int) Math.ceil(fixedDigits * 3.3219280948873626);
+        this.fixedOne = BigInteger.ONE.shiftLeft(bits);
+        this.fixedScale = BigInteger.TEN.pow(fixedDigits);
+        this.inverseFactorials = new BigInteger[] {fixedOne};
+    }
+
+    static DecimalMath forContext(MathContext context) {
+        if (context.getPrecision() <= 0) {
+            throw new IllegalArgumentException("Precisão deve ser positiva: " + context.getPrecision());
+        }
+        DecimalMath math = INSTANCES.get(context);
+        if (math == null) {
+            INSTANCES.putIfAbsent(context, new DecimalMath(context));
+            math = INSTANCES.get(context);
+        }
+        return math;
+    }
+
+    MathContext getContext() {
+        return context;
+    }
+
+    BigDecimal add(BigDecimal a, BigDecimal b) {
+        // The exact sum has at most one digit more than the wider operand
+        int integerDigits = Math.max(a.precision() - a.scale(), b.precision() - b.scale());
+        int fractionDigits = Math.max(a.scale(), b.scale());
+        if ((long) integerDigits + fractionDigits + 1 <= context.getPrecision()) {
+            return a.add(b);
+        }
+        return a.add(b, context);
+    }
+
+    BigDecimal subtract(BigDecimal a, BigDecimal b) {
+        return add(a, b.negate());
+    }
+
+    BigDecimal multiply(BigDecimal a, BigDecimal b) {
+        if (a.precision() + b.precision() <= context.getPrecision()) {
+            return a.multiply(b);
+        }
+        return a.multiply(b, context);
+    }
+
+    BigDecimal divide(BigDecimal a, BigDecimal b) throws Exception {
+        if (b.signum() == 0) {
+            throw new Exception("Divisão por zero");
+        }
+        return a.divide(b, context);
+    }
+
+    BigDecimal pow(BigDecimal base, BigDecimal exponent) throws Exception {
+        int integer = integerExponent(exponent);
+        if (integer != Integer.MIN_VALUE) {
+            if (integer >= 0) {
+                if ((long) base.precision() * integer <= context.getPrecision()) {
+                    return base.pow(integer);
+                }
+                return base.pow(integer, working).round(context);
+            }
+            if (base.signum() == 0) {
+                throw new Exception("Divisão por zero");
+            }
+            return BigDecimal.ONE.divide(base.pow(-integer, working), context);
+        }
+
+        if (base.signum() < 0) {
+            throw new Exception("Potência de base negativa com expoente fracionário");
+        }
+        if (base.signum() == 0) {
+            if (exponent.signum() < 0) {
+                throw new Exception("Divisão por zero");
+            }
+            return BigDecimal.ZERO;
+        }
+        return exp(exponent.multiply(ln(base), working)).round(context);
+    }
+
+    /** The exponent as an int if it is a whole number that fits, otherwise MIN_VALUE. */
+    private static int integerExponent(BigDecimal exponent) {
+        if (exponent.signum() == 0) {
+            return 0;
+        }
+        if (exponent.scale() > 0) {
+            exponent = exponent.stripTrailingZeros();
+            if (exponent.scale() > 0) {
+                return Integer.MIN_VALUE;
+            }
+        }
+        // BigDecimal.pow takes exponents up to 999999999
+        if (exponent.precision() - exponent.scale() > 9) {
+            return Integer.MIN_VALUE;
+        }
+        return exponent.intValueExact();
+    }
+
+    BigDecimal apply(MathFunction function, BigDecimal argument) throws Exception {
+        switch (function) {
+            case SIN:
+                return sine(argument, false);
+            case COS:
+                return sine(argument, true);
+            case TAN:
+                return tangent(argument);
+            case SQRT:
+                return sqrt(argument);
+            case LOG:
+                return ln(checkLogarithm(argument)).divide(ln10(), context);
+            default:
+                return ln(checkLogarithm(argument)).round(context);
+        }
+    }
+
+    private static BigDecimal checkLogarithm(BigDecimal argument) throws Exception {
+        if (argument.signum() <= 0) {
+            throw new Exception("Logaritmo de número não positivo");
+        }
+        return argument;
+    }
+
+    BigDecimal sqrt(BigDecimal value) throws Exception {
+        if (value.signum() < 0) {
+            throw new Exception("Raiz quadrada de número negativo");
+        }
+        if (value.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        // value = mantissa * 10^(2 * half) with the mantissa in [1, 100)
+        int exponent = value.precision() - value.scale() - 1;
+        int half = Math.floorDiv(exponent, 2);
+        BigDecimal mantissa = value.scaleByPowerOfTen(-2 * half);
+
+        BigDecimal root = new BigDecimal(Math.sqrt(mantissa.doubleValue()));
+        // The double has 15 correct digits; each Newton step doubles them
+        for (int digits = 15; digits < precision; digits *= 2) {
+            BigDecimal next = root.add(mantissa.divide(root, working)).divide(TWO, working);
+            if (next.compareTo(root) == 0) {
+                break;
+            }
+            root = next;
+        }
+        return root.scaleByPowerOfTen(half).round(context);
+    }
+
+    /**
+     * Natural logarithm at working precision of a positive value. Halley's
+     * iteration triples the correct digits of the double estimate per step.
+     */
+    private BigDecimal ln(BigDecimal value) throws Exception {
+        // value = mantissa * 10^exponent with the mantissa in [1/sqrt(10), sqrt(10))
+        int exponent = value.precision() - value.scale() - 1;
+        BigDecimal mantissa = value.scaleByPowerOfTen(-exponent);
+        if (mantissa.compareTo(SQRT_TEN) >= 0) {
+            exponent++;
+            mantissa = mantissa.movePointLeft(1);
+        }
+
+        BigDecimal log = BigDecimal.ZERO;
+        if (mantissa.compareTo(BigDecimal.ONE) != 0) {
+            log = new BigDecimal(Math.log(mantissa.doubleValue()));
+            // The double has 15 correct digits; each step triples them
+            for (int digits = 15; digits < precision; digits *= 3) {
+                BigDecimal power = exp(log);
+                BigDecimal correction = TWO.multiply(mantissa.subtract(power, working))
+                        .divide(mantissa.add(power, working), working);
+                log = log.add(correction, working);
+            }
+        }
+        if (exponent == 0) {
+            return log;
+        }
+        return log.add(ln10().multiply(BigDecimal.valueOf(exponent), working), working);
+    }
+
+    /**
+     * e^x at working precision: x = k*ln(10) + r, and e^r is summed for
+     * r / 2^8 in fixed point, then squared back.
+     */
+    private BigDecimal exp(BigDecimal x) throws Exception {
+        if (x.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        BigDecimal decades = x.divide(ln10(), MathContext.DECIMAL64).setScale(0, RoundingMode.HALF_EVEN);
+        if (decades.precision() - decades.scale() > 9) {
+            // BigDecimal scales are ints
+            throw new Exception("Resultado fora do intervalo");
+        }
+        int k = decades.intValueExact();
+        BigDecimal r = k == 0 ? x : x.subtract(ln10().multiply(decades, working), working);
+
+        BigInteger small = toFixed(r).shiftRight(EXP_HALVINGS);
+        BigInteger sum = fixedOne;
+        BigInteger power = fixedOne;
+        for (int n = 1; ; n++) {
+            power = multiplyFixed(power, small);
+            BigInteger term = multiplyFixed(power, inverseFactorial(n));
+            if (term.signum() == 0) {
+                break;
+            }
+            sum = sum.add(term);
+        }
+        for (int i = 0; i < EXP_HALVINGS; i++) {
+            sum = multiplyFixed(sum, sum);
+        }
+        return fromFixed(sum).round(working).scaleByPowerOfTen(k);
+    }
+
+    /**
+     * Sine, or cosine when {@code cosine} is set, of an angle in degrees.
+     */
+    private BigDecimal sine(BigDecimal degrees, boolean cosine) {
+        BigDecimal angle = degrees.remainder(FULL_TURN);
+        if (angle.signum() < 0) {
+            angle = angle.add(FULL_TURN);
+        }
+        // sin(90q + t) cycles through sin t, cos t, -sin t, -cos t
+        BigDecimal[] division = angle.divideAndRemainder(NINETY);
+        int quadrant = (division[0].intValue() + (cosine ? 1 : 0)) % 4;
+        BigDecimal value = quadrant % 2 == 0 ? sinDegrees(division[1]) : cosDegrees(division[1]);
+        return (quadrant >= 2 ? value.negate() : value).round(context);
+    }
+
+    private BigDecimal tangent(BigDecimal degrees) throws Exception {
+        BigDecimal angle = degrees.remainder(HALF_TURN);
+        if (angle.signum() < 0) {
+            angle = angle.add(HALF_TURN);
+        }
+        BigDecimal[] division = angle.divideAndRemainder(NINETY);
+        BigDecimal sin = sinDegrees(division[1]);
+        BigDecimal cos = cosDegrees(division[1]);
+        if (division[0].signum() != 0) {
+            // tan(90 + t) = -cos t / sin t
+            BigDecimal swapped = sin;
+            sin = cos.negate();
+            cos = swapped;
+        }
+        if (cos.signum() == 0) {
+            throw new Exception("Divisão por zero");
+        }
+        return sin.divide(cos, context);
+    }
+
+    // Angles in [0, 90): above 45 the complementary series converges faster
+
+    private BigDecimal sinDegrees(BigDecimal degrees) {
+        if (degrees.compareTo(FORTY_FIVE) > 0) {
+            return cosSmall(NINETY.subtract(degrees));
+        }
+        return sinSmall(degrees);
+    }
+
+    private BigDecimal cosDegrees(BigDecimal degrees) {
+        if (degrees.compareTo(FORTY_FIVE) > 0) {
+            return sinSmall(NINETY.subtract(degrees));
+        }
+        return cosSmall(degrees);
+    }
+
+    /** Sine of an angle in [0, 45] degrees. */
+    private BigDecimal sinSmall(BigDecimal degrees) {
+        if (degrees.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        if (degrees.precision() - degrees.scale() < -precision / 4) {
+            // Too small for the fixed-point digits, and x - x^3/6 is
+            // already exact to the precision
+            BigDecimal x = degrees.multiply(fromFixed(radiansPerDegree()), working);
+            return x.subtract(x.pow(3, working).divide(BigDecimal.valueOf(6), working), working);
+        }
+        BigInteger x = multiplyFixed(toFixed(degrees), radiansPerDegree());
+        return fromFixed(series(x, multiplyFixed(x, x), 1)).round(working);
+    }
+
+    /** Cosine of an angle in [0, 45] degrees. */
+    private BigDecimal cosSmall(BigDecimal degrees) {
+        if (degrees.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        BigInteger x = multiplyFixed(toFixed(degrees), radiansPerDegree());
+        return fromFixed(series(fixedOne, multiplyFixed(x, x), 0)).round(working);
+    }
+
+    /**
+     * Sum of (-1)^k first x^(2k) / (2k + start)!, with {@code first} the
+     * k = 0 power: the sine series for start 1 and the cosine series for 0.
+     */
+    private BigInteger series(BigInteger first, BigInteger square, int start) {
+        BigInteger power = first;
+        BigInteger sum = first;
+        for (int n = start + 2; ; n += 2) {
+            power = multiplyFixed(power, square);
+            BigInteger term = multiplyFixed(power, inverseFactorial(n));
+            if (term.signum() == 0) {
+                return sum;
+            }
+            sum = (n - start) % 4 == 2 ? sum.subtract(term) : sum.add(term);
+        }
+    }
+
+    private BigInteger toFixed(BigDecimal value) {
+        BigInteger unscaled = value.unscaledValue();
+        int scale = value.scale();
+        if (scale <= 0) {
+            return unscaled.multiply(BigInteger.TEN.pow(-scale)).shiftLeft(bits);
+        }
+        return unscaled.shiftLeft(bits).divide(BigInteger.TEN.pow(scale));
+    }
+
+    private BigDecimal fromFixed(BigInteger value) {
+        return new BigDecimal(value.multiply(fixedScale).shiftRight(bits), fixedDigits);
+    }
+
+    private BigInteger multiplyFixed(BigInteger a, BigInteger b) {
+        return a.multiply(b).shiftRight(bits);
+    }
+
+    private BigInteger inverseFactorial(int n) {
+        BigInteger[] table = inverseFactorials;
+        if (n >= table.length) {
+            synchronized (this) {
+                table = inverseFactorials;
+                if (n >= table.length) {
+                    BigInteger[] grown = new BigInteger[Math.max(n + 1, table.length * 2)];
+                    System.arraycopy(table, 0, grown, 0, table.length);
+                    for (int i = table.length; i < grown.length; i++) {
+                        grown[i] = grown[i - 1].divide(BigInteger.valueOf(i));
+                    }
+                    inverseFactorials = grown;
+                    table = grown;
+                }
+            }
+        }
+        return table[n];
+    }
+
+    private BigInteger radiansPerDegree() {
+        BigInteger factor = radiansPerDegree;
+        if (factor == null) {
+            factor = toFixed(pi().divide(HALF_TURN, new MathContext(fixedDigits + 2)));
+            radiansPerDegree = factor;
+        }
+        return factor;
+    }
+
+    /** Pi by Machin's formula, 16 atan(1/5) - 4 atan(1/239). */
+    private BigDecimal pi() {
+        BigDecimal value = pi;
+        if (value == null) {
+            value = arctanInverse(5).multiply(BigDecimal.valueOf(16))
+                    .subtract(arctanInverse(239).multiply(BigDecimal.valueOf(4)));
+            pi = value;
+        }
+        return value;
+    }
+
+    /** ln(10) = 3 ln(2) + ln(5/4), each from the series 2 atanh(1/n). */
+    private BigDecimal ln10() {
+        BigDecimal value = ln10;
+        if (value == null) {
+            value = arctanhInverse(3).multiply(BigDecimal.valueOf(6))
+                    .add(arctanhInverse(9).multiply(TWO), working);
+            ln10 = value;
+        }
+        return value;
+    }
+
+    private BigDecimal arctanInverse(int n) {
+        return inverseSeries(n, true);
+    }
+
+    private BigDecimal arctanhInverse(int n) {
+        return inverseSeries(n, false);
+    }
+
+    /**
+     * Sum of (+-1)^k / ((2k+1) n^(2k+1)), alternating for atan, to the
+     * fixed-point digits.
+     */
+    private BigDecimal inverseSeries(int n, boolean alternating) {
+        MathContext working = new MathContext(fixedDigits + 2);
+        BigDecimal square = BigDecimal.valueOf((long) n * n);
+        BigDecimal power = BigDecimal.ONE.divide(BigDecimal.valueOf(n), working);
+        BigDecimal sum = power;
+        for (int k = 1; ; k++) {
+            power = power.divide(square, working);
+            BigDecimal term = power.divide(BigDecimal.valueOf(2L * k + 1), working);
+            sum = alternating && k % 2 == 1 ? sum.subtract(term, working) : sum.add(term, working);
+            if (term.precision() - term.scale() < sum.precision() - sum.scale() - working.getPrecision()) {
+                return sum;
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.testcalculadora.model;
+
+/**
+ * Converts decimal literals such as {@code "1628,89"} or {@code "0.05"} to
+ * doubles without building an intermediate string.
+ *
+ * <p>Literals are digits with at most one decimal point, written as {@code '.'}
+ * or {@code ','}; whitespace between the characters is skipped. The result is
+ * always the double {@link Double#parseDouble(String)} returns for the same
+ * text with {@code ','} replaced by {@code '.'}.
+ */
+public final class DecimalParser {
+
+    // Largest significand every double represents exactly
+    private static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+
+    // Powers of ten that are exact doubles
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private DecimalParser() {
+    }
+
+    /**
+     * Parses the characters of {@code source} between {@code start} and
+     * {@code end}.
+     *
+     * @throws NumberFormatException with the same message as
+     *         {@link Double#parseDouble(String)} if the text is not a literal
+     */
+    public static double parse(CharSequence source, int start, int end) {
+        long significand = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean anyDigit = false;
+        boolean point = false;
+
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c >= '0' && c <= '9') {
+                // Leading zeros do not count towards the long's 18 safe digits
+                if (significand != 0 || c != '0') {
+                    if (++significantDigits > 18) {
+                        return parseSlow(source, start, end);
+                    }
+                    significand = significand * 10 + (c - '0');
+                }
+                anyDigit = true;
+                if (point) {
+                    fractionDigits++;
+                }
+            } else if ((c == '.' || c == ',') && !point) {
+                point = true;
+            } else if (!ExpressionCache.isWhitespace(c)) {
+                return parseSlow(source, start, end);
+            }
+        }
+
+        // Clinger's fast path: both operands are exact, so the single
+        // rounding of the division is the correctly rounded result
+        if (anyDigit && significand <= MAX_EXACT_SIGNIFICAND && fractionDigits < POWERS_OF_TEN.length) {
+            return significand / POWERS_OF_TEN[fractionDigits];
+        }
+        return parseSlow(source, start, end);
+    }
+
+    private static double parseSlow(CharSequence source, int start, int end) {
+        char[] literal = new char[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == ',') {
+                literal[length++] = '.';
+            } else if (!ExpressionCache.isWhitespace(c)) {
+                literal[length++] = c;
+            }
+        }
+        return Double.parseDouble(new String(literal, 0, length));
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.testcalculadora.model;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Builds the tree of the derivative of an expression with respect to one
+ * variable, by the chain rule applied bottom-up. The derivative tree reuses
+ * the nodes of the original, so {@link CommonSubexpressions} evaluates
+ * values such as {@code cos(x)} in {@code sin(x)^2} once.
+ *
+ * <p>Trigonometric functions take degrees, so their derivatives carry a
+ * factor of pi/180. A power whose exponent depends on the variable is
+ * differentiated through {@code ln} of its base, which must be positive.
+ */
+final class Derivatives extends ExpressionNode.Transform {
+
+    static final double RADIANS_PER_DEGREE = Math.PI / 180;
+
+    private static final ExpressionNode ONE = new ExpressionNode.Constant(1);
+
+    private final int slot;
+    // Derivative of each visited node; a missing entry means zero
+    private final Map<ExpressionNode, ExpressionNode> derivatives = new IdentityHashMap<>();
+
+    private Derivatives(int slot) {
+        this.slot = slot;
+    }
+
+    /**
+     * The derivative of {@code root} with respect to the variable in
+     * {@code slot}. Leaves the result unoptimized.
+     */
+    static ExpressionNode differentiate(ExpressionNode root, int slot) {
+        Derivatives pass = new Derivatives(slot);
+        pass.apply(root);
+        ExpressionNode derivative = pass.derivatives.get(root);
+        return derivative == null ? new ExpressionNode.Constant(0) : derivative;
+    }
+
+    @Override
+    ExpressionNode combine(ExpressionNode node, ExpressionNode first, ExpressionNode second) {
+        ExpressionNode derivative = derivative(node);
+        if (derivative != null) {
+            derivatives.put(node, derivative);
+        }
+        return node;
+    }
+
+    private ExpressionNode derivative(ExpressionNode node) {
+        if (node instanceof ExpressionNode.Variable) {
+            return ((ExpressionNode.Variable) node).slot == slot ? ONE : null;
+        }
+        if (node instanceof ExpressionNode.Negate) {
+            ExpressionNode operand = derivatives.get(((ExpressionNode.Negate) node).operand);
+            return operand == null ? null : new ExpressionNode.Negate(operand);
+        }
+        if (node instanceof ExpressionNode.Binary) {
+            return binary((ExpressionNode.Binary) node);
+        }
+        if (node instanceof ExpressionNode.Power) {
+            ExpressionNode.Power power = (ExpressionNode.Power) node;
+            return power(node, power.base, power.exponent);
+        }
+        if (node instanceof ExpressionNode.IntegerPower) {
+            ExpressionNode.IntegerPower power = (ExpressionNode.IntegerPower) node;
+            // n u^(n-1) u'
+            ExpressionNode base = derivatives.get(power.base);
+            if (base == null) {
+                return null;
+            }
+            int exponent = power.exponent;
+            ExpressionNode lower = exponent == 2 ? power.base : new ExpressionNode.IntegerPower(power.base, exponent - 1);
+            return times(times(constant(exponent), lower), base);
+        }
+        if (node instanceof ExpressionNode.Function) {
+            return function((ExpressionNode.Function) node);
+        }
+        // Constants
+        return null;
+    }
+
+    private ExpressionNode binary(ExpressionNode.Binary node) {
+        ExpressionNode left = derivatives.get(node.left);
+        ExpressionNode right = derivatives.get(node.right);
+        switch (node.operator) {
+            case '+':
+                return plus(left, right);
+            case '-':
+                if (right == null) {
+                    return left;
+                }
+                return left == null ? new ExpressionNode.Negate(right)
+                        : new ExpressionNode.Subtract(left, right);
+            case '*':
+                return plus(times(left, node.right), times(node.left, right));
+            default:
+                // (u' - (u/v) v') / v, reusing the quotient itself
+                if (right == null) {
+                    return left == null ? null : new ExpressionNode.Divide(left, node.right);
+                }
+                ExpressionNode scaled = times(node, right);
+                ExpressionNode numerator = left == null ? new ExpressionNode.Negate(scaled)
+                        : new ExpressionNode.Subtract(left, scaled);
+                return new ExpressionNode.Divide(numerator, node.right);
+        }
+    }
+
+    private ExpressionNode power(ExpressionNode node, ExpressionNode base, ExpressionNode exponent) {
+        ExpressionNode baseDerivative = derivatives.get(base);
+        ExpressionNode exponentDerivative = derivatives.get(exponent);
+        // v u^(v-1) u' + u^v ln(u) v'
+        ExpressionNode fromBase = null;
+        if (baseDerivative != null) {
+            ExpressionNode lowered = exponent instanceof ExpressionNode.Constant
+                    ? constant(((ExpressionNode.Constant) exponent).value - 1)
+                    : new ExpressionNode.Subtract(exponent, ONE);
+            fromBase = times(times(exponent, new ExpressionNode.Power(base, lowered)), baseDerivative);
+        }
+        ExpressionNode fromExponent = null;
+        if (exponentDerivative != null) {
+            ExpressionNode log = new ExpressionNode.Function(MathFunction.LN, base);
+            fromExponent = times(times(node, log), exponentDerivative);
+        }
+        return plus(fromBase, fromExponent);
+    }
+
+    private ExpressionNode function(ExpressionNode.Function node) {
+        ExpressionNode inner = derivatives.get(node.argument);
+        if (inner == null) {
+            return null;
+        }
+        ExpressionNode argument = node.argument;
+        ExpressionNode outer;
+        switch (node.function) {
+            case SIN:
+                outer = times(constant(RADIANS_PER_DEGREE), new ExpressionNode.Function(MathFunction.COS, argument));
+                break;
+            case COS:
+                outer = new ExpressionNode.Negate(times(constant(RADIANS_PER_DEGREE),
+                        new ExpressionNode.Function(MathFunction.SIN, argument)));
+                break;
+            case TAN:
+                outer = new ExpressionNode.Divide(constant(RADIANS_PER_DEGREE), new ExpressionNode.IntegerPower(
+                        new ExpressionNode.Function(MathFunction.COS, argument), 2));
+                break;
+            case SQRT:
+                // Reuses the root already computed for the value
+                return new ExpressionNode.Divide(inner, times(constant(2), node));
+            case LOG:
+                return new ExpressionNode.Divide(inner, times(argument, constant(Math.log(10))));
+            default:
+                return new ExpressionNode.Divide(inner, argument);
+        }
+        return times(outer, inner);
+    }
+
+    private static ExpressionNode constant(double value) {
+        return new ExpressionNode.Constant(value);
+    }
+
+    // Sum and product where null stands for zero
+
+    private static ExpressionNode plus(ExpressionNode a, ExpressionNode b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : new ExpressionNode.Add(a, b);
+    }
+
+    private static ExpressionNode times(ExpressionNode a, ExpressionNode b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        return new ExpressionNode.Multiply(a, b);
+    }
+}
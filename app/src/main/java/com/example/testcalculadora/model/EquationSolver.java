@@ -0,0 +1,326 @@
+package com.example.testcalculadora.model;
+
+/**
+ * Solves {@code f(x) = target} for one variable of a compiled expression,
+ * created by {@link ExpressionParser#compileSolver(String, String, String...)}.
+ * The expression is parsed once; each iteration is one evaluation and
+ * allocates nothing, so a solve costs a few dozen evaluations at most.
+ *
+ * <p>Both methods need a bracket: bounds where {@code f - target} has
+ * opposite signs, so a root is guaranteed between them and every step
+ * stays inside. {@link #solveBrent} needs only values of {@code f};
+ * {@link #solveNewton} also uses the derivative, falling back to bisection
+ * whenever a Newton step would leave the bracket or converge slowly.
+ *
+ * <p>Instances are immutable and safe to share between threads.
+ */
+public final class EquationSolver {
+
+    public static final double DEFAULT_TOLERANCE = 1e-12;
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+    private static final double EPSILON = Math.ulp(1.0);
+
+    private final CompiledExpression function;
+    // Null when only secant slopes are available
+    private final CompiledExpression derivative;
+    private final int slot;
+    private final double tolerance;
+    private final int maxIterations;
+    private final ThreadLocal<double[]> frames;
+
+    EquationSolver(CompiledExpression function, CompiledExpression derivative, int slot) {
+        this(function, derivative, slot, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    private EquationSolver(CompiledExpression function, CompiledExpression derivative, int slot,
+                           double tolerance, int maxIterations) {
+        this.function = function;
+        this.derivative = derivative;
+        this.slot = slot;
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+        final int variableCount = function.getVariableCount();
+        this.frames = new ThreadLocal<double[]>() {
+            @Override
+            protected double[] initialValue() {
+                return new double[variableCount];
+            }
+        };
+    }
+
+    /**
+     * A solver for an expression already compiled with {@code unknown} among
+     * its variables. Without a derivative, {@link #solveNewton} takes its
+     * slopes from the last two points, as in the secant method.
+     */
+    public static EquationSolver of(CompiledExpression function, String unknown) {
+        int slot = function.indexOfVariable(unknown);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Variável não declarada: " + unknown);
+        }
+        return new EquationSolver(function, null, slot);
+    }
+
+    /**
+     * A solver that stops once the root is known to within
+     * {@code tolerance} plus a few ulps of its magnitude.
+     */
+    public EquationSolver withTolerance(double tolerance) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("Tolerância inválida: " + tolerance);
+        }
+        return new EquationSolver(function, derivative, slot, tolerance, maxIterations);
+    }
+
+    public EquationSolver withMaxIterations(int maxIterations) {
+        if (maxIterations <= 0) {
+            throw new IllegalArgumentException("Número de iterações inválido: " + maxIterations);
+        }
+        return new EquationSolver(function, derivative, slot, tolerance, maxIterations);
+    }
+
+    /** Whether {@link #solveNewton} uses an exact derivative rather than secant slopes. */
+    public boolean hasDerivative() {
+        return derivative != null;
+    }
+
+    /**
+     * Brent's method: inverse quadratic interpolation and secant steps,
+     * with bisection whenever they stop shrinking the bracket fast enough.
+     * Converges superlinearly on smooth functions and never slower than
+     * bisection.
+     *
+     * @param bindings values of the other variables; the unknown's slot is ignored
+     */
+    public Solution solveBrent(double[] bindings, double lower, double upper, double target) throws Exception {
+        long start = System.nanoTime();
+        double[] frame = frame(bindings);
+        Solution solution = new Solution();
+        double a = lower;
+        double b = upper;
+        double fa = value(frame, a, target, solution);
+        double fb = value(frame, b, target, solution);
+        if (fa == 0 || fb == 0) {
+            return solution.finish(fa == 0 ? a : b, 0, true, start);
+        }
+        checkBracket(fa, fb);
+
+        double c = a;
+        double fc = fa;
+        double d = b - a;
+        double e = d;
+        while (solution.iterations < maxIterations) {
+            solution.iterations++;
+            if ((fb > 0) == (fc > 0)) {
+                // Keep the root between b and c
+                c = a;
+                fc = fa;
+                d = b - a;
+                e = d;
+            }
+            if (Math.abs(fc) < Math.abs(fb)) {
+                a = b;
+                b = c;
+                c = a;
+                fa = fb;
+                fb = fc;
+                fc = fa;
+            }
+            double step = stepTolerance(b);
+            double half = (c - b) / 2;
+            if (Math.abs(half) <= step || fb == 0) {
+                return solution.finish(b, fb, true, start);
+            }
+            if (Math.abs(e) >= step && Math.abs(fa) > Math.abs(fb)) {
+                double s = fb / fa;
+                double p;
+                double q;
+                if (a == c) {
+                    p = 2 * half * s;
+                    q = 1 - s;
+                } else {
+                    double r = fb / fc;
+                    q = fa / fc;
+                    p = s * (2 * half * q * (q - r) - (b - a) * (r - 1));
+                    q = (q - 1) * (r - 1) * (s - 1);
+                }
+                if (p > 0) {
+                    q = -q;
+                } else {
+                    p = -p;
+                }
+                if (2 * p < Math.min(3 * half * q - Math.abs(step * q), Math.abs(e * q))) {
+                    e = d;
+                    d = p / q;
+                } else {
+                    d = half;
+                    e = d;
+                }
+            } else {
+                d = half;
+                e = d;
+            }
+            a = b;
+            fa = fb;
+            b += Math.abs(d) > step ? d : Math.copySign(step, half);
+            fb = value(frame, b, target, solution);
+        }
+        return solution.finish(b, fb, false, start);
+    }
+
+    public Solution solveNewton(double[] bindings, double lower, double upper, double target) throws Exception {
+        return solveNewton(bindings, lower, upper, (lower + upper) / 2, target);
+    }
+
+    /**
+     * Newton's method from {@code guess}, safeguarded by the bracket: a
+     * step that would leave it, or that would not at least halve the
+     * previous one, is replaced by bisection. Without a derivative the slope
+     * comes from the last two points.
+     */
+    public Solution solveNewton(double[] bindings, double lower, double upper, double guess, double target)
+            throws Exception {
+        long start = System.nanoTime();
+        double[] frame = frame(bindings);
+        Solution solution = new Solution();
+        double fLower = value(frame, lower, target, solution);
+        double fUpper = value(frame, upper, target, solution);
+        if (fLower == 0 || fUpper == 0) {
+            return solution.finish(fLower == 0 ? lower : upper, 0, true, start);
+        }
+        checkBracket(fLower, fUpper);
+
+        // f is negative at below and positive at above
+        double below = fLower < 0 ? lower : upper;
+        double above = fLower < 0 ? upper : lower;
+        double x = guess >= Math.min(lower, upper) && guess <= Math.max(lower, upper) ? guess : (lower + upper) / 2;
+        double previousStep = Math.abs(upper - lower);
+        double step = previousStep;
+        double previousX = lower;
+        double previousF = fLower;
+        double f = value(frame, x, target, solution);
+        while (solution.iterations < maxIterations) {
+            solution.iterations++;
+            if (f == 0) {
+                return solution.finish(x, 0, true, start);
+            }
+            if (f < 0) {
+                below = x;
+            } else {
+                above = x;
+            }
+            double slope = slope(frame, x, f, previousX, previousF);
+            previousX = x;
+            previousF = f;
+            // Bisect when the Newton point is outside the bracket (or the
+            // slope is unusable) or the step is not shrinking quickly
+            boolean inside = ((x - above) * slope - f) * ((x - below) * slope - f) < 0;
+            if (!inside || !(Math.abs(2 * f) <= Math.abs(previousStep * slope))) {
+                previousStep = step;
+                step = (above - below) / 2;
+                x = below + step;
+            } else {
+                previousStep = step;
+                step = f / slope;
+                x -= step;
+            }
+            if (Math.abs(step) <= stepTolerance(x) || Math.abs(above - below) <= stepTolerance(x)) {
+                f = value(frame, x, target, solution);
+                return solution.finish(x, f, true, start);
+            }
+            f = value(frame, x, target, solution);
+        }
+        return solution.finish(x, f, false, start);
+    }
+
+    private double[] frame(double[] bindings) {
+        double[] frame = frames.get();
+        int count = frame.length;
+        if (bindings.length < count) {
+            throw new IllegalArgumentException("Esperados " + count
+                    + " valores de variáveis, recebidos " + bindings.length);
+        }
+        System.arraycopy(bindings, 0, frame, 0, count);
+        return frame;
+    }
+
+    private double value(double[] frame, double x, double target, Solution solution) throws Exception {
+        frame[slot] = x;
+        solution.evaluations++;
+        return function.evaluate(frame) - target;
+    }
+
+    private double slope(double[] frame, double x, double f, double previousX, double previousF) throws Exception {
+        if (derivative != null) {
+            frame[slot] = x;
+            return derivative.evaluate(frame);
+        }
+        return (f - previousF) / (x - previousX);
+    }
+
+    private double stepTolerance(double x) {
+        return 2 * EPSILON * Math.abs(x) + tolerance / 2;
+    }
+
+    private static void checkBracket(double fLower, double fUpper) throws Exception {
+        if (Double.isNaN(fLower) || Double.isNaN(fUpper) || (fLower > 0) == (fUpper > 0)) {
+            throw new Exception("Intervalo sem mudança de sinal");
+        }
+    }
+
+    /**
+     * The outcome of one solve: the root, how far {@code f} still is from
+     * the target there, and the work it took.
+     */
+    public static final class Solution {
+        private double root;
+        private double residual;
+        private boolean converged;
+        int iterations;
+        int evaluations;
+        private long elapsedNanos;
+
+        Solution finish(double root, double residual, boolean converged, long start) {
+            this.root = root;
+            this.residual = residual;
+            this.converged = converged;
+            this.elapsedNanos = System.nanoTime() - start;
+            return this;
+        }
+
+        public double getRoot() {
+            return root;
+        }
+
+        /** {@code f(root) - target}. */
+        public double getResidual() {
+            return residual;
+        }
+
+        /** False when the iteration limit was reached first. */
+        public boolean isConverged() {
+            return converged;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        /** Evaluations of the expression, not counting the derivative. */
+        public int getEvaluations() {
+            return evaluations;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Solution{root=" + root + ", residual=" + residual + ", converged=" + converged
+                    + ", iterations=" + iterations + ", evaluations=" + evaluations
+                    + ", elapsedNanos=" + elapsedNanos + "}";
+        }
+    }
+}
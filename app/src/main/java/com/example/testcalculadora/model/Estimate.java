@@ -0,0 +1,50 @@
+package com.example.testcalculadora.model;
+
+/**
+ * The result of a numerical integral or sum, with an estimate of its
+ * absolute error and the number of evaluations it took.
+ */
+public final class Estimate {
+
+    private final double value;
+    private final double errorEstimate;
+    private final long evaluations;
+    private final boolean converged;
+
+    Estimate(double value, double errorEstimate, long evaluations, boolean converged) {
+        this.value = value;
+        this.errorEstimate = errorEstimate;
+        this.evaluations = evaluations;
+        this.converged = converged;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public double getErrorEstimate() {
+        return errorEstimate;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * False when the evaluation budget ran out, or the integrand could not
+     * be refined further, before the error estimate met the tolerance.
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    Estimate negate() {
+        return new Estimate(-value, errorEstimate, evaluations, converged);
+    }
+
+    @Override
+    public String toString() {
+        return "Estimate{value=" + value + ", errorEstimate=" + errorEstimate
+                + ", evaluations=" + evaluations + ", converged=" + converged + "}";
+    }
+}
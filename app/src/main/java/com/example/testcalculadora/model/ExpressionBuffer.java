@@ -0,0 +1,163 @@
+package com.example.testcalculadora.model;
+
+/**
+ * Editable text of an expression, stored as a gap buffer: the characters
+ * before and after the edit point sit at the two ends of one array, with the
+ * free space between them. Inserting or deleting at the edit point is O(1)
+ * amortized; moving the edit point costs the distance moved. The calculator
+ * only edits at the end, so every keystroke is O(1).
+ *
+ * <p>The buffer is itself the {@link CharSequence} shown on screen, so
+ * displaying it needs no intermediate String. Not thread-safe.
+ */
+public final class ExpressionBuffer implements CharSequence {
+
+    private char[] chars;
+    private int gapStart;
+    private int gapEnd;
+
+    public ExpressionBuffer() {
+        this(32);
+    }
+
+    public ExpressionBuffer(int capacity) {
+        chars = new char[Math.max(capacity, 1)];
+        gapStart = 0;
+        gapEnd = chars.length;
+    }
+
+    @Override
+    public int length() {
+        return chars.length - (gapEnd - gapStart);
+    }
+
+    public boolean isEmpty() {
+        return gapStart == 0 && gapEnd == chars.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("Índice inválido: " + index);
+        }
+        return index < gapStart ? chars[index] : chars[index + gapEnd - gapStart];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        checkRange(start, end);
+        char[] copy = new char[end - start];
+        copyTo(start, end, copy);
+        return new String(copy);
+    }
+
+    @Override
+    public String toString() {
+        char[] copy = new char[length()];
+        copyTo(0, copy.length, copy);
+        return new String(copy);
+    }
+
+    public void append(CharSequence text) {
+        insert(length(), text);
+    }
+
+    public void append(char c) {
+        moveGap(length());
+        ensureGap(1);
+        chars[gapStart++] = c;
+    }
+
+    public void insert(int position, CharSequence text) {
+        checkRange(position, position);
+        int count = text.length();
+        moveGap(position);
+        ensureGap(count);
+        for (int i = 0; i < count; i++) {
+            chars[gapStart++] = text.charAt(i);
+        }
+    }
+
+    /** Removes the characters from {@code start} (inclusive) to {@code end} (exclusive). */
+    public void delete(int start, int end) {
+        checkRange(start, end);
+        moveGap(end);
+        gapStart = start;
+    }
+
+    /** Shortens the text to its first {@code length} characters. */
+    public void setLength(int length) {
+        delete(length, length());
+    }
+
+    public void clear() {
+        gapStart = 0;
+        gapEnd = chars.length;
+    }
+
+    /** Replaces the whole text. */
+    public void set(CharSequence text) {
+        if (text == this) {
+            return;
+        }
+        clear();
+        append(text);
+    }
+
+    public boolean startsWith(CharSequence prefix) {
+        return prefix.length() <= length() && regionMatches(0, prefix);
+    }
+
+    public boolean endsWith(CharSequence suffix) {
+        return suffix.length() <= length() && regionMatches(length() - suffix.length(), suffix);
+    }
+
+    private boolean regionMatches(int offset, CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (charAt(offset + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void moveGap(int position) {
+        if (position < gapStart) {
+            int count = gapStart - position;
+            System.arraycopy(chars, position, chars, gapEnd - count, count);
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (position > gapStart) {
+            int count = position - gapStart;
+            System.arraycopy(chars, gapEnd, chars, gapStart, count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    private void ensureGap(int count) {
+        if (gapEnd - gapStart >= count) {
+            return;
+        }
+        int length = length();
+        int after = chars.length - gapEnd;
+        char[] grown = new char[Math.max(chars.length * 2, length + count)];
+        System.arraycopy(chars, 0, grown, 0, gapStart);
+        System.arraycopy(chars, gapEnd, grown, grown.length - after, after);
+        gapEnd = grown.length - after;
+        chars = grown;
+    }
+
+    private void copyTo(int start, int end, char[] destination) {
+        // The part before the gap, then the part after it
+        int split = Math.min(Math.max(gapStart, start), end);
+        System.arraycopy(chars, start, destination, 0, split - start);
+        System.arraycopy(chars, split + gapEnd - gapStart, destination, split - start, end - split);
+    }
+
+    private void checkRange(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("Intervalo inválido: " + start + ".." + end);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.testcalculadora.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least-recently-used cache of compiled expressions, for services
+ * that see the same formulas over and over. Pass one to
+ * {@link ExpressionParser#ExpressionParser(ExpressionCache)}.
+ *
+ * <p>Entries are keyed on the normalized source text (commas turned into
+ * dots, whitespace removed) plus the declared variable names, so {@code "1,5 + x"}
+ * and {@code "1.5+x"} share an entry. All methods are thread-safe. The
+ * counters are cumulative and meant for sizing the cache in production.
+ */
+public final class ExpressionCache {
+
+    private final int maximumSize;
+    private final LinkedHashMap<Key, CompiledExpression> entries;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public ExpressionCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Tamanho máximo deve ser positivo: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<Key, CompiledExpression>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompiledExpression> eldest) {
+                if (size() > ExpressionCache.this.maximumSize) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached expression for the normalized text and variables, or
+     * null after counting a miss.
+     */
+    synchronized CompiledExpression get(String normalized, String[] variables) {
+        CompiledExpression compiled = entries.get(new Key(normalized, variables));
+        if (compiled != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return compiled;
+    }
+
+    synchronized void put(String normalized, String[] variables, CompiledExpression compiled) {
+        entries.put(new Key(normalized, variables), compiled);
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Applies the same normalization as {@link ExpressionParser}: commas
+     * become dots and whitespace is dropped. Returns the input itself when
+     * nothing changes.
+     */
+    static String normalize(String expression) {
+        int length = expression.length();
+        int i = 0;
+        while (i < length && !needsNormalization(expression.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return expression;
+        }
+
+        StringBuilder normalized = new StringBuilder(length);
+        normalized.append(expression, 0, i);
+        for (; i < length; i++) {
+            char c = expression.charAt(i);
+            if (c == ',') {
+                normalized.append('.');
+            } else if (!isWhitespace(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static boolean needsNormalization(char c) {
+        return c == ',' || isWhitespace(c);
+    }
+
+    // Same set as the regex class \s
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static final class Key {
+        private final String expression;
+        private final String[] variables;
+        private final int hash;
+
+        Key(String expression, String[] variables) {
+            this.expression = expression;
+            this.variables = variables;
+            this.hash = 31 * expression.hashCode() + Arrays.hashCode(variables);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash
+                    && expression.equals(key.expression)
+                    && Arrays.equals(variables, key.variables);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
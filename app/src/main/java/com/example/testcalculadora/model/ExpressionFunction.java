@@ -0,0 +1,15 @@
+package com.example.testcalculadora.model;
+
+/**
+ * A compiled formula of N variables, as produced by
+ * {@link BytecodeCompiler#compile(CompiledExpression)}.
+ */
+public interface ExpressionFunction {
+
+    /**
+     * Evaluates the formula with {@code bindings[i]} as the value of the i-th
+     * variable. The array is only read and must hold at least one value per
+     * variable.
+     */
+    double evaluate(double[] bindings) throws Exception;
+}
@@ -0,0 +1,153 @@
+package com.example.testcalculadora.model;
+
+/**
+ * Splits an expression into tokens in a single pass over the source.
+ *
+ * <p>Tokens are kept in parallel primitive arrays: {@link #kind(int)} is either
+ * {@link #NUMBER}, {@link #IDENTIFIER}, {@link #MALFORMED_NUMBER}, {@link #END}
+ * or the character itself for anything else ({@code '+'}, {@code '('}, ...).
+ * Whitespace is skipped everywhere, including inside numbers and names, and
+ * {@code ','} is read as a decimal point, matching what
+ * {@link ExpressionCache#normalize(String)} does to the text.
+ */
+final class ExpressionLexer {
+
+    static final int NUMBER = -1;
+    static final int IDENTIFIER = -2;
+    static final int END = -3;
+    static final int MALFORMED_NUMBER = -4;
+
+    private final int[] kinds;
+    private final double[] values;
+    private String[] texts;
+    private int count;
+
+    private ExpressionLexer(int capacity) {
+        kinds = new int[capacity];
+        values = new double[capacity];
+    }
+
+    static ExpressionLexer tokenize(CharSequence source) {
+        return tokenize(source, false);
+    }
+
+    /**
+     * With {@code keepLiterals}, {@link #text(int)} also returns the digits
+     * of each number, with '.' as the decimal point and no whitespace.
+     */
+    static ExpressionLexer tokenize(CharSequence source, boolean keepLiterals) {
+        int length = source.length();
+        ExpressionLexer lexer = new ExpressionLexer(length + 1);
+
+        int i = skipWhitespace(source, 0);
+        while (i < length) {
+            char c = source.charAt(i);
+            if (isNumberPart(c)) {
+                int start = i;
+                int end;
+                do {
+                    end = i + 1;
+                    i = skipWhitespace(source, end);
+                } while (i < length && isNumberPart(source.charAt(i)));
+                try {
+                    double value = DecimalParser.parse(source, start, end);
+                    if (keepLiterals) {
+                        lexer.addText(NUMBER, literal(source, start, end));
+                        lexer.values[lexer.count - 1] = value;
+                    } else {
+                        lexer.add(NUMBER, value);
+                    }
+                } catch (NumberFormatException e) {
+                    // Reported only if the parser reaches it, trailing text is ignored
+                    lexer.addText(MALFORMED_NUMBER, source.subSequence(start, end).toString());
+                }
+            } else if (Character.isLetter(c)) {
+                int start = i;
+                int end;
+                boolean spaced = false;
+                while (true) {
+                    end = i + 1;
+                    i = skipWhitespace(source, end);
+                    if (i == length || !Character.isLetter(source.charAt(i))) {
+                        break;
+                    }
+                    spaced |= i != end;
+                }
+                lexer.addText(IDENTIFIER, spaced
+                        ? letters(source, start, end)
+                        : source.subSequence(start, end).toString());
+            } else {
+                lexer.add(c, 0);
+                i = skipWhitespace(source, i + 1);
+            }
+        }
+        lexer.add(END, 0);
+        return lexer;
+    }
+
+    int kind(int index) {
+        return kinds[index];
+    }
+
+    double value(int index) {
+        return values[index];
+    }
+
+    /**
+     * Name of an identifier, the source text of a malformed number, or the
+     * literal of a number if kept.
+     */
+    String text(int index) {
+        return texts[index];
+    }
+
+    private void add(int kind, double value) {
+        kinds[count] = kind;
+        values[count] = value;
+        count++;
+    }
+
+    private void addText(int kind, String text) {
+        if (texts == null) {
+            texts = new String[kinds.length];
+        }
+        texts[count] = text;
+        add(kind, 0);
+    }
+
+    private static boolean isNumberPart(char c) {
+        return Character.isDigit(c) || c == '.' || c == ',';
+    }
+
+    private static int skipWhitespace(CharSequence source, int i) {
+        while (i < source.length() && ExpressionCache.isWhitespace(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String literal(CharSequence source, int start, int end) {
+        StringBuilder literal = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c == ',') {
+                literal.append('.');
+            } else if (!ExpressionCache.isWhitespace(c)) {
+                literal.append(c);
+            }
+        }
+        return literal.toString();
+    }
+
+    // A name broken up by whitespace, such as "s in"
+    private static String letters(CharSequence source, int start, int end) {
+        StringBuilder name = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (!ExpressionCache.isWhitespace(c)) {
+                name.append(c);
+            }
+        }
+        return name.toString();
+    }
+}
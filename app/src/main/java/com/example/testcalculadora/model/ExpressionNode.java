@@ -0,0 +1,538 @@
+package com.example.testcalculadora.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Immutable syntax tree produced by {@link ExpressionParser#compile(String)}.
+ * Nodes hold no mutable state, so a tree can be shared between threads and
+ * evaluated any number of times.
+ */
+abstract class ExpressionNode {
+
+    abstract double evaluate(double[] bindings) throws Exception;
+
+    /**
+     * Evaluates {@code length} consecutive rows starting at {@code row}, reading
+     * variable i from {@code columns[i]} and writing into {@code out} from
+     * {@code outOffset}. Each node runs one tight loop over the whole block.
+     */
+    abstract void evaluateBlock(double[][] columns, int row, int length,
+                                double[] out, int outOffset, BatchEvaluator.Scratch scratch) throws Exception;
+
+    /** Number of operands: 0 for leaves, otherwise 1 or 2. */
+    int childCount() {
+        return 0;
+    }
+
+    ExpressionNode child(int index) {
+        throw new IndexOutOfBoundsException("Nó sem operando " + index);
+    }
+
+    /**
+     * Returns a node of the same kind over new operands; {@code second} is
+     * ignored by unary nodes and leaves return themselves.
+     */
+    ExpressionNode withChildren(ExpressionNode first, ExpressionNode second) {
+        return this;
+    }
+
+    /**
+     * Number of nodes on the longest path from {@code root} to a leaf.
+     * Computed with an explicit stack, so it works on trees of any depth.
+     */
+    static int depth(ExpressionNode root) {
+        ArrayDeque<ExpressionNode> nodes = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        nodes.push(root);
+        depths.push(1);
+        int max = 0;
+        while (!nodes.isEmpty()) {
+            ExpressionNode node = nodes.pop();
+            int depth = depths.pop();
+            max = Math.max(max, depth);
+            for (int i = 0; i < node.childCount(); i++) {
+                nodes.push(node.child(i));
+                depths.push(depth + 1);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * A bottom-up pass over a tree that uses explicit stacks instead of
+     * recursion, so it works on trees of any depth. Operands are visited left
+     * to right and each node is combined after its operands.
+     */
+    abstract static class Transform {
+
+        /**
+         * Result for {@code node} without visiting its operands, or null to
+         * visit them and call {@link #combine} as usual.
+         */
+        ExpressionNode replace(ExpressionNode node) {
+            return null;
+        }
+
+        /**
+         * Result for {@code node} given the results for its operands, which
+         * are null where the node has fewer.
+         */
+        abstract ExpressionNode combine(ExpressionNode node, ExpressionNode first, ExpressionNode second);
+
+        final ExpressionNode apply(ExpressionNode root) {
+            ArrayList<ExpressionNode> pending = new ArrayList<>();
+            ArrayList<Boolean> expanded = new ArrayList<>();
+            ArrayList<ExpressionNode> results = new ArrayList<>();
+            pending.add(root);
+            expanded.add(false);
+            while (!pending.isEmpty()) {
+                int top = pending.size() - 1;
+                ExpressionNode node = pending.get(top);
+                if (!expanded.get(top)) {
+                    ExpressionNode replacement = replace(node);
+                    if (replacement == null && node.childCount() > 0) {
+                        // Combine after the operands, which are pushed last to first
+                        expanded.set(top, true);
+                        for (int i = node.childCount() - 1; i >= 0; i--) {
+                            pending.add(node.child(i));
+                            expanded.add(false);
+                        }
+                        continue;
+                    }
+                    pending.remove(top);
+                    expanded.remove(top);
+                    results.add(replacement != null ? replacement : combine(node, null, null));
+                } else {
+                    pending.remove(top);
+                    expanded.remove(top);
+                    ExpressionNode second = node.childCount() > 1 ? results.remove(results.size() - 1) : null;
+                    ExpressionNode first = results.remove(results.size() - 1);
+                    results.add(combine(node, first, second));
+                }
+            }
+            return results.get(0);
+        }
+    }
+
+    static final class Constant extends ExpressionNode {
+        final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double evaluate(double[] bindings) {
+            return value;
+        }
+
+        @Override
+        void evaluateBlock(double[][] columns, int row, int length,
+                           double[] out, int outOffset, BatchEvaluator.Scratch scratch) {
+            Arrays.fill(out, outOffset, outOffset + length, value);
+        }
+    }
+
+    /**
+     * Reads a variable from the bindings array. The slot is resolved once at
+     * compile time, so evaluation is a plain array access.
+     */
+    static final class Variable extends ExpressionNode {
+        final int slot;
+        final String name;
+
+        Variable(int slot, String name) {
+            this.slot = slot;
+            this.name = name;
+        }
+
+        @Override
+        double evaluate(double[] bindings) {
+            return bindings[slot];
+        }
+
+        @Override
+        void evaluateBlock(double[][] columns, int row, int length,
+                           double[] out, int outOffset, BatchEvaluator.Scratch scratch) {
+            System.arraycopy(columns[slot], row, out, outOffset, length);
+        }
+    }
+
+    /**
+     * Reads a subexpression that {@link CommonSubexpressions} hoisted out
+     * because it occurs more than once. The value is computed once per
+     * evaluation and stored in the frame after the variables.
+     */
+    static final class Local extends ExpressionNode {
+        final int slot;
+        final int index;
+
+        Local(int slot, int index) {
+            this.slot = slot;
+            this.index = index;
+        }
+
+        @Override
+        double evaluate(double[] bindings) {
+            return bindings[slot];
+        }
+
+        @Override
+        void evaluateBlock(double[][] columns, int row, int length,
+                           double[] out, int outOffset, BatchEvaluator.Scratch scratch) {
+            System.arraycopy(scratch.local(index), 0, out, outOffset, length);
+        }
+    }
+
+    static final class Negate extends ExpressionNode {
+        final ExpressionNode operand;
+
+        Negate(ExpressionNode operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        int childCount() {
+            return 1;
+        }
+
+        @Override
+        ExpressionNode child(int index) {
+            return operand;
+        }
+
+        @Override
+        ExpressionNode withChildren(ExpressionNode first, ExpressionNode second) {
+            return new Negate(first);
+        }
+
+        @Override
+        double evaluate(double[] bindings) throws Exception {
+            return -operand.evaluate(bindings);
+        }
+
+        @Override
+        void evaluateBlock(double[][] columns, int row, int length,
+                           double[] out, int outOffset, BatchEvaluator.Scratch scratch) throws Exception {
+            operand.evaluateBlock(columns, row, length, out, outOffset, scratch);
+            for (int i = outOffset, end = outOffset + length; i < end; i++) {
+                out[i] = -out[i];
+            }
+        }
+    }
+
+    /**
+     * Base class for the four arithmetic operators; {@link #operator} lets
+     * other passes tell them apart without instanceof chains.
+     */
+    abstract static class Binary extends ExpressionNode {
+        final char operator;
+        final ExpressionNode left;
+        final ExpressionNode right;
+
+        Binary(char operator, ExpressionNode left, ExpressionNode right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int childCount() {
+            return 2;
+        }
+
+        @Override
+        ExpressionNode child(int index) {
+            return index == 0 ? left : right;
+        }
+
+        @Override
+        ExpressionNode withChildren(ExpressionNode first, ExpressionNode second) {
+            return create(operator, first, second);
+        }
+
+        static Binary create(char operator, ExpressionNode left, ExpressionNode right) {
+            switch (operator) {
+                case '+':
+                    return new Add(left, right);
+                case '-':
+                    return new Subtract(left, right);
+                case '*':
+                    return new Multiply(left, right);
+                case '/':
+                    return new Divide(left, right);
+                default:
+                    throw new IllegalArgumentException("Operador desconhecido: " + operator);
+            }
+        }
+    }
+
+    static final class Add extends Binary {
+        Add(ExpressionNode left, ExpressionNode right) {
+            super('+', left, right);
+        }
+
+        @Override
+        double evaluate(double[] bindings) throws Exception {
+            return left.evaluate(bindings) + right.evaluate(bindings);
+        }
+
+        @Override
+        void evaluateBlock(double[][] columns, int row, int length,
+                           double[] out, int outOffset, BatchEvaluator.Scratch scratch) throws Exception {
+            left.evaluateBlock(columns, row, length, out, outOffset, scratch);
+            double[] operand = scratch.acquire();
+            try {
+                right.evaluateBlock(columns, row, length, operand, 0, scratch);
+                for (int i = 0; i < length; i++) {
+                    out[outOffset + i] += operand[i];
+                }
+            } finally {
+                scratch.release();
+            }
+        }
+    }
+
+    static final class Subtract extends Binary {
+        Subtract(ExpressionNode left, ExpressionNode right) {
+            super('-', left, right);
+        }
+
+        @Override
+        double evaluate(double[] bindings) throws Exception {
+            return left.evaluate(bindings) - right.evaluate(bindings);
+        }
+
+        @Override
+        void evaluateBlock(double[][] columns, int row, int length,
+                           double[] out, int outOffset, BatchEvaluator.Scratch scratch) throws Exception {
+            left.evaluateBlock(columns, row, length, out, outOffset, scratch);
+            double[] operand = scratch.acquire();
+            try {
+                right.evaluateBlock(columns, row, length, operand, 0, scratch);
+                for (int i = 0; i < length; i++) {
+                    out[outOffset + i] -= operand[i];
+                }
+            } finally {
+                scratch.release();
+            }
+        }
+    }
+
+    static final class Multiply extends Binary {
+        Multiply(ExpressionNode left, ExpressionNode right) {
+            super('*', left, right);
+        }
+
+        @Override
+        double evaluate(double[] bindings) throws Exception {
+            return left.evaluate(bindings) * right.evaluate(bindings);
+        }
+
+        @Override
+        void evaluateBlock(double[][] columns, int row, int length,
+                           double[] out, int outOffset, BatchEvaluator.Scratch scratch) throws Exception {
+            left.evaluateBlock(columns, row, length, out, outOffset, scratch);
+            double[] operand = scratch.acquire();
+            try {
+                right.evaluateBlock(columns, row, length, operand, 0, scratch);
+                for (int i = 0; i < length; i++) {
+                    out[outOffset + i] *= operand[i];
+                }
+            } finally {
+                scratch.release();
+            }
+        }
+    }
+
+    static final class Divide extends Binary {
+        Divide(ExpressionNode left, ExpressionNode right) {
+            super('/', left, right);
+        }
+
+        @Override
+        double evaluate(double[] bindings) throws Exception {
+            double dividend = left.evaluate(bindings);
+            double divisor = right.evaluate(bindings);
+            if (divisor == 0) {
+                throw new Exception("Divisão por zero");
+            }
+            return dividend / divisor;
+        }
+
+        @Override
+        void evaluateBlock(double[][] columns, int row, int length,
+                           double[] out, int outOffset, BatchEvaluator.Scratch scratch) throws Exception {
+            left.evaluateBlock(columns, row, length, out, outOffset, scratch);
+            double[] divisors = scratch.acquire();
+            try {
+                right.evaluateBlock(columns, row, length, divisors, 0, scratch);
+                for (int i = 0; i < length; i++) {
+                    if (divisors[i] == 0) {
+                        throw new Exception("Divisão por zero");
+                    }
+                }
+                for (int i = 0; i < length; i++) {
+                    out[outOffset + i] /= divisors[i];
+                }
+            } finally {
+                scratch.release();
+            }
+        }
+    }
+
+    static final class Power extends ExpressionNode {
+        final ExpressionNode base;
+        final ExpressionNode exponent;
+
+        Power(ExpressionNode base, ExpressionNode exponent) {
+            this.base = base;
+            this.exponent = exponent;
+        }
+
+        @Override
+        int childCount() {
+            return 2;
+        }
+
+        @Override
+        ExpressionNode child(int index) {
+            return index == 0 ? base : exponent;
+        }
+
+        @Override
+        ExpressionNode withChildren(ExpressionNode first, ExpressionNode second) {
+            return new Power(first, second);
+        }
+
+        @Override
+        double evaluate(double[] bindings) throws Exception {
+            double value = base.evaluate(bindings);
+            return Math.pow(value, exponent.evaluate(bindings));
+        }
+
+        @Override
+        void evaluateBlock(double[][] columns, int row, int length,
+                           double[] out, int outOffset, BatchEvaluator.Scratch scratch) throws Exception {
+            base.evaluateBlock(columns, row, length, out, outOffset, scratch);
+            double[] exponents = scratch.acquire();
+            try {
+                exponent.evaluateBlock(columns, row, length, exponents, 0, scratch);
+                for (int i = 0; i < length; i++) {
+                    out[outOffset + i] = Math.pow(out[outOffset + i], exponents[i]);
+                }
+            } finally {
+                scratch.release();
+            }
+        }
+    }
+
+    /**
+     * {@code base^exponent} for a small positive integer exponent, evaluated
+     * with multiplications instead of {@link Math#pow}. Produced by
+     * {@link ExpressionOptimizer}; the base is evaluated only once.
+     */
+    static final class IntegerPower extends ExpressionNode {
+        static final int MAX_EXPONENT = 4;
+
+        final ExpressionNode base;
+        final int exponent;
+
+        IntegerPower(ExpressionNode base, int exponent) {
+            this.base = base;
+            this.exponent = exponent;
+        }
+
+        @Override
+        int childCount() {
+            return 1;
+        }
+
+        @Override
+        ExpressionNode child(int index) {
+            return base;
+        }
+
+        @Override
+        ExpressionNode withChildren(ExpressionNode first, ExpressionNode second) {
+            return new IntegerPower(first, exponent);
+        }
+
+        static double pow(double value, int exponent) {
+            double square = value * value;
+            switch (exponent) {
+                case 2:
+                    return square;
+                case 3:
+                    return square * value;
+                default:
+                    return square * square;
+            }
+        }
+
+        @Override
+        double evaluate(double[] bindings) throws Exception {
+            return pow(base.evaluate(bindings), exponent);
+        }
+
+        @Override
+        void evaluateBlock(double[][] columns, int row, int length,
+                           double[] out, int outOffset, BatchEvaluator.Scratch scratch) throws Exception {
+            base.evaluateBlock(columns, row, length, out, outOffset, scratch);
+            for (int i = outOffset, end = outOffset + length; i < end; i++) {
+                out[i] = pow(out[i], exponent);
+            }
+        }
+    }
+
+    static final class Function extends ExpressionNode {
+        final MathFunction function;
+        final ExpressionNode argument;
+        // Whether results go through the thread's FunctionMemo
+        final boolean memoized;
+
+        Function(MathFunction function, ExpressionNode argument) {
+            this(function, argument, false);
+        }
+
+        Function(MathFunction function, ExpressionNode argument, boolean memoized) {
+            this.function = function;
+            this.argument = argument;
+            this.memoized = memoized;
+        }
+
+        @Override
+        int childCount() {
+            return 1;
+        }
+
+        @Override
+        ExpressionNode child(int index) {
+            return argument;
+        }
+
+        @Override
+        ExpressionNode withChildren(ExpressionNode first, ExpressionNode second) {
+            return new Function(function, first, memoized);
+        }
+
+        @Override
+        double evaluate(double[] bindings) throws Exception {
+            double value = argument.evaluate(bindings);
+            return memoized ? FunctionMemo.current().apply(function, value) : function.apply(value);
+        }
+
+        @Override
+        void evaluateBlock(double[][] columns, int row, int length,
+                           double[] out, int outOffset, BatchEvaluator.Scratch scratch) throws Exception {
+            argument.evaluateBlock(columns, row, length, out, outOffset, scratch);
+            if (memoized) {
+                FunctionMemo.current().applyAll(function, out, outOffset, length);
+            } else {
+                function.applyAll(out, outOffset, length);
+            }
+        }
+    }
+}
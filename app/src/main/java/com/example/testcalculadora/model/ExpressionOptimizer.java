@@ -0,0 +1,165 @@
+package com.example.testcalculadora.model;
+
+import java.util.ArrayDeque;
+
+/**
+ * Rewrites a parsed tree so it does less work per evaluation. Folding and
+ * the identities below are exact; only the integer powers may differ from
+ * {@link Math#pow}, which is itself allowed an ulp of error.
+ *
+ * <ul>
+ *   <li>Constant subtrees are evaluated once, including the function calls
+ *       and their degree-to-radian conversions. A subtree that would throw,
+ *       such as {@code sqrt(-4)}, is kept so the error still surfaces when the
+ *       expression is evaluated.</li>
+ *   <li>{@code x*1}, {@code 1*x}, {@code x/1}, {@code x-0}, {@code x^1} and
+ *       {@code --x} become {@code x}; {@code x^0} becomes 1 when {@code x}
+ *       cannot throw.</li>
+ *   <li>{@code x^2}, {@code x^3} and {@code x^4} use multiplications instead
+ *       of {@link Math#pow}.</li>
+ * </ul>
+ *
+ * <p>{@code x+0} is deliberately left alone: for {@code x = -0.0} it yields
+ * {@code +0.0}, which formats and divides differently.
+ */
+final class ExpressionOptimizer {
+
+    private static final ExpressionNode.Transform PASS = new ExpressionNode.Transform() {
+        @Override
+        ExpressionNode combine(ExpressionNode node, ExpressionNode first, ExpressionNode second) {
+            if (node instanceof ExpressionNode.Negate) {
+                if (first instanceof ExpressionNode.Negate) {
+                    return ((ExpressionNode.Negate) first).operand;
+                }
+                return fold(new ExpressionNode.Negate(first));
+            }
+            if (node instanceof ExpressionNode.Binary) {
+                return optimizeBinary(((ExpressionNode.Binary) node).operator, first, second);
+            }
+            if (node instanceof ExpressionNode.Power) {
+                return optimizePower(first, second);
+            }
+            if (node.childCount() > 0) {
+                return fold(node.withChildren(first, second));
+            }
+            return node;
+        }
+    };
+
+    private ExpressionOptimizer() {
+    }
+
+    static ExpressionNode optimize(ExpressionNode node) {
+        return PASS.apply(node);
+    }
+
+    private static ExpressionNode optimizeBinary(char operator, ExpressionNode left, ExpressionNode right) {
+        switch (operator) {
+            case '*':
+                if (isConstant(right, 1)) {
+                    return left;
+                }
+                if (isConstant(left, 1)) {
+                    return right;
+                }
+                break;
+            case '/':
+                if (isConstant(right, 1)) {
+                    return left;
+                }
+                break;
+            case '-':
+                if (isConstant(right, 0) && !isNegativeZero(right)) {
+                    return left;
+                }
+                break;
+            default:
+                break;
+        }
+        return fold(ExpressionNode.Binary.create(operator, left, right));
+    }
+
+    private static ExpressionNode optimizePower(ExpressionNode base, ExpressionNode exponent) {
+        // Constant powers fold through Math.pow, exactly as they evaluated before
+        if (isConstant(base) && isConstant(exponent)) {
+            return fold(new ExpressionNode.Power(base, exponent));
+        }
+        if (exponent instanceof ExpressionNode.Constant) {
+            double value = ((ExpressionNode.Constant) exponent).value;
+            if (value == 1) {
+                return base;
+            }
+            if (value == 0 && !canThrow(base)) {
+                return new ExpressionNode.Constant(1);
+            }
+            if (value >= 2 && value <= ExpressionNode.IntegerPower.MAX_EXPONENT && value == Math.rint(value)) {
+                return fold(new ExpressionNode.IntegerPower(base, (int) value));
+            }
+        }
+        return fold(new ExpressionNode.Power(base, exponent));
+    }
+
+    /**
+     * Replaces a node whose children are all constants with its value, unless
+     * evaluating it throws.
+     */
+    private static ExpressionNode fold(ExpressionNode node) {
+        if (!hasOnlyConstantChildren(node)) {
+            return node;
+        }
+        try {
+            return new ExpressionNode.Constant(node.evaluate(null));
+        } catch (Exception e) {
+            return node;
+        }
+    }
+
+    private static boolean hasOnlyConstantChildren(ExpressionNode node) {
+        if (node.childCount() == 0) {
+            return false;
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            if (!isConstant(node.child(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether evaluating the node can throw: division and the functions with
+     * a restricted domain.
+     */
+    static boolean canThrow(ExpressionNode node) {
+        ArrayDeque<ExpressionNode> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            ExpressionNode current = pending.pop();
+            if (current instanceof ExpressionNode.Divide) {
+                return true;
+            }
+            if (current instanceof ExpressionNode.Function) {
+                MathFunction f = ((ExpressionNode.Function) current).function;
+                if (f == MathFunction.SQRT || f == MathFunction.LOG || f == MathFunction.LN) {
+                    return true;
+                }
+            }
+            for (int i = 0; i < current.childCount(); i++) {
+                pending.push(current.child(i));
+            }
+        }
+        return false;
+    }
+
+    private static boolean isConstant(ExpressionNode node) {
+        return node instanceof ExpressionNode.Constant;
+    }
+
+    private static boolean isConstant(ExpressionNode node, double value) {
+        return node instanceof ExpressionNode.Constant && ((ExpressionNode.Constant) node).value == value;
+    }
+
+    private static boolean isNegativeZero(ExpressionNode node) {
+        return Double.doubleToRawLongBits(((ExpressionNode.Constant) node).value) == Long.MIN_VALUE;
+    }
+}
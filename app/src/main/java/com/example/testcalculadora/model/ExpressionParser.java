@@ -1,189 +1,417 @@
 package com.example.testcalculadora.model;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 public class ExpressionParser {
     
+    // Markers kept on the operator stack next to the operator characters
+    private static final int NEGATE = -1;
+    private static final int GROUP = -2;
+    private static final int FUNCTION = -3;
+    
+    private final ExpressionCache cache;
+    
+    public ExpressionParser() {
+        this(null);
+    }
+    
+    /**
+     * Creates a parser that looks compiled expressions up in {@code cache}
+     * before parsing. The cache may be shared by several parsers.
+     */
+    public ExpressionParser(ExpressionCache cache) {
+        this.cache = cache;
+    }
+    
     public double evaluate(String expression) throws Exception {
-        // Replace comma with dot for parsing
-        expression = expression.replace(",", ".");
-        expression = expression.replaceAll("\\s+", "");
-        
-        return parseExpression(new Parser(expression));
+        return compile(expression).evaluate();
+    }
+    
+    /**
+     * Parses the expression once into a tree that can be evaluated many times.
+     */
+    public CompiledExpression compile(String expression) throws Exception {
+        return compile(expression, new String[0]);
     }
     
-    private double parseExpression(Parser parser) throws Exception {
-        double result = parseTerm(parser);
+    /**
+     * Parses an expression that may reference the given variables. Each name is
+     * bound to its position in {@code variables}, which is the index to use in
+     * {@link CompiledExpression#evaluate(double[])}.
+     */
+    public CompiledExpression compile(String expression, String... variables) throws Exception {
+        checkVariables(variables);
         
-        while (parser.hasNext()) {
-            char op = parser.peek();
-            if (op == '+' || op == '-') {
-                parser.next();
-                double term = parseTerm(parser);
-                result = (op == '+') ? result + term : result - term;
-            } else {
-                break;
+        // Cache keys use the normalized text; the lexer reads the source as is
+        String key = null;
+        if (cache != null) {
+            key = ExpressionCache.normalize(expression);
+            CompiledExpression cached = cache.get(key, variables);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        
+        String[] declared = variables.clone();
+        Parser parser = new Parser(ExpressionLexer.tokenize(expression), declared, null);
+        ExpressionNode root = ExpressionOptimizer.optimize(parse(parser));
+        CompiledExpression compiled = CommonSubexpressions.compile(root, declared);
+        if (cache != null) {
+            cache.put(key, declared, compiled);
+        }
+        return compiled;
+    }
+    
+    /**
+     * Like {@link #compile(String, String...)}, but {@code sin}, {@code cos},
+     * {@code tan}, {@code sqrt}, {@code log} and {@code ln} look their
+     * arguments up in the calling thread's {@link FunctionMemo} first. Worth
+     * it for tables where the same arguments recur; the memo steps aside on
+     * its own when they do not. Memoized expressions are not cached.
+     */
+    public CompiledExpression compileMemoized(String expression, String... variables) throws Exception {
+        checkVariables(variables);
+        String[] declared = variables.clone();
+        Parser parser = new Parser(ExpressionLexer.tokenize(expression), declared, null);
+        ExpressionNode root = FunctionMemo.memoize(ExpressionOptimizer.optimize(parse(parser)));
+        return CommonSubexpressions.compile(root, declared);
+    }
+    
+    /**
+     * Compiles the derivative of the expression with respect to
+     * {@code variable}, which must be one of {@code variables}; the result
+     * takes the same bindings as {@link #compile(String, String...)}. The
+     * derivative is built symbolically, then optimized like any expression,
+     * so evaluating it costs about as much as evaluating the expression.
+     * Trigonometric derivatives are per degree, matching the functions.
+     *
+     * <p>The derivative is a formula of its own: it is only meaningful where
+     * the expression itself is defined, so {@code ln(x)} gives {@code 1/x}
+     * even for negative {@code x}.
+     */
+    public CompiledExpression compileDerivative(String expression, String variable, String... variables)
+            throws Exception {
+        checkVariables(variables);
+        String[] declared = variables.clone();
+        int slot = slotOf(variable, declared);
+        Parser parser = new Parser(ExpressionLexer.tokenize(expression), declared, null);
+        ExpressionNode root = ExpressionOptimizer.optimize(parse(parser));
+        return compileDerivative(root, slot, declared);
+    }
+    
+    private static CompiledExpression compileDerivative(ExpressionNode root, int slot, String[] variables) {
+        ExpressionNode derivative = ExpressionOptimizer.optimize(Derivatives.differentiate(root, slot));
+        return CommonSubexpressions.compile(derivative, variables);
+    }
+    
+    /**
+     * Compiles the expression, and its derivative with respect to
+     * {@code unknown}, for solving equations in that variable. The other
+     * {@code variables} are parameters bound on each solve.
+     */
+    public EquationSolver compileSolver(String expression, String unknown, String... variables) throws Exception {
+        checkVariables(variables);
+        String[] declared = variables.clone();
+        int slot = slotOf(unknown, declared);
+        Parser parser = new Parser(ExpressionLexer.tokenize(expression), declared, null);
+        ExpressionNode root = ExpressionOptimizer.optimize(parse(parser));
+        CompiledExpression function = CommonSubexpressions.compile(root, declared);
+        return new EquationSolver(function, compileDerivative(root, slot, declared), slot);
+    }
+    
+    private static int slotOf(String variable, String[] variables) {
+        for (int i = 0; i < variables.length; i++) {
+            if (variables[i].equals(variable)) {
+                return i;
             }
         }
-        return result;
+        throw new IllegalArgumentException("Variável não declarada: " + variable);
+    }
+    
+    /**
+     * Compiles the expression for evaluating its value together with the
+     * partial derivatives with respect to all {@code variables}, in one pass
+     * by automatic differentiation. See {@link GradientExpression}.
+     */
+    public GradientExpression compileGradient(String expression, String... variables) throws Exception {
+        checkVariables(variables);
+        String[] declared = variables.clone();
+        Parser parser = new Parser(ExpressionLexer.tokenize(expression), declared, null);
+        return new GradientExpression(ExpressionOptimizer.optimize(parse(parser)), declared);
+    }
+    
+    /**
+     * Evaluates in decimal instead of binary floating point, see
+     * {@link #compileExact(String, MathContext, String...)}.
+     */
+    public BigDecimal evaluateExact(String expression, MathContext context) throws Exception {
+        return compileExact(expression, context).evaluate();
+    }
+    
+    /**
+     * Parses an expression for evaluation with {@link BigDecimal}, rounded to
+     * {@code context}. Numbers are taken exactly as written, so
+     * {@code 0,1+0,2} is exactly {@code 0.3}, and {@code + - * /} and integer
+     * powers are exact whenever the result fits in the precision. The other
+     * functions are computed to the full precision. Errors are the same as
+     * in {@link #compile(String, String...)}; in addition a negative base with
+     * a fractional exponent is an error instead of NaN.
+     *
+     * <p>Exact expressions are not cached, and the tree is not optimized,
+     * because folding would round in binary.
+     */
+    public DecimalExpression compileExact(String expression, MathContext context, String... variables)
+            throws Exception {
+        checkVariables(variables);
+        DecimalMath math = DecimalMath.forContext(context);
+        String[] declared = variables.clone();
+        Map<ExpressionNode, BigDecimal> literals = new IdentityHashMap<>();
+        Parser parser = new Parser(ExpressionLexer.tokenize(expression, true), declared, literals);
+        return new DecimalExpression(parse(parser), declared, literals, math);
     }
     
-    private double parseTerm(Parser parser) throws Exception {
-        double result = parsePower(parser);
+    /**
+     * Evaluates with interval arithmetic, see
+     * {@link #compileInterval(String, String...)}.
+     */
+    public Interval evaluateInterval(String expression) throws Exception {
+        return compileInterval(expression).evaluate();
+    }
+    
+    /**
+     * Parses an expression for evaluation with interval arithmetic. The
+     * result is an interval guaranteed to contain the exact value, numbers
+     * included: {@code 0,1} becomes the two doubles around one tenth. With
+     * variables bound to ranges it encloses every value over those ranges.
+     *
+     * <p>Like {@link #compileExact}, interval expressions are not cached or
+     * optimized, because folding would round without tracking the error.
+     */
+    public IntervalExpression compileInterval(String expression, String... variables) throws Exception {
+        checkVariables(variables);
+        String[] declared = variables.clone();
+        Map<ExpressionNode, BigDecimal> literals = new IdentityHashMap<>();
+        Parser parser = new Parser(ExpressionLexer.tokenize(expression, true), declared, literals);
+        return new IntervalExpression(parse(parser), declared, literals);
+    }
+    
+    private static void checkVariables(String[] variables) {
+        for (String variable : variables) {
+            if (!isIdentifier(variable)) {
+                throw new IllegalArgumentException("Nome de variável inválido: " + variable);
+            }
+        }
+    }
+    
+    /**
+     * Parses with explicit operand and operator stacks instead of recursion,
+     * so nesting depth is limited only by memory. A sign applies to the factor
+     * right after it ({@code -2^2 = 4}), {@code ^} is right-associative and
+     * binds tighter than {@code *} and {@code /}, which bind tighter than
+     * {@code +} and {@code -}. Text after a complete expression is ignored.
+     */
+    private ExpressionNode parse(Parser parser) throws Exception {
+        List<ExpressionNode> operands = new ArrayList<>();
+        List<Integer> operators = new ArrayList<>();
+        List<String> functions = new ArrayList<>();
+        boolean expectOperand = true;
         
-        while (parser.hasNext()) {
-            char op = parser.peek();
-            if (op == '*' || op == '/') {
+        while (true) {
+            if (expectOperand) {
+                if (!parser.hasNext()) {
+                    throw new Exception("Expressão incompleta");
+                }
+                int token = parser.peek();
+                if (token == '-') {
+                    parser.next();
+                    operators.add(NEGATE);
+                } else if (token == '+') {
+                    parser.next();
+                } else if (token == '(') {
+                    parser.next();
+                    operators.add(GROUP);
+                } else if (token == ExpressionLexer.IDENTIFIER) {
+                    String name = parser.text();
+                    parser.next();
+                    if (parser.hasNext() && parser.peek() == '(') {
+                        parser.next();
+                        functions.add(name);
+                        operators.add(FUNCTION);
+                    } else {
+                        operands.add(variable(parser, name));
+                        applySigns(operands, operators);
+                        expectOperand = false;
+                    }
+                } else {
+                    operands.add(parseNumber(parser));
+                    applySigns(operands, operators);
+                    expectOperand = false;
+                }
+                continue;
+            }
+            
+            // Operator position, right after a complete factor
+            int op = parser.peek();
+            if (op == '^') {
+                // Right-associative: 2^3^2 = 2^(3^2), so nothing is reduced yet
+                parser.next();
+                operators.add(op);
+                expectOperand = true;
+            } else if (op == '*' || op == '/' || op == '+' || op == '-') {
+                reduce(operands, operators, precedence(op));
                 parser.next();
-                double factor = parsePower(parser);
-                if (op == '*') {
-                    result *= factor;
+                operators.add(op);
+                expectOperand = true;
+            } else {
+                // Anything else ends the innermost group, function argument or the whole expression
+                reduce(operands, operators, 1);
+                if (operators.isEmpty()) {
+                    return operands.get(0);
+                }
+                int opening = operators.remove(operators.size() - 1);
+                if (opening == GROUP) {
+                    if (!parser.hasNext() || parser.next() != ')') {
+                        throw new Exception("Parênteses não fechado");
+                    }
                 } else {
-                    if (factor == 0) {
-                        throw new Exception("Divisão por zero");
+                    if (!parser.hasNext() || parser.next() != ')') {
+                        throw new Exception("Esperado ')' após argumento da função");
                     }
-                    result /= factor;
+                    String function = functions.remove(functions.size() - 1).toLowerCase();
+                    int last = operands.size() - 1;
+                    operands.set(last, new ExpressionNode.Function(MathFunction.forName(function), operands.get(last)));
                 }
-            } else {
-                break;
+                applySigns(operands, operators);
             }
         }
-        return result;
     }
     
-    private double parsePower(Parser parser) throws Exception {
-        double base = parseFactor(parser);
-        
-        // Right-associative: 2^3^2 = 2^(3^2) = 2^9 = 512
-        if (parser.hasNext() && parser.peek() == '^') {
-            parser.next();
-            double exponent = parsePower(parser); // Recursive call for right associativity
-            return Math.pow(base, exponent);
+    /**
+     * Combines the pending binary operators of at least the given precedence,
+     * stopping at the innermost open group or function call.
+     */
+    private static void reduce(List<ExpressionNode> operands, List<Integer> operators, int minimum) {
+        while (!operators.isEmpty() && precedence(operators.get(operators.size() - 1)) >= minimum) {
+            int op = operators.remove(operators.size() - 1);
+            ExpressionNode right = operands.remove(operands.size() - 1);
+            int last = operands.size() - 1;
+            ExpressionNode left = operands.get(last);
+            operands.set(last, op == '^'
+                    ? new ExpressionNode.Power(left, right)
+                    : ExpressionNode.Binary.create((char) op, left, right));
         }
-        
-        return base;
     }
     
-    private double parseFactor(Parser parser) throws Exception {
-        if (!parser.hasNext()) {
-            throw new Exception("Expressão incompleta");
+    /** Negates the factor just completed once for each '-' written before it. */
+    private static void applySigns(List<ExpressionNode> operands, List<Integer> operators) {
+        int last = operands.size() - 1;
+        while (!operators.isEmpty() && operators.get(operators.size() - 1) == NEGATE) {
+            operators.remove(operators.size() - 1);
+            operands.set(last, new ExpressionNode.Negate(operands.get(last)));
         }
-        
-        char c = parser.peek();
-        
-        // Handle negative numbers
-        if (c == '-') {
-            parser.next();
-            return -parseFactor(parser);
-        }
-        
-        // Handle positive sign
-        if (c == '+') {
-            parser.next();
-            return parseFactor(parser);
-        }
-        
-        // Handle parentheses
-        if (c == '(') {
-            parser.next();
-            double result = parseExpression(parser);
-            if (!parser.hasNext() || parser.next() != ')') {
-                throw new Exception("Parênteses não fechado");
-            }
-            return result;
-        }
-        
-        // Handle functions (sin, cos, tan, sqrt, log, ln)
-        if (Character.isLetter(c)) {
-            return parseFunction(parser);
-        }
-        
-        // Handle numbers
-        return parseNumber(parser);
     }
     
-    private double parseFunction(Parser parser) throws Exception {
-        StringBuilder funcName = new StringBuilder();
-        
-        // Read function name
-        while (parser.hasNext() && Character.isLetter(parser.peek())) {
-            funcName.append(parser.next());
+    private static int precedence(int op) {
+        switch (op) {
+            case '^':
+                return 3;
+            case '*':
+            case '/':
+                return 2;
+            case '+':
+            case '-':
+                return 1;
+            default:
+                return 0; // group, function call or sign
         }
-        
-        String function = funcName.toString().toLowerCase();
-        
-        // Expect opening parenthesis
-        if (!parser.hasNext() || parser.peek() != '(') {
+    }
+    
+    private static ExpressionNode variable(Parser parser, String name) throws Exception {
+        // A name not followed by '(' must be one of the declared variables
+        int slot = parser.indexOfVariable(name);
+        if (slot < 0) {
             throw new Exception("Esperado '(' após função");
         }
-        parser.next(); // consume '('
-        
-        double argument = parseExpression(parser);
-        
-        // Expect closing parenthesis
-        if (!parser.hasNext() || parser.next() != ')') {
-            throw new Exception("Esperado ')' após argumento da função");
+        return new ExpressionNode.Variable(slot, name);
+    }
+    
+    private ExpressionNode parseNumber(Parser parser) throws Exception {
+        if (parser.peek() == ExpressionLexer.MALFORMED_NUMBER) {
+            String literal = parser.text();
+            DecimalParser.parse(literal, 0, literal.length()); // throws NumberFormatException
+        }
+        if (parser.peek() != ExpressionLexer.NUMBER) {
+            throw new Exception("Número esperado");
         }
         
-        // Calculate function result
-        switch (function) {
-            case "sin":
-                return Math.sin(Math.toRadians(argument));
-            case "cos":
-                return Math.cos(Math.toRadians(argument));
-            case "tan":
-                return Math.tan(Math.toRadians(argument));
-            case "sqrt":
-                if (argument < 0) {
-                    throw new Exception("Raiz quadrada de número negativo");
-                }
-                return Math.sqrt(argument);
-            case "log":
-                if (argument <= 0) {
-                    throw new Exception("Logaritmo de número não positivo");
-                }
-                return Math.log10(argument);
-            case "ln":
-                if (argument <= 0) {
-                    throw new Exception("Logaritmo de número não positivo");
-                }
-                return Math.log(argument);
-            default:
-                throw new Exception("Função desconhecida: " + function);
+        ExpressionNode.Constant constant = new ExpressionNode.Constant(parser.value());
+        if (parser.literals != null) {
+            parser.literals.put(constant, new BigDecimal(parser.text()));
         }
+        parser.next();
+        return constant;
     }
     
-    private double parseNumber(Parser parser) throws Exception {
-        StringBuilder sb = new StringBuilder();
-        
-        while (parser.hasNext() && (Character.isDigit(parser.peek()) || parser.peek() == '.')) {
-            sb.append(parser.next());
+    private static boolean isIdentifier(String name) {
+        if (name == null || name.isEmpty()) {
+            return false;
         }
-        
-        if (sb.length() == 0) {
-            throw new Exception("Número esperado");
+        for (int i = 0; i < name.length(); i++) {
+            if (!Character.isLetter(name.charAt(i))) {
+                return false;
+            }
         }
-        
-        return Double.parseDouble(sb.toString());
+        return true;
     }
     
     private static class Parser {
-        private final String expression;
+        private final ExpressionLexer tokens;
+        private final String[] variables;
+        // Exact value of each number node, only when compiling for BigDecimal
+        // or intervals
+        private final Map<ExpressionNode, BigDecimal> literals;
         private int position;
         
-        public Parser(String expression) {
-            this.expression = expression;
+        public Parser(ExpressionLexer tokens, String[] variables, Map<ExpressionNode, BigDecimal> literals) {
+            this.tokens = tokens;
+            this.variables = variables;
+            this.literals = literals;
             this.position = 0;
         }
         
+        public int indexOfVariable(String name) {
+            for (int i = 0; i < variables.length; i++) {
+                if (variables[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
         public boolean hasNext() {
-            return position < expression.length();
+            return tokens.kind(position) != ExpressionLexer.END;
+        }
+        
+        /** Kind of the current token, see {@link ExpressionLexer#kind(int)}. */
+        public int peek() {
+            return tokens.kind(position);
+        }
+        
+        public int next() {
+            return tokens.kind(position++);
         }
         
-        public char peek() {
-            return expression.charAt(position);
+        public double value() {
+            return tokens.value(position);
         }
         
-        public char next() {
-            return expression.charAt(position++);
+        public String text() {
+            return tokens.text(position);
         }
     }
 }
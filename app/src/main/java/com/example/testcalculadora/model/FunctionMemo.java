@@ -0,0 +1,173 @@
+package com.example.testcalculadora.model;
+
+import java.util.Arrays;
+
+/**
+ * Remembers recent results of the scientific functions, for expressions
+ * compiled by {@link ExpressionParser#compileMemoized(String, String...)}.
+ * Tables that repeat the same angles or rates then compute each
+ * {@code sin} or {@code log} once.
+ *
+ * <p>Each thread has its own direct-mapped table of {@link #SIZE} entries,
+ * keyed by the function and the exact bits of the argument, so there are
+ * no locks and a collision simply replaces the older entry. Errors are
+ * never stored: an argument out of the domain throws every time.
+ *
+ * <p>Lookups are counted in windows of {@link #WINDOW}. When fewer than
+ * {@link #MIN_HIT_RATE} of a window's lookups hit, the next
+ * {@link #BYPASS_CALLS} calls skip the table and compute directly, so
+ * arguments that never repeat cost little more than without the memo.
+ */
+public final class FunctionMemo {
+
+    static final int SIZE_BITS = 10;
+    public static final int SIZE = 1 << SIZE_BITS;
+    public static final int WINDOW = 4096;
+    public static final double MIN_HIT_RATE = 0.25;
+    public static final int BYPASS_CALLS = 1 << 16;
+
+    private static final MathFunction[] FUNCTIONS = MathFunction.values();
+
+    private static final int MIN_WINDOW_HITS = (int) (MIN_HIT_RATE * WINDOW);
+
+    private static final ThreadLocal<FunctionMemo> MEMOS = new ThreadLocal<FunctionMemo>() {
+        @Override
+        protected FunctionMemo initialValue() {
+            return new FunctionMemo();
+        }
+    };
+
+    private final long[] arguments = new long[SIZE];
+    // Function ordinal plus one, so that 0 marks an empty entry
+    private final byte[] functions = new byte[SIZE];
+    private final double[] results = new double[SIZE];
+
+    private long lookups;
+    private long hits;
+    private long bypassedCalls;
+    private int windowLookups;
+    private int windowHits;
+    private int bypassRemaining;
+
+    private FunctionMemo() {
+    }
+
+    /** The calling thread's table. */
+    public static FunctionMemo current() {
+        return MEMOS.get();
+    }
+
+    /**
+     * Applies the function of the given ordinal through the calling thread's
+     * table. Public for the classes generated by {@link BytecodeCompiler},
+     * which cannot reach package-private members.
+     */
+    public static double applyCurrent(double argument, int function) throws Exception {
+        return MEMOS.get().apply(FUNCTIONS[function], argument);
+    }
+
+    /**
+     * Replaces every function in the tree by one that goes through the
+     * calling thread's table.
+     */
+    static ExpressionNode memoize(ExpressionNode root) {
+        return new ExpressionNode.Transform() {
+            @Override
+            ExpressionNode combine(ExpressionNode node, ExpressionNode first, ExpressionNode second) {
+                if (node instanceof ExpressionNode.Function) {
+                    return new ExpressionNode.Function(((ExpressionNode.Function) node).function, first, true);
+                }
+                return node.withChildren(first, second);
+            }
+        }.apply(root);
+    }
+
+    double apply(MathFunction function, double argument) throws Exception {
+        if (bypassRemaining > 0) {
+            bypassRemaining--;
+            bypassedCalls++;
+            return function.apply(argument);
+        }
+        long bits = Double.doubleToRawLongBits(argument);
+        int id = function.ordinal() + 1;
+        int index = (int) (((bits ^ id) * 0x9E3779B97F4A7C15L) >>> (64 - SIZE_BITS));
+        double result;
+        if (arguments[index] == bits && functions[index] == id) {
+            windowHits++;
+            result = results[index];
+        } else {
+            result = function.apply(argument);
+            arguments[index] = bits;
+            functions[index] = (byte) id;
+            results[index] = result;
+        }
+        if (++windowLookups == WINDOW) {
+            endWindow();
+        }
+        return result;
+    }
+
+    /** Like {@link MathFunction#applyAll}, through the table. */
+    void applyAll(MathFunction function, double[] values, int offset, int length) throws Exception {
+        if (bypassRemaining >= length) {
+            bypassRemaining -= length;
+            bypassedCalls += length;
+            function.applyAll(values, offset, length);
+            return;
+        }
+        for (int i = offset, end = offset + length; i < end; i++) {
+            values[i] = apply(function, values[i]);
+        }
+    }
+
+    private void endWindow() {
+        lookups += windowLookups;
+        hits += windowHits;
+        if (windowHits < MIN_WINDOW_HITS) {
+            bypassRemaining = BYPASS_CALLS;
+        }
+        windowLookups = 0;
+        windowHits = 0;
+    }
+
+    /** Calls that looked the table up, including the current window. */
+    public long getLookups() {
+        return lookups + windowLookups;
+    }
+
+    public long getHits() {
+        return hits + windowHits;
+    }
+
+    /** Hits per lookup, or 0 before the first lookup. */
+    public double getHitRate() {
+        long total = getLookups();
+        return total == 0 ? 0 : (double) getHits() / total;
+    }
+
+    /** Calls computed directly because the hit rate was too low. */
+    public long getBypassedCalls() {
+        return bypassedCalls;
+    }
+
+    public boolean isBypassing() {
+        return bypassRemaining > 0;
+    }
+
+    /** Empties the table and zeroes the counters. */
+    public void reset() {
+        Arrays.fill(functions, (byte) 0);
+        lookups = 0;
+        hits = 0;
+        bypassedCalls = 0;
+        windowLookups = 0;
+        windowHits = 0;
+        bypassRemaining = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "FunctionMemo{lookups=" + getLookups() + ", hits=" + getHits()
+                + ", bypassedCalls=" + bypassedCalls + "}";
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.testcalculadora.model;
+
+import java.util.List;
+
+/**
+ * An expression compiled by
+ * {@link ExpressionParser#compileGradient(String, String...)} that evaluates
+ * its value and its partial derivatives with respect to every variable in a
+ * single pass. Each value on the stack carries a tangent vector, one
+ * component per variable, updated by the chain rule (forward-mode automatic
+ * differentiation with dual numbers). The derivatives are exact up to the
+ * rounding of the operations themselves, unlike finite differences.
+ *
+ * <p>Instances are immutable and safe to share between threads; each
+ * thread reuses its own stacks.
+ */
+public final class GradientExpression {
+
+    private static final MathFunction[] FUNCTIONS = MathFunction.values();
+
+    private static final double LN_10 = Math.log(10);
+
+    private final String[] variables;
+    private final int[] code;
+    private final double[] constants;
+    // Values, then tangents: component k of stack entry i at i * variables + k
+    private final ThreadLocal<double[][]> stacks;
+
+    GradientExpression(ExpressionNode root, String[] variables) {
+        this.variables = variables;
+        PostfixCode<Double> assembler = new PostfixCode<Double>() {
+            @Override
+            Double constant(ExpressionNode.Constant node) {
+                return node.value;
+            }
+        };
+        assembler.apply(root);
+        this.code = assembler.code();
+        List<Double> table = assembler.constants();
+        this.constants = new double[table.size()];
+        for (int i = 0; i < constants.length; i++) {
+            constants[i] = table.get(i);
+        }
+        final int maxStack = assembler.maxStack();
+        this.stacks = new ThreadLocal<double[][]>() {
+            @Override
+            protected double[][] initialValue() {
+                return new double[][] {new double[maxStack], new double[maxStack * variables.length]};
+            }
+        };
+    }
+
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    public String getVariableName(int slot) {
+        return variables[slot];
+    }
+
+    /**
+     * Evaluates at {@code bindings} and stores the partial derivative with
+     * respect to variable i in {@code gradient[i]}. Returns the value.
+     * Errors are those of {@link CompiledExpression#evaluate(double[])}; in
+     * addition, a power whose exponent depends on a variable needs a
+     * positive base.
+     */
+    public double evaluate(double[] bindings, double[] gradient) throws Exception {
+        int n = variables.length;
+        if (bindings.length < n || gradient.length < n) {
+            throw new IllegalArgumentException("Esperados " + n
+                    + " valores de variáveis, recebidos " + Math.min(bindings.length, gradient.length));
+        }
+        double[][] stack = stacks.get();
+        double[] values = stack[0];
+        double[] tangents = stack[1];
+        int top = -1;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case PostfixCode.CONSTANT: {
+                    values[++top] = constants[code[pc++]];
+                    int t = top * n;
+                    for (int k = 0; k < n; k++) {
+                        tangents[t + k] = 0;
+                    }
+                    break;
+                }
+                case PostfixCode.LOAD: {
+                    int slot = code[pc++];
+                    values[++top] = bindings[slot];
+                    int t = top * n;
+                    for (int k = 0; k < n; k++) {
+                        tangents[t + k] = k == slot ? 1 : 0;
+                    }
+                    break;
+                }
+                case PostfixCode.NEGATE: {
+                    values[top] = -values[top];
+                    int t = top * n;
+                    for (int k = 0; k < n; k++) {
+                        tangents[t + k] = -tangents[t + k];
+                    }
+                    break;
+                }
+                case PostfixCode.ADD: {
+                    top--;
+                    values[top] += values[top + 1];
+                    int t = top * n;
+                    for (int k = 0; k < n; k++) {
+                        tangents[t + k] += tangents[t + n + k];
+                    }
+                    break;
+                }
+                case PostfixCode.SUBTRACT: {
+                    top--;
+                    values[top] -= values[top + 1];
+                    int t = top * n;
+                    for (int k = 0; k < n; k++) {
+                        tangents[t + k] -= tangents[t + n + k];
+                    }
+                    break;
+                }
+                case PostfixCode.MULTIPLY: {
+                    top--;
+                    double a = values[top];
+                    double b = values[top + 1];
+                    values[top] = a * b;
+                    int t = top * n;
+                    for (int k = 0; k < n; k++) {
+                        tangents[t + k] = tangents[t + k] * b + a * tangents[t + n + k];
+                    }
+                    break;
+                }
+                case PostfixCode.DIVIDE: {
+                    top--;
+                    double b = values[top + 1];
+                    if (b == 0) {
+                        throw new Exception("Divisão por zero");
+                    }
+                    double quotient = values[top] / b;
+                    values[top] = quotient;
+                    int t = top * n;
+                    for (int k = 0; k < n; k++) {
+                        tangents[t + k] = (tangents[t + k] - quotient * tangents[t + n + k]) / b;
+                    }
+                    break;
+                }
+                case PostfixCode.POWER:
+                    top--;
+                    power(values, tangents, top, n);
+                    break;
+                case PostfixCode.INTEGER_POWER: {
+                    int exponent = code[pc++];
+                    double a = values[top];
+                    values[top] = ExpressionNode.IntegerPower.pow(a, exponent);
+                    // n a^(n-1)
+                    double slope = exponent * (exponent == 2 ? a : ExpressionNode.IntegerPower.pow(a, exponent - 1));
+                    scale(tangents, top * n, n, slope);
+                    break;
+                }
+                case PostfixCode.FUNCTION: {
+                    MathFunction function = FUNCTIONS[code[pc++]];
+                    double a = values[top];
+                    double value = function.apply(a);
+                    values[top] = value;
+                    scale(tangents, top * n, n, slope(function, a, value));
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Instrução inválida: " + code[pc - 1]);
+            }
+        }
+        System.arraycopy(tangents, top * n, gradient, 0, n);
+        return values[top];
+    }
+
+    /** {@code values[top]^values[top + 1]} and its tangent, into {@code top}. */
+    private static void power(double[] values, double[] tangents, int top, int n) throws Exception {
+        double a = values[top];
+        double b = values[top + 1];
+        double value = Math.pow(a, b);
+        int t = top * n;
+        // v u^(v-1) u' + u^v ln(u) v'
+        double baseSlope = b * Math.pow(a, b - 1);
+        double exponentSlope = 0;
+        boolean exponentVaries = false;
+        for (int k = 0; k < n; k++) {
+            exponentVaries |= tangents[t + n + k] != 0;
+        }
+        if (exponentVaries) {
+            if (a <= 0) {
+                throw new Exception("Logaritmo de número não positivo");
+            }
+            exponentSlope = value * Math.log(a);
+        }
+        for (int k = 0; k < n; k++) {
+            double da = tangents[t + k];
+            double db = tangents[t + n + k];
+            // Skips 0 * infinity where the base does not vary, as at 0^0.5
+            tangents[t + k] = (da == 0 ? 0 : baseSlope * da) + (db == 0 ? 0 : exponentSlope * db);
+        }
+        values[top] = value;
+    }
+
+    /** Derivative of {@code function} at {@code argument}, given its value there. */
+    private static double slope(MathFunction function, double argument, double value) {
+        switch (function) {
+            case SIN:
+                return Derivatives.RADIANS_PER_DEGREE * Math.cos(Math.toRadians(argument));
+            case COS:
+                return -Derivatives.RADIANS_PER_DEGREE * Math.sin(Math.toRadians(argument));
+            case TAN: {
+                double cos = Math.cos(Math.toRadians(argument));
+                return Derivatives.RADIANS_PER_DEGREE / (cos * cos);
+            }
+            case SQRT:
+                return 0.5 / value;
+            case LOG:
+                return 1 / (argument * LN_10);
+            default:
+                return 1 / argument;
+        }
+    }
+
+    private static void scale(double[] tangents, int offset, int length, double factor) {
+        for (int k = offset, end = offset + length; k < end; k++) {
+            // A constant operand stays constant, even where the slope is infinite
+            if (tangents[k] != 0) {
+                tangents[k] *= factor;
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.testcalculadora.model;
+
+/**
+ * Evaluates an expression that is typed and erased one character at a time,
+ * doing a constant amount of work per keystroke instead of parsing the whole
+ * text again.
+ *
+ * <p>After every character the evaluator keeps an immutable snapshot of the
+ * parse: for each open parenthesis, the sum and product reduced so far and
+ * the bases of a pending {@code ^} chain, plus the number or name being
+ * typed. Closed parentheses are already reduced to a value. Appending
+ * builds one snapshot from the previous one, erasing just goes back to an
+ * earlier snapshot, and evaluating only has to close the open levels.
+ *
+ * <p>Results are always those of {@link ExpressionParser#evaluate(String)}.
+ * Anything the snapshots do not model, such as whitespace, an expression that
+ * ends early or any evaluation error, is handed to the parser, which then also
+ * throws the usual exceptions. Not thread-safe.
+ */
+public final class IncrementalEvaluator {
+
+    private final ExpressionParser parser;
+    private final StringBuilder text = new StringBuilder();
+    private Frame[] frames = new Frame[64];
+    private long fallbackCount;
+
+    public IncrementalEvaluator(ExpressionParser parser) {
+        this.parser = parser;
+        frames[0] = Frame.START;
+    }
+
+    public int length() {
+        return text.length();
+    }
+
+    public void append(CharSequence characters) {
+        for (int i = 0; i < characters.length(); i++) {
+            int length = text.length();
+            if (length + 1 == frames.length) {
+                Frame[] grown = new Frame[frames.length * 2];
+                System.arraycopy(frames, 0, grown, 0, frames.length);
+                frames = grown;
+            }
+            text.append(characters.charAt(i));
+            frames[length + 1] = frames[length].next(text, length);
+        }
+    }
+
+    /** Keeps only the first {@code length} characters. */
+    public void truncate(int length) {
+        if (length < 0 || length > text.length()) {
+            throw new IndexOutOfBoundsException("Comprimento inválido: " + length);
+        }
+        text.setLength(length);
+    }
+
+    public void clear() {
+        truncate(0);
+    }
+
+    /**
+     * Evaluates the first {@code length} characters followed by
+     * {@code closing} closing parentheses, with the same result or exception
+     * as {@link ExpressionParser#evaluate(String)} on that text.
+     */
+    public double evaluate(int length, int closing) throws Exception {
+        if (length < 0 || length > text.length()) {
+            throw new IndexOutOfBoundsException("Comprimento inválido: " + length);
+        }
+        Frame frame = frames[length];
+        if (frame.level.depth == closing && (frame.mode == Frame.NUMBER || frame.mode == Frame.OPERATOR)) {
+            try {
+                return frame.close(text, length);
+            } catch (Exception e) {
+                // The parser reports the error below
+            }
+        }
+
+        fallbackCount++;
+        return parser.evaluate(closedText(length, closing));
+    }
+
+    /**
+     * Captures what {@link #evaluate(int, int)} needs, so that it can be
+     * evaluated later, on any thread, whatever is typed or erased meanwhile.
+     * Only the number being typed is copied; the text is copied whole, and
+     * counted as a fallback, when the snapshots do not model it.
+     */
+    public Snapshot snapshot(int length, int closing) {
+        if (length < 0 || length > text.length()) {
+            throw new IndexOutOfBoundsException("Comprimento inválido: " + length);
+        }
+        Frame frame = frames[length];
+        if (frame.level.depth == closing && frame.mode == Frame.OPERATOR) {
+            return new Snapshot(frame, null, null, null);
+        }
+        if (frame.level.depth == closing && frame.mode == Frame.NUMBER) {
+            // The copy of the number starts at 0
+            Frame copy = new Frame(Frame.NUMBER, frame.level, frame.negative, 0, 0);
+            return new Snapshot(copy, text.substring(frame.tokenStart, length), null, null);
+        }
+        fallbackCount++;
+        return new Snapshot(null, null, parser, closedText(length, closing));
+    }
+
+    private String closedText(int length, int closing) {
+        StringBuilder closed = new StringBuilder(length + closing).append(text, 0, length);
+        for (int i = 0; i < closing; i++) {
+            closed.append(')');
+        }
+        return closed.toString();
+    }
+
+    /**
+     * Number of evaluations that needed a full parse; for tests and tuning.
+     */
+    public long getFallbackCount() {
+        return fallbackCount;
+    }
+
+    /**
+     * An immutable capture of the text up to some length, closed by some
+     * parentheses. Errors are those the snapshots meet first, which may not
+     * be the ones the parser would report.
+     */
+    public static final class Snapshot {
+        private final Frame frame;
+        private final String number;
+        // Set instead of the frame when only the parser can evaluate the text
+        private final ExpressionParser parser;
+        private final String source;
+
+        private Snapshot(Frame frame, String number, ExpressionParser parser, String source) {
+            this.frame = frame;
+            this.number = number;
+            this.parser = parser;
+            this.source = source;
+        }
+
+        public double evaluate() throws Exception {
+            if (frame == null) {
+                return parser.evaluate(source);
+            }
+            return frame.close(number, number == null ? 0 : number.length());
+        }
+
+        /** Whether evaluating needs a full parse of the text. */
+        public boolean isFallback() {
+            return frame == null;
+        }
+    }
+
+    /**
+     * Parse state after a given character.
+     */
+    private static final class Frame {
+        static final int OPERAND = 0;   // expecting a number, name, sign or '('
+        static final int NUMBER = 1;    // inside a number that starts at tokenStart
+        static final int NAME = 2;      // inside a function name that starts at tokenStart
+        static final int OPERATOR = 3;  // after a complete factor, held in operand
+        static final int FALLBACK = 4;  // beyond what frames model; the parser takes over
+
+        static final Frame START = new Frame(OPERAND, Level.TOP, false, 0, 0);
+        static final Frame UNSUPPORTED = new Frame(FALLBACK, Level.TOP, false, 0, 0);
+
+        final int mode;
+        final Level level;
+        final boolean negative;
+        final int tokenStart;
+        final double operand;
+
+        Frame(int mode, Level level, boolean negative, int tokenStart, double operand) {
+            this.mode = mode;
+            this.level = level;
+            this.negative = negative;
+            this.tokenStart = tokenStart;
+            this.operand = operand;
+        }
+
+        /** The frame after the character at {@code index}. */
+        Frame next(CharSequence text, int index) {
+            try {
+                return advance(text, index);
+            } catch (Exception e) {
+                // An error the parser will report, e.g. a division by zero
+                return UNSUPPORTED;
+            }
+        }
+
+        private Frame advance(CharSequence text, int index) throws Exception {
+            char c = text.charAt(index);
+            switch (mode) {
+                case OPERAND:
+                    if (c == '-') {
+                        return new Frame(OPERAND, level, !negative, 0, 0);
+                    }
+                    if (c == '+') {
+                        return this;
+                    }
+                    if (c == '(') {
+                        return new Frame(OPERAND, level.open(null, negative), false, 0, 0);
+                    }
+                    if (isNumberPart(c)) {
+                        return new Frame(NUMBER, level, negative, index, 0);
+                    }
+                    if (isLetter(c)) {
+                        return new Frame(NAME, level, negative, index, 0);
+                    }
+                    return UNSUPPORTED;
+                case NUMBER:
+                    if (isNumberPart(c)) {
+                        return this;
+                    }
+                    return afterFactor(level, number(text, index), c);
+                case NAME:
+                    if (isLetter(c)) {
+                        return this;
+                    }
+                    if (c == '(') {
+                        String name = text.subSequence(tokenStart, index).toString().toLowerCase();
+                        return new Frame(OPERAND, level.open(MathFunction.forName(name), negative), false, 0, 0);
+                    }
+                    return UNSUPPORTED;
+                case OPERATOR:
+                    return afterFactor(level, operand, c);
+                default:
+                    return this;
+            }
+        }
+
+        private static Frame afterFactor(Level level, double factor, char c) throws Exception {
+            switch (c) {
+                case '^':
+                    return new Frame(OPERAND, level.power(factor), false, 0, 0);
+                case '*':
+                case '/':
+                    return new Frame(OPERAND, level.product(c, factor), false, 0, 0);
+                case '+':
+                case '-':
+                    return new Frame(OPERAND, level.sum(c, factor), false, 0, 0);
+                case ')':
+                    if (level.parent == null) {
+                        // The parser stops here and ignores the rest
+                        return UNSUPPORTED;
+                    }
+                    return new Frame(OPERATOR, level.parent, false, 0, level.close(factor));
+                default:
+                    return UNSUPPORTED;
+            }
+        }
+
+        /** Value of the text up to {@code length} with every open level closed. */
+        double close(CharSequence text, int length) throws Exception {
+            double factor = mode == NUMBER ? number(text, length) : operand;
+            Level current = level;
+            while (current.parent != null) {
+                factor = current.close(factor);
+                current = current.parent;
+            }
+            return current.value(factor);
+        }
+
+        private double number(CharSequence text, int end) {
+            double value = DecimalParser.parse(text, tokenStart, end);
+            return negative ? -value : value;
+        }
+
+        private static boolean isNumberPart(char c) {
+            return (c >= '0' && c <= '9') || c == '.' || c == ',';
+        }
+
+        private static boolean isLetter(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+    }
+
+    /**
+     * One parenthesis level: {@code sum sumOperator product productOperator
+     * powers^...}, where the product and the power chain still wait for the
+     * next factor.
+     */
+    private static final class Level {
+        static final Level TOP = new Level(null, null, false, 0, (char) 0, 0, (char) 0, null);
+
+        final Level parent;
+        final int depth;
+        final MathFunction function;
+        final boolean negative;
+        final double sum;
+        final char sumOperator;
+        final double product;
+        final char productOperator;
+        final Power powers;
+
+        Level(Level parent, MathFunction function, boolean negative,
+              double sum, char sumOperator, double product, char productOperator, Power powers) {
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            this.function = function;
+            this.negative = negative;
+            this.sum = sum;
+            this.sumOperator = sumOperator;
+            this.product = product;
+            this.productOperator = productOperator;
+            this.powers = powers;
+        }
+
+        /** A new level for '(' or a function call, negated when closed if {@code negative}. */
+        Level open(MathFunction function, boolean negative) {
+            return new Level(this, function, negative, 0, (char) 0, 0, (char) 0, null);
+        }
+
+        Level power(double base) {
+            return new Level(parent, function, negative, sum, sumOperator, product, productOperator,
+                    new Power(base, powers));
+        }
+
+        Level product(char operator, double factor) throws Exception {
+            return new Level(parent, function, negative, sum, sumOperator, term(factor), operator, null);
+        }
+
+        Level sum(char operator, double factor) throws Exception {
+            return new Level(parent, function, negative, value(factor), operator, 0, (char) 0, null);
+        }
+
+        /** Value of this level when {@code factor} is its last factor. */
+        double value(double factor) throws Exception {
+            double term = term(factor);
+            return sumOperator == 0 ? term : apply(sumOperator, sum, term);
+        }
+
+        /** Value of the parenthesis or function call this level ends with. */
+        double close(double factor) throws Exception {
+            double value = value(factor);
+            if (function != null) {
+                value = function.apply(value);
+            }
+            return negative ? -value : value;
+        }
+
+        private double term(double factor) throws Exception {
+            // '^' is right-associative: the most recent base takes the factor first
+            double value = factor;
+            for (Power power = powers; power != null; power = power.next) {
+                value = Math.pow(power.base, value);
+            }
+            return productOperator == 0 ? value : apply(productOperator, product, value);
+        }
+
+        private static double apply(char operator, double left, double right) throws Exception {
+            switch (operator) {
+                case '+':
+                    return left + right;
+                case '-':
+                    return left - right;
+                case '*':
+                    return left * right;
+                default:
+                    if (right == 0) {
+                        throw new Exception("Divisão por zero");
+                    }
+                    return left / right;
+            }
+        }
+    }
+
+    private static final class Power {
+        final double base;
+        final Power next;
+
+        Power(double base, Power next) {
+            this.base = base;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.testcalculadora.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Integrates a compiled expression over one of its variables by adaptive
+ * Gauss–Kronrod quadrature.
+ *
+ * <p>Each panel is integrated with the 15-point Kronrod rule, and the
+ * difference from the embedded 7-point Gauss rule estimates its error, as in
+ * QUADPACK's QAG. Refinement runs in rounds: every panel whose error exceeds
+ * an equal share of the tolerance is halved, and all the new panels of a
+ * round are evaluated as one batch by a {@link ParallelEvaluator}, so rounds
+ * with many panels, as on long ranges or rough integrands, are split across
+ * its fork/join pool.
+ *
+ * <p>Instances are immutable and safe to share between threads.
+ */
+public final class Integrator {
+
+    public static final double DEFAULT_ABSOLUTE_TOLERANCE = 1e-10;
+    public static final double DEFAULT_RELATIVE_TOLERANCE = 1e-10;
+    public static final int DEFAULT_MAX_EVALUATIONS = 1 << 20;
+
+    // Kronrod nodes on [-1, 1] from the edge inwards, then the middle;
+    // the odd ones are also the Gauss nodes
+    private static final double[] NODES = {
+            0.991455371120812639206854697526329, 0.949107912342758524526189684047851,
+            0.864864423359769072789712788640926, 0.741531185599394439863864773280788,
+            0.586087235467691130294144845693013, 0.405845151377397166906606412076961,
+            0.207784955007898467600689403773245, 0.000000000000000000000000000000000};
+    private static final double[] KRONROD_WEIGHTS = {
+            0.022935322010529224963732008058970, 0.063092092629978553290700663189204,
+            0.104790010322250183839876322541518, 0.140653259715525918745189590510238,
+            0.169004726639267902826583426598550, 0.190350578064785409913256402421014,
+            0.204432940075298892414161999234649, 0.209482141084727828012999174891714};
+    private static final double[] GAUSS_WEIGHTS = {
+            0.129484966168869693270611432679082, 0.279705391489276667901467771423780,
+            0.381830050505118944950369775488975, 0.417959183673469387755102040816327};
+
+    static final int POINTS = 15;
+
+    private static final double EPSILON = Math.ulp(1.0);
+
+    private final CompiledExpression expression;
+    private final int slot;
+    private final ParallelEvaluator evaluator;
+    private final double absoluteTolerance;
+    private final double relativeTolerance;
+    private final int maxEvaluations;
+
+    public Integrator(CompiledExpression expression, String variable) {
+        this(expression, slotOf(expression, variable), new ParallelEvaluator(expression),
+                DEFAULT_ABSOLUTE_TOLERANCE, DEFAULT_RELATIVE_TOLERANCE, DEFAULT_MAX_EVALUATIONS);
+    }
+
+    public Integrator(CompiledExpression expression, String variable, ForkJoinPool pool, int sequentialThreshold) {
+        this(expression, slotOf(expression, variable), new ParallelEvaluator(expression, pool, sequentialThreshold),
+                DEFAULT_ABSOLUTE_TOLERANCE, DEFAULT_RELATIVE_TOLERANCE, DEFAULT_MAX_EVALUATIONS);
+    }
+
+    private Integrator(CompiledExpression expression, int slot, ParallelEvaluator evaluator,
+                       double absoluteTolerance, double relativeTolerance, int maxEvaluations) {
+        this.expression = expression;
+        this.slot = slot;
+        this.evaluator = evaluator;
+        this.absoluteTolerance = absoluteTolerance;
+        this.relativeTolerance = relativeTolerance;
+        this.maxEvaluations = maxEvaluations;
+    }
+
+    static int slotOf(CompiledExpression expression, String variable) {
+        int slot = expression.indexOfVariable(variable);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Variável não declarada: " + variable);
+        }
+        return slot;
+    }
+
+    /**
+     * An integrator that stops once the estimated error is below
+     * {@code absolute} or {@code relative} times the magnitude of the result.
+     */
+    public Integrator withTolerance(double absolute, double relative) {
+        if (!(absolute >= 0) || !(relative >= 0)) {
+            throw new IllegalArgumentException("Tolerância inválida: " + absolute + ", " + relative);
+        }
+        return new Integrator(expression, slot, evaluator, absolute, relative, maxEvaluations);
+    }
+
+    /** An integrator that gives up, unconverged, after about this many evaluations. */
+    public Integrator withMaxEvaluations(int maxEvaluations) {
+        if (maxEvaluations < POINTS) {
+            throw new IllegalArgumentException("Número de avaliações inválido: " + maxEvaluations);
+        }
+        return new Integrator(expression, slot, evaluator, absoluteTolerance, relativeTolerance, maxEvaluations);
+    }
+
+    /**
+     * Integrates from {@code lower} to {@code upper}, with the other
+     * variables fixed at {@code bindings}; the integration variable's slot
+     * is ignored. The bounds must be finite. Errors from evaluating the
+     * expression are rethrown.
+     */
+    public Estimate integrate(double[] bindings, double lower, double upper) throws Exception {
+        if (bindings.length < expression.getVariableCount()) {
+            throw new IllegalArgumentException("Esperados " + expression.getVariableCount()
+                    + " valores de variáveis, recebidos " + bindings.length);
+        }
+        if (Double.isInfinite(lower) || Double.isInfinite(upper) || Double.isNaN(lower) || Double.isNaN(upper)) {
+            throw new IllegalArgumentException("Limites de integração devem ser finitos");
+        }
+        if (lower == upper) {
+            return new Estimate(0, 0, 0, true);
+        }
+        if (lower > upper) {
+            return integrate(bindings, upper, lower).negate();
+        }
+
+        Panels panels = new Panels();
+        panels.add(lower, upper);
+        long evaluations = 0;
+        while (true) {
+            evaluations += evaluate(bindings, panels);
+            CompensatedSum value = new CompensatedSum();
+            double error = 0;
+            for (int i = 0; i < panels.count; i++) {
+                value.add(panels.values[i]);
+                error += panels.errors[i];
+            }
+            double total = value.value();
+            double tolerance = Math.max(absoluteTolerance, relativeTolerance * Math.abs(total));
+            if (error <= tolerance) {
+                return new Estimate(total, error, evaluations, true);
+            }
+            if (!(error < Double.POSITIVE_INFINITY)) {
+                // Not a number or infinite somewhere: halving cannot help
+                return new Estimate(total, error, evaluations, false);
+            }
+            // At least one panel is over an equal share of the tolerance
+            double share = tolerance / panels.count;
+            Panels refined = new Panels();
+            int halved = 0;
+            for (int i = 0; i < panels.count; i++) {
+                double a = panels.lowers[i];
+                double b = panels.uppers[i];
+                double middle = a + (b - a) / 2;
+                boolean divisible = middle > a && middle < b;
+                if (divisible && panels.errors[i] > share) {
+                    refined.add(a, middle);
+                    refined.add(middle, b);
+                    halved++;
+                } else {
+                    refined.keep(panels, i);
+                }
+            }
+            if (halved == 0 || evaluations + 2L * halved * POINTS > maxEvaluations) {
+                return new Estimate(total, error, evaluations, false);
+            }
+            panels = refined;
+        }
+    }
+
+    /**
+     * Evaluates every panel not yet evaluated, all nodes in one batch, and
+     * returns the number of evaluations.
+     */
+    private int evaluate(double[] bindings, Panels panels) throws Exception {
+        int pending = 0;
+        int[] indexes = new int[panels.count];
+        for (int i = 0; i < panels.count; i++) {
+            if (!panels.evaluated[i]) {
+                indexes[pending++] = i;
+            }
+        }
+        int rows = pending * POINTS;
+        double[][] columns = new double[expression.getVariableCount()][];
+        for (int v = 0; v < columns.length; v++) {
+            if (v != slot) {
+                columns[v] = new double[rows];
+                Arrays.fill(columns[v], bindings[v]);
+            }
+        }
+        double[] x = new double[rows];
+        for (int p = 0; p < pending; p++) {
+            int i = indexes[p];
+            double center = panels.lowers[i] / 2 + panels.uppers[i] / 2;
+            double half = panels.uppers[i] / 2 - panels.lowers[i] / 2;
+            int row = p * POINTS;
+            for (int j = 0; j < 7; j++) {
+                x[row + 2 * j] = center - half * NODES[j];
+                x[row + 2 * j + 1] = center + half * NODES[j];
+            }
+            x[row + 14] = center;
+        }
+        columns[slot] = x;
+        double[] y = new double[rows];
+        evaluator.evaluate(columns, y);
+        for (int p = 0; p < pending; p++) {
+            int i = indexes[p];
+            rule(panels, i, y, p * POINTS);
+        }
+        return rows;
+    }
+
+    /**
+     * The Kronrod value and the QUADPACK error estimate of panel i, from its
+     * 15 values starting at {@code offset}: pairs of symmetric nodes from the
+     * edge inwards, then the middle.
+     */
+    private static void rule(Panels panels, int i, double[] y, int offset) {
+        double half = panels.uppers[i] / 2 - panels.lowers[i] / 2;
+        double middle = y[offset + 14];
+        double kronrod = KRONROD_WEIGHTS[7] * middle;
+        double gauss = GAUSS_WEIGHTS[3] * middle;
+        double absolute = Math.abs(kronrod);
+        for (int j = 0; j < 7; j++) {
+            double left = y[offset + 2 * j];
+            double right = y[offset + 2 * j + 1];
+            kronrod += KRONROD_WEIGHTS[j] * (left + right);
+            absolute += KRONROD_WEIGHTS[j] * (Math.abs(left) + Math.abs(right));
+            if (j % 2 == 1) {
+                gauss += GAUSS_WEIGHTS[j / 2] * (left + right);
+            }
+        }
+        double mean = kronrod / 2;
+        double spread = KRONROD_WEIGHTS[7] * Math.abs(middle - mean);
+        for (int j = 0; j < 7; j++) {
+            spread += KRONROD_WEIGHTS[j] * (Math.abs(y[offset + 2 * j] - mean) + Math.abs(y[offset + 2 * j + 1] - mean));
+        }
+
+        double error = Math.abs((kronrod - gauss) * half);
+        spread *= Math.abs(half);
+        absolute *= Math.abs(half);
+        // QUADPACK's scaling: the raw difference is pessimistic for smooth
+        // integrands, and rounding limits how small the error can get
+        if (spread != 0 && error != 0) {
+            error = spread * Math.min(1, Math.pow(200 * error / spread, 1.5));
+        }
+        if (absolute > Double.MIN_NORMAL / (50 * EPSILON)) {
+            error = Math.max(50 * EPSILON * absolute, error);
+        }
+        panels.values[i] = kronrod * half;
+        panels.errors[i] = error;
+        panels.evaluated[i] = true;
+    }
+
+    /** Panels of one round, in order, as parallel arrays. */
+    private static final class Panels {
+        double[] lowers = new double[16];
+        double[] uppers = new double[16];
+        double[] values = new double[16];
+        double[] errors = new double[16];
+        boolean[] evaluated = new boolean[16];
+        int count;
+
+        void add(double lower, double upper) {
+            grow();
+            lowers[count] = lower;
+            uppers[count] = upper;
+            evaluated[count] = false;
+            count++;
+        }
+
+        /** Copies an evaluated panel from the previous round. */
+        void keep(Panels previous, int i) {
+            grow();
+            lowers[count] = previous.lowers[i];
+            uppers[count] = previous.uppers[i];
+            values[count] = previous.values[i];
+            errors[count] = previous.errors[i];
+            evaluated[count] = true;
+            count++;
+        }
+
+        private void grow() {
+            if (count == lowers.length) {
+                int capacity = count * 2;
+                lowers = Arrays.copyOf(lowers, capacity);
+                uppers = Arrays.copyOf(uppers, capacity);
+                values = Arrays.copyOf(values, capacity);
+                errors = Arrays.copyOf(errors, capacity);
+                evaluated = Arrays.copyOf(evaluated, capacity);
+            }
+        }
+    }
+}
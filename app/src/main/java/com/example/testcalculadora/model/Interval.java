@@ -0,0 +1,83 @@
+package com.example.testcalculadora.model;
+
+/**
+ * A closed range of reals {@code [lower, upper]} with double bounds, as
+ * returned by {@link IntervalExpression}. Bounds may be infinite when a
+ * value overflows. Instances are immutable.
+ */
+public final class Interval {
+
+    private final double lower;
+    private final double upper;
+
+    private Interval(double lower, double upper) {
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    public static Interval of(double lower, double upper) {
+        if (!(lower <= upper)) {
+            throw new IllegalArgumentException("Intervalo inválido: [" + lower + ", " + upper + "]");
+        }
+        return new Interval(lower, upper);
+    }
+
+    public static Interval point(double value) {
+        return of(value, value);
+    }
+
+    public double getLower() {
+        return lower;
+    }
+
+    public double getUpper() {
+        return upper;
+    }
+
+    public double width() {
+        return upper - lower;
+    }
+
+    /** The point halfway between the bounds, or a bound if the other is infinite. */
+    public double midpoint() {
+        if (Double.isInfinite(lower)) {
+            return Double.isInfinite(upper) ? 0 : upper;
+        }
+        if (Double.isInfinite(upper)) {
+            return lower;
+        }
+        return lower / 2 + upper / 2;
+    }
+
+    public boolean contains(double value) {
+        return lower <= value && value <= upper;
+    }
+
+    /** Whether the two intervals share at least one point. */
+    public boolean intersects(Interval other) {
+        return lower <= other.upper && other.lower <= upper;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Interval)) {
+            return false;
+        }
+        Interval interval = (Interval) other;
+        return Double.compare(lower, interval.lower) == 0 && Double.compare(upper, interval.upper) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        long bits = 31 * Double.doubleToLongBits(lower) + Double.doubleToLongBits(upper);
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "[" + lower + ", " + upper + "]";
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.testcalculadora.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An expression compiled by
+ * {@link ExpressionParser#compileInterval(String, String...)} for evaluation
+ * with interval arithmetic. The result is guaranteed to contain the exact
+ * value of the expression for every choice of variables inside their
+ * intervals. It runs as a postfix program over a stack of bounds, reused
+ * per thread, so evaluation allocates only the result. Instances are
+ * immutable and safe to share between threads.
+ */
+public final class IntervalExpression {
+
+    private static final Interval[] NO_BINDINGS = new Interval[0];
+
+    private static final MathFunction[] FUNCTIONS = MathFunction.values();
+
+    private final String[] variables;
+    private final int[] code;
+    private final double[] constantLowers;
+    private final double[] constantUppers;
+    // Lower and upper bounds of the value stack
+    private final ThreadLocal<double[][]> stacks;
+
+    IntervalExpression(ExpressionNode root, String[] variables, Map<ExpressionNode, BigDecimal> literals) {
+        this.variables = variables;
+        Assembler assembler = new Assembler(literals);
+        assembler.apply(root);
+        this.code = assembler.code();
+        List<Interval> constants = assembler.constants();
+        this.constantLowers = new double[constants.size()];
+        this.constantUppers = new double[constants.size()];
+        for (int i = 0; i < constants.size(); i++) {
+            constantLowers[i] = constants.get(i).getLower();
+            constantUppers[i] = constants.get(i).getUpper();
+        }
+        final int maxStack = assembler.maxStack();
+        this.stacks = new ThreadLocal<double[][]>() {
+            @Override
+            protected double[][] initialValue() {
+                return new double[][] {new double[maxStack], new double[maxStack]};
+            }
+        };
+    }
+
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    public Interval evaluate() throws Exception {
+        return evaluate(NO_BINDINGS);
+    }
+
+    /**
+     * Evaluates with the i-th variable ranging over {@code bindings[i]}.
+     * Fails when some point of the ranges could fail, such as a divisor
+     * interval containing zero. Unlike double evaluation, it also fails for
+     * a {@code tan} argument at or next to a pole, where double evaluation of
+     * {@code tan(90)} returns a large finite value because 90 degrees is
+     * rounded on the way to radians, and for a base that may be negative
+     * under a fractional exponent, where {@code Math.pow} returns NaN.
+     */
+    public Interval evaluate(Interval... bindings) throws Exception {
+        if (bindings.length < variables.length) {
+            throw new IllegalArgumentException("Esperados " + variables.length
+                    + " valores de variáveis, recebidos " + bindings.length);
+        }
+        double[][] stack = stacks.get();
+        double[] lower = stack[0];
+        double[] upper = stack[1];
+        int top = -1;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case PostfixCode.CONSTANT:
+                    top++;
+                    lower[top] = constantLowers[code[pc]];
+                    upper[top] = constantUppers[code[pc++]];
+                    break;
+                case PostfixCode.LOAD:
+                    top++;
+                    lower[top] = bindings[code[pc]].getLower();
+                    upper[top] = bindings[code[pc++]].getUpper();
+                    break;
+                case PostfixCode.NEGATE:
+                    IntervalMath.negate(lower, upper, top);
+                    break;
+                case PostfixCode.ADD:
+                    IntervalMath.add(lower, upper, --top);
+                    break;
+                case PostfixCode.SUBTRACT:
+                    IntervalMath.subtract(lower, upper, --top);
+                    break;
+                case PostfixCode.MULTIPLY:
+                    IntervalMath.multiply(lower, upper, --top);
+                    break;
+                case PostfixCode.DIVIDE:
+                    IntervalMath.divide(lower, upper, --top);
+                    break;
+                case PostfixCode.POWER:
+                    IntervalMath.pow(lower, upper, --top);
+                    break;
+                case PostfixCode.FUNCTION:
+                    IntervalMath.apply(FUNCTIONS[code[pc++]], lower, upper, top);
+                    break;
+                default:
+                    throw new IllegalStateException("Instrução inválida: " + code[pc - 1]);
+            }
+        }
+        return Interval.of(lower[top], upper[top]);
+    }
+
+    /**
+     * Numbers are enclosed from the literals recorded by the parser.
+     */
+    private static final class Assembler extends PostfixCode<Interval> {
+        private final Map<ExpressionNode, BigDecimal> literals;
+
+        Assembler(Map<ExpressionNode, BigDecimal> literals) {
+            this.literals = literals;
+        }
+
+        @Override
+        Interval constant(ExpressionNode.Constant node) {
+            BigDecimal literal = literals.get(node);
+            return literal != null ? IntervalMath.enclose(literal) : Interval.point(node.value);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.testcalculadora.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Interval arithmetic with outward rounding on pairs of doubles. The
+ * operations work in place on parallel arrays of lower and upper bounds,
+ * so an evaluation stack of intervals allocates nothing.
+ *
+ * <p>Java rounds to nearest only, so each computed bound is moved outward
+ * afterwards: by one double for the correctly rounded {@code + - * /} and
+ * square root, and by two for the library functions, which are accurate to
+ * one ulp. An infinite bound stands for overflow; NaN never appears.
+ *
+ * <p>A result must hold for every point of the operands, so an operand that
+ * reaches outside a function's domain is the same error as for a double.
+ */
+final class IntervalMath {
+
+    // pi/180 rounded each way
+    private static final double RADIANS_LOWER = Math.nextDown(Math.PI / 180);
+    private static final double RADIANS_UPPER = Math.nextUp(Math.PI / 180);
+
+    private IntervalMath() {
+    }
+
+    /** The narrowest interval of doubles containing {@code value}. */
+    static Interval enclose(BigDecimal value) {
+        double nearest = value.doubleValue();
+        if (Double.isInfinite(nearest)) {
+            return nearest > 0
+                    ? Interval.of(Double.MAX_VALUE, Double.POSITIVE_INFINITY)
+                    : Interval.of(Double.NEGATIVE_INFINITY, -Double.MAX_VALUE);
+        }
+        int comparison = new BigDecimal(nearest).compareTo(value);
+        if (comparison == 0) {
+            return Interval.point(nearest);
+        }
+        return comparison < 0
+                ? Interval.of(nearest, Math.nextUp(nearest))
+                : Interval.of(Math.nextDown(nearest), nearest);
+    }
+
+    static void negate(double[] lower, double[] upper, int i) {
+        double low = lower[i];
+        lower[i] = -upper[i];
+        upper[i] = -low;
+    }
+
+    /** Combines the intervals at {@code i} and {@code i + 1} into {@code i}. */
+    static void add(double[] lower, double[] upper, int i) {
+        lower[i] = sumDown(lower[i], lower[i + 1]);
+        upper[i] = sumUp(upper[i], upper[i + 1]);
+    }
+
+    static void subtract(double[] lower, double[] upper, int i) {
+        double low = sumDown(lower[i], -upper[i + 1]);
+        upper[i] = sumUp(upper[i], -lower[i + 1]);
+        lower[i] = low;
+    }
+
+    static void multiply(double[] lower, double[] upper, int i) {
+        double a = lower[i];
+        double b = upper[i];
+        double c = lower[i + 1];
+        double d = upper[i + 1];
+        if (a == b && c == d) {
+            double product = a * c;
+            lower[i] = down(product);
+            upper[i] = up(product);
+            return;
+        }
+        double ac = product(a, c);
+        double ad = product(a, d);
+        double bc = product(b, c);
+        double bd = product(b, d);
+        lower[i] = down(Math.min(Math.min(ac, ad), Math.min(bc, bd)));
+        upper[i] = up(Math.max(Math.max(ac, ad), Math.max(bc, bd)));
+    }
+
+    static void divide(double[] lower, double[] upper, int i) throws Exception {
+        double c = lower[i + 1];
+        double d = upper[i + 1];
+        if (c <= 0 && d >= 0) {
+            throw new Exception("Divisão por zero");
+        }
+        double a = lower[i];
+        double b = upper[i];
+        // The divisor has one sign, so no quotient is 0/0 or inf/inf unless
+        // both operands overflowed
+        double ac = quotient(a, c);
+        double ad = quotient(a, d);
+        double bc = quotient(b, c);
+        double bd = quotient(b, d);
+        lower[i] = down(Math.min(Math.min(ac, ad), Math.min(bc, bd)));
+        upper[i] = up(Math.max(Math.max(ac, ad), Math.max(bc, bd)));
+    }
+
+    /** Raises the interval at {@code i} to the one at {@code i + 1}, into {@code i}. */
+    static void pow(double[] lower, double[] upper, int i) throws Exception {
+        double a = lower[i];
+        double b = upper[i];
+        double c = lower[i + 1];
+        double d = upper[i + 1];
+        if (c == d && c == Math.rint(c) && Math.abs(c) <= 1 << 30) {
+            integerPower(lower, upper, i, (int) c);
+            return;
+        }
+        if (a < 0) {
+            throw new Exception("Potência de base negativa com expoente fracionário");
+        }
+        if (a == 0 && c <= 0) {
+            throw new Exception("Divisão por zero");
+        }
+        // On a positive base x^y is monotonic in each operand, so the
+        // extremes are at the corners
+        double ac = Math.pow(a, c);
+        double ad = Math.pow(a, d);
+        double bc = Math.pow(b, c);
+        double bd = Math.pow(b, d);
+        lower[i] = Math.max(0, down2(Math.min(Math.min(ac, ad), Math.min(bc, bd))));
+        upper[i] = up2(Math.max(Math.max(ac, ad), Math.max(bc, bd)));
+    }
+
+    private static void integerPower(double[] lower, double[] upper, int i, int exponent) throws Exception {
+        double a = lower[i];
+        double b = upper[i];
+        if (exponent == 0) {
+            lower[i] = 1;
+            upper[i] = 1;
+            return;
+        }
+        if (exponent < 0 && a <= 0 && b >= 0) {
+            throw new Exception("Divisão por zero");
+        }
+        double low = Math.pow(a, exponent);
+        double high = Math.pow(b, exponent);
+        if (exponent % 2 != 0) {
+            // Odd powers keep the order; negative ones reverse it on each side of 0
+            lower[i] = down2(Math.min(low, high));
+            upper[i] = up2(Math.max(low, high));
+        } else if (a >= 0 || b <= 0) {
+            lower[i] = Math.max(0, down2(Math.min(low, high)));
+            upper[i] = up2(Math.max(low, high));
+        } else {
+            // An even positive power of an interval around 0
+            lower[i] = 0;
+            upper[i] = up2(Math.max(low, high));
+        }
+    }
+
+    static void apply(MathFunction function, double[] lower, double[] upper, int i) throws Exception {
+        double a = lower[i];
+        double b = upper[i];
+        switch (function) {
+            case SIN:
+                sine(lower, upper, i, a, b, false);
+                break;
+            case COS:
+                sine(lower, upper, i, a, b, true);
+                break;
+            case TAN:
+                tangent(lower, upper, i, a, b);
+                break;
+            case SQRT:
+                if (a < 0) {
+                    throw new Exception("Raiz quadrada de número negativo");
+                }
+                lower[i] = Math.max(0, down(Math.sqrt(a)));
+                upper[i] = up(Math.sqrt(b));
+                break;
+            case LOG:
+                checkLogarithm(a);
+                lower[i] = down2(Math.log10(a));
+                upper[i] = up2(Math.log10(b));
+                break;
+            default:
+                checkLogarithm(a);
+                lower[i] = down2(Math.log(a));
+                upper[i] = up2(Math.log(b));
+                break;
+        }
+    }
+
+    private static void checkLogarithm(double lower) throws Exception {
+        if (lower <= 0) {
+            throw new Exception("Logaritmo de número não positivo");
+        }
+    }
+
+    /** Sine, or cosine when {@code cosine} is set, of degrees in [a, b]. */
+    private static void sine(double[] lower, double[] upper, int i, double a, double b, boolean cosine) {
+        if (!(b - a < 360)) {
+            lower[i] = -1;
+            upper[i] = 1;
+            return;
+        }
+        // Between the endpoints the function only turns at its peaks and troughs
+        double low = Math.min(sineDown(a, cosine), sineDown(b, cosine));
+        double high = Math.max(sineUp(a, cosine), sineUp(b, cosine));
+        double peak = cosine ? 0 : 90;
+        if (containsPeriodPoint(a, b, peak, 360)) {
+            high = 1;
+        }
+        if (containsPeriodPoint(a, b, peak + 180, 360)) {
+            low = -1;
+        }
+        lower[i] = Math.max(-1, low);
+        upper[i] = Math.min(1, high);
+    }
+
+    private static void tangent(double[] lower, double[] upper, int i, double a, double b) throws Exception {
+        // Poles at 90 + 180k, where the double result is only finite by rounding
+        if (!(b - a < 180) || containsPeriodPoint(a, b, 90, 180)) {
+            throw new Exception("Divisão por zero");
+        }
+        // Increasing between poles; each endpoint spans its rounded radians
+        double low = down2(Math.tan(radiansDown(a % 180)));
+        double high = up2(Math.tan(radiansUp(b % 180)));
+        if (low > high) {
+            // Widened to radians, the range reaches a pole after all
+            throw new Exception("Divisão por zero");
+        }
+        lower[i] = low;
+        upper[i] = high;
+    }
+
+    /**
+     * Whether [a, b] may contain {@code point + period * k} for some k. Errs
+     * toward true, which only widens the result.
+     */
+    private static boolean containsPeriodPoint(double a, double b, double point, double period) {
+        double first = Math.ceil(down(down(a - point) / period));
+        double last = Math.floor(up(up(b - point) / period));
+        return first <= last;
+    }
+
+    // Smallest and largest value over the radians a degree value may round
+    // to; a peak or trough between them is caught by containsPeriodPoint
+
+    private static double sineDown(double degrees, boolean cosine) {
+        // The remainder is exact, and keeps the radians error small
+        degrees %= 360;
+        return down2(Math.min(sine(radiansDown(degrees), cosine), sine(radiansUp(degrees), cosine)));
+    }
+
+    private static double sineUp(double degrees, boolean cosine) {
+        degrees %= 360;
+        return up2(Math.max(sine(radiansDown(degrees), cosine), sine(radiansUp(degrees), cosine)));
+    }
+
+    private static double sine(double radians, boolean cosine) {
+        return cosine ? Math.cos(radians) : Math.sin(radians);
+    }
+
+    private static double radiansDown(double degrees) {
+        return down(degrees * (degrees >= 0 ? RADIANS_LOWER : RADIANS_UPPER));
+    }
+
+    private static double radiansUp(double degrees) {
+        return up(degrees * (degrees >= 0 ? RADIANS_UPPER : RADIANS_LOWER));
+    }
+
+    /** a + b rounded down: exact when the two-sum error is zero. */
+    private static double sumDown(double a, double b) {
+        double sum = a + b;
+        if (Double.isInfinite(sum)) {
+            return sum > 0 ? Double.MAX_VALUE : sum;
+        }
+        return sumError(a, b, sum) < 0 ? Math.nextDown(sum) : sum;
+    }
+
+    private static double sumUp(double a, double b) {
+        double sum = a + b;
+        if (Double.isInfinite(sum)) {
+            return sum < 0 ? -Double.MAX_VALUE : sum;
+        }
+        return sumError(a, b, sum) > 0 ? Math.nextUp(sum) : sum;
+    }
+
+    /** Knuth's two-sum: the exact a + b minus the rounded {@code sum}. */
+    private static double sumError(double a, double b, double sum) {
+        double bVirtual = sum - a;
+        double aVirtual = sum - bVirtual;
+        return (a - aVirtual) + (b - bVirtual);
+    }
+
+    /** A corner product; 0 times infinity is 0 for bounds. */
+    private static double product(double a, double b) {
+        return a == 0 || b == 0 ? 0 : a * b;
+    }
+
+    private static double quotient(double a, double b) {
+        double q = a / b;
+        return Double.isNaN(q) ? 0 : q;
+    }
+
+    // An overflowed bound moves to the largest double: still a bound
+
+    private static double down(double value) {
+        return Math.nextDown(value);
+    }
+
+    private static double up(double value) {
+        return Math.nextUp(value);
+    }
+
+    private static double down2(double value) {
+        return down(down(value));
+    }
+
+    private static double up2(double value) {
+        return up(up(value));
+    }
+}
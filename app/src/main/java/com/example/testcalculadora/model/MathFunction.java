@@ -0,0 +1,145 @@
+package com.example.testcalculadora.model;
+
+/**
+ * Scientific functions understood by {@link ExpressionParser}. Trigonometric
+ * functions take their argument in degrees, like the calculator keypad.
+ */
+public enum MathFunction {
+    SIN("sin") {
+        @Override
+        public double apply(double argument) {
+            return Math.sin(Math.toRadians(argument));
+        }
+
+        @Override
+        void applyAll(double[] values, int offset, int length) {
+            for (int i = offset, end = offset + length; i < end; i++) {
+                values[i] = Math.sin(Math.toRadians(values[i]));
+            }
+        }
+    },
+    COS("cos") {
+        @Override
+        public double apply(double argument) {
+            return Math.cos(Math.toRadians(argument));
+        }
+
+        @Override
+        void applyAll(double[] values, int offset, int length) {
+            for (int i = offset, end = offset + length; i < end; i++) {
+                values[i] = Math.cos(Math.toRadians(values[i]));
+            }
+        }
+    },
+    TAN("tan") {
+        @Override
+        public double apply(double argument) {
+            return Math.tan(Math.toRadians(argument));
+        }
+
+        @Override
+        void applyAll(double[] values, int offset, int length) {
+            for (int i = offset, end = offset + length; i < end; i++) {
+                values[i] = Math.tan(Math.toRadians(values[i]));
+            }
+        }
+    },
+    SQRT("sqrt") {
+        @Override
+        public double apply(double argument) throws Exception {
+            if (argument < 0) {
+                throw new Exception("Raiz quadrada de número negativo");
+            }
+            return Math.sqrt(argument);
+        }
+
+        @Override
+        void applyAll(double[] values, int offset, int length) throws Exception {
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                if (values[i] < 0) {
+                    throw new Exception("Raiz quadrada de número negativo");
+                }
+            }
+            for (int i = offset; i < end; i++) {
+                values[i] = Math.sqrt(values[i]);
+            }
+        }
+    },
+    LOG("log") {
+        @Override
+        public double apply(double argument) throws Exception {
+            if (argument <= 0) {
+                throw new Exception("Logaritmo de número não positivo");
+            }
+            return Math.log10(argument);
+        }
+
+        @Override
+        void applyAll(double[] values, int offset, int length) throws Exception {
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                if (values[i] <= 0) {
+                    throw new Exception("Logaritmo de número não positivo");
+                }
+            }
+            for (int i = offset; i < end; i++) {
+                values[i] = Math.log10(values[i]);
+            }
+        }
+    },
+    LN("ln") {
+        @Override
+        public double apply(double argument) throws Exception {
+            if (argument <= 0) {
+                throw new Exception("Logaritmo de número não positivo");
+            }
+            return Math.log(argument);
+        }
+
+        @Override
+        void applyAll(double[] values, int offset, int length) throws Exception {
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                if (values[i] <= 0) {
+                    throw new Exception("Logaritmo de número não positivo");
+                }
+            }
+            for (int i = offset; i < end; i++) {
+                values[i] = Math.log(values[i]);
+            }
+        }
+    };
+
+    private static final MathFunction[] VALUES = values();
+
+    private final String functionName;
+
+    MathFunction(String functionName) {
+        this.functionName = functionName;
+    }
+
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    public abstract double apply(double argument) throws Exception;
+
+    /**
+     * Applies the function in place to {@code length} values starting at
+     * {@code offset}. Domain checks run before any value is overwritten.
+     */
+    abstract void applyAll(double[] values, int offset, int length) throws Exception;
+
+    /**
+     * Looks up a function by its lower-case name.
+     */
+    public static MathFunction forName(String name) throws Exception {
+        for (MathFunction function : VALUES) {
+            if (function.functionName.equals(name)) {
+                return function;
+            }
+        }
+        throw new Exception("Função desconhecida: " + name);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.testcalculadora.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates large batches of rows on a fork/join pool.
+ *
+ * <p>The row range is split in halves until a piece is at most
+ * {@link #getSequentialThreshold()} rows, and each piece is evaluated with its
+ * own {@link BatchEvaluator}. Every row is written to its own index of the
+ * results array, so the output order matches the input no matter which
+ * worker evaluated it. The compiled expression is immutable and shared by all
+ * workers; one evaluator can be used from several threads at once.
+ */
+public final class ParallelEvaluator {
+
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 8 * BatchEvaluator.BLOCK_SIZE;
+
+    private final CompiledExpression expression;
+    private final ForkJoinPool pool;
+    private final int sequentialThreshold;
+
+    public ParallelEvaluator(CompiledExpression expression) {
+        this(expression, DefaultPool.INSTANCE, DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    public ParallelEvaluator(CompiledExpression expression, ForkJoinPool pool, int sequentialThreshold) {
+        if (sequentialThreshold < 1) {
+            throw new IllegalArgumentException("Limite sequencial deve ser positivo: " + sequentialThreshold);
+        }
+        this.expression = expression;
+        this.pool = pool;
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    public int getSequentialThreshold() {
+        return sequentialThreshold;
+    }
+
+    public void evaluate(double[][] columns, double[] results) throws Exception {
+        evaluate(columns, 0, results.length, results);
+    }
+
+    /**
+     * Evaluates rows {@code from} (inclusive) to {@code to} (exclusive) in
+     * parallel, writing row r to {@code results[r]}. If any row fails, every
+     * piece still runs to its end, and the error of the lowest failing row is
+     * rethrown once they have all finished.
+     */
+    public void evaluate(double[][] columns, int from, int to, double[] results) throws Exception {
+        if (to - from <= sequentialThreshold) {
+            new BatchEvaluator(expression).evaluate(columns, from, to, results);
+            return;
+        }
+        try {
+            pool.invoke(new EvaluateTask(columns, from, to, results));
+        } catch (EvaluationFailure failure) {
+            throw failure.getCause();
+        }
+    }
+
+    private final class EvaluateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[][] columns;
+        private final int from;
+        private final int to;
+        private final double[] results;
+
+        EvaluateTask(double[][] columns, int from, int to, double[] results) {
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= sequentialThreshold) {
+                try {
+                    new BatchEvaluator(expression).evaluate(columns, from, to, results);
+                } catch (Exception e) {
+                    throw new EvaluationFailure(e);
+                }
+                return;
+            }
+            // Split on a block boundary so every piece but the last runs full blocks
+            int middle = from + ((to - from) / 2 / BatchEvaluator.BLOCK_SIZE) * BatchEvaluator.BLOCK_SIZE;
+            if (middle == from) {
+                middle = from + (to - from) / 2;
+            }
+            // Unlike invokeAll, a failure cancels nothing: both halves are
+            // joined, and the lower half's error wins
+            EvaluateTask upper = new EvaluateTask(columns, middle, to, results);
+            upper.fork();
+            EvaluationFailure failure = null;
+            try {
+                new EvaluateTask(columns, from, middle, results).compute();
+            } catch (EvaluationFailure e) {
+                failure = e;
+            }
+            try {
+                upper.join();
+            } catch (EvaluationFailure e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Carries a checked evaluation error out of {@link RecursiveAction#compute()}.
+     */
+    private static final class EvaluationFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        EvaluationFailure(Exception cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized Exception getCause() {
+            return (Exception) super.getCause();
+        }
+    }
+
+    private static final class DefaultPool {
+        static final ForkJoinPool INSTANCE = new ForkJoinPool();
+    }
+}
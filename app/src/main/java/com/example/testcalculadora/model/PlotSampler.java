@@ -0,0 +1,244 @@
+package com.example.testcalculadora.model;
+
+import java.util.Arrays;
+
+/**
+ * Samples a compiled expression for plotting, as one vertical bar per
+ * pixel column: the smallest and largest value the curve takes over the
+ * column.
+ *
+ * <p>Column {@code c} of a call to {@link #sample} covers
+ * {@code [(firstColumn + c) * columnWidth, (firstColumn + c + 1) * columnWidth]}.
+ * Each column is evaluated at both edges and the middle. Any part where the
+ * middle value is more than half a pixel (by default) off the chord, or
+ * where the expression is defined at one end only, is halved again, up to
+ * a depth limit. Flat regions thus cost two evaluations per column, while
+ * the steep sides of a {@code tan} pole are followed to the depth limit, so
+ * the spike is not lost between two samples. Neighbouring columns share
+ * their edge value, so their bars always touch where the curve is
+ * continuous. Columns where the expression is nowhere defined, like
+ * {@code sqrt(x)} for negative x, hold {@code NaN}.
+ *
+ * <p>Results go into one buffer, {@link #STRIDE} floats per column, which
+ * is returned by every call. Columns sampled by the previous call are kept:
+ * panning by whole columns only samples the newly exposed ones, and zooming
+ * out by an integer factor merges existing columns and samples only the
+ * edges. Zooming in, finer vertical scales and new variable values resample
+ * everything. Not thread-safe.
+ */
+public final class PlotSampler {
+
+    public static final int STRIDE = 2;
+    public static final int MIN = 0;
+    public static final int MAX = 1;
+
+    public static final double DEFAULT_FLATNESS = 0.5;
+    public static final int DEFAULT_MAX_DEPTH = 6;
+
+    private final CompiledExpression expression;
+    private final int slot;
+    private final int columns;
+    private final double[] frame;
+    private final double flatness;
+    private final int maxDepth;
+    private final float[] buffer;
+    // The previous window, copied here while a new one is built
+    private final float[] previous;
+
+    private boolean sampled;
+    private double[] bindings;
+    private long firstColumn;
+    private double columnWidth;
+    private double yPerPixel;
+
+    private double tolerance;
+    private double low;
+    private double high;
+    private int evaluations;
+
+    public PlotSampler(CompiledExpression expression, String variable, int columns) {
+        this(expression, variable, columns, DEFAULT_FLATNESS, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * @param flatness  how far, in pixels, a curve may stray from a straight
+     *                  line between samples
+     * @param maxDepth  how many times a column may be halved
+     */
+    public PlotSampler(CompiledExpression expression, String variable, int columns, double flatness, int maxDepth) {
+        if (columns <= 0) {
+            throw new IllegalArgumentException("Número de colunas inválido: " + columns);
+        }
+        if (!(flatness > 0) || maxDepth < 0) {
+            throw new IllegalArgumentException("Parâmetros de amostragem inválidos: " + flatness + ", " + maxDepth);
+        }
+        this.expression = expression;
+        this.slot = Integrator.slotOf(expression, variable);
+        this.columns = columns;
+        this.frame = new double[expression.getVariableCount()];
+        this.flatness = flatness;
+        this.maxDepth = maxDepth;
+        this.buffer = new float[columns * STRIDE];
+        this.previous = new float[columns * STRIDE];
+    }
+
+    public int getColumnCount() {
+        return columns;
+    }
+
+    /** Evaluations made by the last call to {@link #sample}. */
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Samples the window starting at {@code firstColumn}, with the other
+     * variables fixed at {@code bindings}, and returns the buffer: the
+     * minimum and maximum of column {@code c} are at
+     * {@code c * STRIDE + MIN} and {@code c * STRIDE + MAX}.
+     *
+     * @param yPerPixel the vertical scale, which sets how closely the curve
+     *                  is followed
+     */
+    public float[] sample(double[] bindings, long firstColumn, double columnWidth, double yPerPixel) {
+        if (bindings.length < frame.length) {
+            throw new IllegalArgumentException("Esperados " + frame.length
+                    + " valores de variáveis, recebidos " + bindings.length);
+        }
+        if (!(columnWidth > 0) || !(yPerPixel > 0)
+                || Double.isInfinite(columnWidth) || Double.isInfinite(yPerPixel)) {
+            throw new IllegalArgumentException("Escala inválida: " + columnWidth + ", " + yPerPixel);
+        }
+        System.arraycopy(bindings, 0, frame, 0, frame.length);
+        evaluations = 0;
+        tolerance = flatness * yPerPixel;
+
+        // Columns of the previous window merged into each new one, if any
+        long ratio = 0;
+        if (sampled && yPerPixel >= this.yPerPixel && sameBindings(bindings)) {
+            double factor = Math.rint(columnWidth / this.columnWidth);
+            if (factor >= 1 && factor * this.columnWidth == columnWidth && factor <= columns) {
+                ratio = (long) factor;
+            }
+        }
+        System.arraycopy(buffer, 0, previous, 0, buffer.length);
+
+        int start = -1;
+        for (int c = 0; c < columns; c++) {
+            long from = ratio == 0 ? -1 : (firstColumn + c) * ratio - this.firstColumn;
+            if (from >= 0 && from + ratio <= columns) {
+                if (start >= 0) {
+                    sampleColumns(firstColumn, columnWidth, start, c);
+                    start = -1;
+                }
+                merge(c, (int) from, (int) ratio);
+            } else if (start < 0) {
+                start = c;
+            }
+        }
+        if (start >= 0) {
+            sampleColumns(firstColumn, columnWidth, start, columns);
+        }
+
+        this.sampled = true;
+        this.bindings = Arrays.copyOf(bindings, frame.length);
+        this.firstColumn = firstColumn;
+        this.columnWidth = columnWidth;
+        this.yPerPixel = yPerPixel;
+        return buffer;
+    }
+
+    /** Forgets the previous window, so the next call samples every column. */
+    public void invalidate() {
+        sampled = false;
+    }
+
+    private boolean sameBindings(double[] bindings) {
+        for (int i = 0; i < this.bindings.length; i++) {
+            if (i != slot && Double.doubleToLongBits(bindings[i]) != Double.doubleToLongBits(this.bindings[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void merge(int column, int from, int count) {
+        float min = Float.NaN;
+        float max = Float.NaN;
+        for (int i = from; i < from + count; i++) {
+            float columnMin = previous[i * STRIDE + MIN];
+            float columnMax = previous[i * STRIDE + MAX];
+            // A NaN min or max means the column is empty so far
+            if (!Float.isNaN(columnMin) && !(columnMin >= min)) {
+                min = columnMin;
+            }
+            if (!Float.isNaN(columnMax) && !(columnMax <= max)) {
+                max = columnMax;
+            }
+        }
+        buffer[column * STRIDE + MIN] = min;
+        buffer[column * STRIDE + MAX] = max;
+    }
+
+    /** Samples columns {@code from} (inclusive) to {@code to} (exclusive). */
+    private void sampleColumns(long firstColumn, double columnWidth, int from, int to) {
+        double x0 = (firstColumn + from) * columnWidth;
+        double y0 = value(x0);
+        for (int c = from; c < to; c++) {
+            double x1 = (firstColumn + c + 1) * columnWidth;
+            double y1 = value(x1);
+            low = Double.POSITIVE_INFINITY;
+            high = Double.NEGATIVE_INFINITY;
+            include(y0);
+            include(y1);
+            refine(x0, y0, x1, y1, maxDepth);
+            boolean defined = low <= high;
+            buffer[c * STRIDE + MIN] = defined ? (float) low : Float.NaN;
+            buffer[c * STRIDE + MAX] = defined ? (float) high : Float.NaN;
+            x0 = x1;
+            y0 = y1;
+        }
+    }
+
+    private void refine(double x0, double y0, double x1, double y1, int depth) {
+        double middle = x0 + (x1 - x0) / 2;
+        double y = value(middle);
+        include(y);
+        if (depth > 0 && !straight(y0, y, y1)) {
+            refine(x0, y0, middle, y, depth - 1);
+            refine(middle, y, x1, y1, depth - 1);
+        }
+    }
+
+    /**
+     * Whether a part looks like a straight line at this scale, or is
+     * undefined throughout.
+     */
+    private boolean straight(double y0, double y, double y1) {
+        boolean nan0 = Double.isNaN(y0);
+        if (nan0 != Double.isNaN(y) || nan0 != Double.isNaN(y1)) {
+            return false;
+        }
+        return nan0 || Math.abs(y - (y0 / 2 + y1 / 2)) <= tolerance;
+    }
+
+    private void include(double y) {
+        if (y < low) {
+            low = y;
+        }
+        if (y > high) {
+            high = y;
+        }
+    }
+
+    /** The expression at x, or NaN where it is not defined. */
+    private double value(double x) {
+        frame[slot] = x;
+        evaluations++;
+        try {
+            return expression.evaluate(frame);
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+}
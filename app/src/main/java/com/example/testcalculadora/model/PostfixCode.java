@@ -0,0 +1,100 @@
+package com.example.testcalculadora.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Translates a tree into the postfix code run by the stack interpreters:
+ * {@link StackProgram}, {@link DecimalExpression}, {@link IntervalExpression}
+ * and {@link GradientExpression}. Each node is emitted after its operands,
+ * and the deepest the value stack gets is tracked.
+ *
+ * <p>Numbers go into a table of constants of type {@code T}, built by
+ * {@link #constant} in the interpreter's own representation. Opcodes from
+ * {@link #FIRST_EXTRA} on are left to an interpreter's own instructions.
+ */
+abstract class PostfixCode<T> extends ExpressionNode.Transform {
+
+    static final int CONSTANT = 0;
+    static final int LOAD = 1;
+    static final int NEGATE = 2;
+    static final int ADD = 3;
+    static final int SUBTRACT = 4;
+    static final int MULTIPLY = 5;
+    static final int DIVIDE = 6;
+    static final int POWER = 7;
+    static final int INTEGER_POWER = 8;
+    static final int FUNCTION = 9;
+    static final int FIRST_EXTRA = 10;
+
+    private int[] code = new int[64];
+    private int size;
+    private final List<T> constants = new ArrayList<>();
+    private int stack;
+    private int maxStack;
+
+    /** The value of a number of the tree, as the interpreter represents it. */
+    abstract T constant(ExpressionNode.Constant node);
+
+    @Override
+    ExpressionNode combine(ExpressionNode node, ExpressionNode first, ExpressionNode second) {
+        if (node instanceof ExpressionNode.Constant) {
+            constants.add(constant((ExpressionNode.Constant) node));
+            emit(CONSTANT, constants.size() - 1, 1);
+        } else if (node instanceof ExpressionNode.Variable) {
+            emit(LOAD, ((ExpressionNode.Variable) node).slot, 1);
+        } else if (node instanceof ExpressionNode.Negate) {
+            emit(NEGATE, -1, 0);
+        } else if (node instanceof ExpressionNode.Binary) {
+            emit(opcode(((ExpressionNode.Binary) node).operator), -1, -1);
+        } else if (node instanceof ExpressionNode.Power) {
+            emit(POWER, -1, -1);
+        } else if (node instanceof ExpressionNode.IntegerPower) {
+            emit(INTEGER_POWER, ((ExpressionNode.IntegerPower) node).exponent, 0);
+        } else if (node instanceof ExpressionNode.Function) {
+            emit(FUNCTION, ((ExpressionNode.Function) node).function.ordinal(), 0);
+        } else {
+            throw new IllegalArgumentException("Nó inesperado: " + node.getClass().getSimpleName());
+        }
+        return node;
+    }
+
+    private static int opcode(char operator) {
+        switch (operator) {
+            case '+':
+                return ADD;
+            case '-':
+                return SUBTRACT;
+            case '*':
+                return MULTIPLY;
+            default:
+                return DIVIDE;
+        }
+    }
+
+    /** Emits an opcode, with its operand unless {@code operand} is -1. */
+    final void emit(int opcode, int operand, int stackChange) {
+        if (size + 2 > code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[size++] = opcode;
+        if (operand >= 0) {
+            code[size++] = operand;
+        }
+        stack += stackChange;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    final int[] code() {
+        return Arrays.copyOf(code, size);
+    }
+
+    final List<T> constants() {
+        return constants;
+    }
+
+    final int maxStack() {
+        return maxStack;
+    }
+}
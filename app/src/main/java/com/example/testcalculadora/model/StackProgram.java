@@ -0,0 +1,164 @@
+package com.example.testcalculadora.model;
+
+import java.util.List;
+
+/**
+ * Postfix form of a compiled expression, run by a loop over an explicit
+ * value stack. Used for trees too deep to evaluate recursively: the native
+ * stack stays flat however deeply the input was nested.
+ *
+ * <p>The work area holds the evaluation frame (variables, then locals)
+ * followed by the value stack. Each thread reuses its own work area.
+ */
+final class StackProgram {
+
+    // Stores the top of the stack into a frame slot, for locals
+    private static final int STORE = PostfixCode.FIRST_EXTRA;
+    private static final int MEMOIZED_FUNCTION = PostfixCode.FIRST_EXTRA + 1;
+
+    private static final MathFunction[] FUNCTIONS = MathFunction.values();
+
+    private final int[] code;
+    private final double[] constants;
+    private final int frameSize;
+    private final ThreadLocal<double[]> workAreas;
+
+    private StackProgram(int[] code, double[] constants, int frameSize, int maxStack) {
+        this.code = code;
+        this.constants = constants;
+        this.frameSize = frameSize;
+        this.workAreas = new ThreadLocal<double[]>() {
+            @Override
+            protected double[] initialValue() {
+                return new double[frameSize + maxStack];
+            }
+        };
+    }
+
+    /**
+     * Translates the root. Each local is computed and stored into its frame
+     * slot where the root first reads it, so errors come in tree order.
+     */
+    static StackProgram compile(ExpressionNode root, ExpressionNode[] locals, int variableCount) {
+        Assembler assembler = new Assembler(locals);
+        assembler.apply(root);
+        List<Double> table = assembler.constants();
+        double[] constants = new double[table.size()];
+        for (int i = 0; i < constants.length; i++) {
+            constants[i] = table.get(i);
+        }
+        return new StackProgram(assembler.code(), constants, variableCount + locals.length, assembler.maxStack());
+    }
+
+    /**
+     * Evaluates with {@code bindings[i]} as the value of the i-th of
+     * {@code variableCount} variables.
+     */
+    double evaluate(double[] bindings, int variableCount) throws Exception {
+        double[] work = workAreas.get();
+        System.arraycopy(bindings, 0, work, 0, variableCount);
+        int top = frameSize - 1;
+        int pc = 0;
+        // Looked up on the first memoized call, then reused for the whole run
+        FunctionMemo memo = null;
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case PostfixCode.CONSTANT:
+                    work[++top] = constants[code[pc++]];
+                    break;
+                case PostfixCode.LOAD:
+                    work[++top] = work[code[pc++]];
+                    break;
+                case STORE:
+                    work[code[pc++]] = work[top--];
+                    break;
+                case PostfixCode.NEGATE:
+                    work[top] = -work[top];
+                    break;
+                case PostfixCode.ADD:
+                    top--;
+                    work[top] += work[top + 1];
+                    break;
+                case PostfixCode.SUBTRACT:
+                    top--;
+                    work[top] -= work[top + 1];
+                    break;
+                case PostfixCode.MULTIPLY:
+                    top--;
+                    work[top] *= work[top + 1];
+                    break;
+                case PostfixCode.DIVIDE:
+                    top--;
+                    if (work[top + 1] == 0) {
+                        throw new Exception("Divisão por zero");
+                    }
+                    work[top] /= work[top + 1];
+                    break;
+                case PostfixCode.POWER:
+                    top--;
+                    work[top] = Math.pow(work[top], work[top + 1]);
+                    break;
+                case PostfixCode.INTEGER_POWER:
+                    work[top] = ExpressionNode.IntegerPower.pow(work[top], code[pc++]);
+                    break;
+                case PostfixCode.FUNCTION:
+                    work[top] = FUNCTIONS[code[pc++]].apply(work[top]);
+                    break;
+                case MEMOIZED_FUNCTION:
+                    if (memo == null) {
+                        memo = FunctionMemo.current();
+                    }
+                    work[top] = memo.apply(FUNCTIONS[code[pc++]], work[top]);
+                    break;
+                default:
+                    throw new IllegalStateException("Instrução inválida: " + code[pc - 1]);
+            }
+        }
+        return work[top];
+    }
+
+    /**
+     * Adds the frame slots of locals and the memoized functions to the
+     * common postfix code.
+     */
+    private static final class Assembler extends PostfixCode<Double> {
+        final ExpressionNode[] locals;
+        final boolean[] stored;
+
+        Assembler(ExpressionNode[] locals) {
+            this.locals = locals;
+            this.stored = new boolean[locals.length];
+        }
+
+        @Override
+        Double constant(ExpressionNode.Constant node) {
+            return node.value;
+        }
+
+        @Override
+        ExpressionNode replace(ExpressionNode node) {
+            if (node instanceof ExpressionNode.Local) {
+                ExpressionNode.Local local = (ExpressionNode.Local) node;
+                if (!stored[local.index]) {
+                    stored[local.index] = true;
+                    apply(locals[local.index]);
+                    emit(STORE, local.slot, -1);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        ExpressionNode combine(ExpressionNode node, ExpressionNode first, ExpressionNode second) {
+            if (node instanceof ExpressionNode.Local) {
+                emit(PostfixCode.LOAD, ((ExpressionNode.Local) node).slot, 1);
+                return node;
+            }
+            if (node instanceof ExpressionNode.Function && ((ExpressionNode.Function) node).memoized) {
+                emit(MEMOIZED_FUNCTION, ((ExpressionNode.Function) node).function.ordinal(), 0);
+                return node;
+            }
+            return super.combine(node, first, second);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.testcalculadora.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Sums a compiled expression over consecutive integer values of one of its
+ * variables, with compensated summation so that the rounding error does not
+ * grow with the number of terms.
+ *
+ * <p>Terms are evaluated in chunks by a {@link ParallelEvaluator}, so long
+ * sums are split across its fork/join pool, and added in order, which keeps
+ * the result independent of the pool.
+ *
+ * <p>Instances are immutable and safe to share between threads.
+ */
+public final class Summation {
+
+    public static final long DEFAULT_MAX_EVALUATIONS = 1L << 26;
+
+    static final int CHUNK_SIZE = 1 << 16;
+
+    private static final double EPSILON = Math.ulp(1.0);
+
+    private final CompiledExpression expression;
+    private final int slot;
+    private final ParallelEvaluator evaluator;
+    private final long maxEvaluations;
+
+    public Summation(CompiledExpression expression, String variable) {
+        this(expression, Integrator.slotOf(expression, variable), new ParallelEvaluator(expression),
+                DEFAULT_MAX_EVALUATIONS);
+    }
+
+    public Summation(CompiledExpression expression, String variable, ForkJoinPool pool, int sequentialThreshold) {
+        this(expression, Integrator.slotOf(expression, variable),
+                new ParallelEvaluator(expression, pool, sequentialThreshold), DEFAULT_MAX_EVALUATIONS);
+    }
+
+    private Summation(CompiledExpression expression, int slot, ParallelEvaluator evaluator, long maxEvaluations) {
+        this.expression = expression;
+        this.slot = slot;
+        this.evaluator = evaluator;
+        this.maxEvaluations = maxEvaluations;
+    }
+
+    /** A summation that refuses ranges of more than this many terms. */
+    public Summation withMaxEvaluations(long maxEvaluations) {
+        if (maxEvaluations <= 0) {
+            throw new IllegalArgumentException("Número de avaliações inválido: " + maxEvaluations);
+        }
+        return new Summation(expression, slot, evaluator, maxEvaluations);
+    }
+
+    /**
+     * Sums the expression for the variable running from {@code from} to
+     * {@code to}, both included, with the other variables fixed at
+     * {@code bindings}; an empty range sums to zero. The error estimate
+     * bounds the rounding of the compensated sum, not the error of each
+     * term. Errors from evaluating the expression are rethrown.
+     */
+    public Estimate sum(double[] bindings, long from, long to) throws Exception {
+        if (bindings.length < expression.getVariableCount()) {
+            throw new IllegalArgumentException("Esperados " + expression.getVariableCount()
+                    + " valores de variáveis, recebidos " + bindings.length);
+        }
+        if (from > to) {
+            return new Estimate(0, 0, 0, true);
+        }
+        long count = to - from + 1;
+        if (count <= 0 || count > maxEvaluations) {
+            throw new IllegalArgumentException("Termos demais na soma: de " + from + " a " + to);
+        }
+
+        int size = (int) Math.min(count, CHUNK_SIZE);
+        double[][] columns = new double[expression.getVariableCount()][];
+        for (int v = 0; v < columns.length; v++) {
+            if (v != slot) {
+                columns[v] = new double[size];
+                Arrays.fill(columns[v], bindings[v]);
+            }
+        }
+        double[] k = new double[size];
+        double[] terms = new double[size];
+        columns[slot] = k;
+        CompensatedSum sum = new CompensatedSum();
+        for (long start = from; ; start += size) {
+            int length = (int) Math.min(size, to - start + 1);
+            for (int i = 0; i < length; i++) {
+                k[i] = start + i;
+            }
+            evaluator.evaluate(columns, 0, length, terms);
+            for (int i = 0; i < length; i++) {
+                sum.add(terms[i]);
+            }
+            if (to - start < size) {
+                break;
+            }
+        }
+        double value = sum.value();
+        // Neumaier's bound: one rounding of the result, plus second-order
+        // terms that grow with the count
+        double error = 2 * EPSILON * Math.abs(value) + count * EPSILON * EPSILON * sum.absoluteValue();
+        return new Estimate(value, error, count, !Double.isNaN(value) && !Double.isInfinite(value));
+    }
+}
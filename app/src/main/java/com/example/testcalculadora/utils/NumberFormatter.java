@@ -2,31 +2,106 @@ package com.example.testcalculadora.utils;
 
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.text.FieldPosition;
 import java.util.Locale;
 
 public class NumberFormatter {
-    
+
+    // Largest magnitude below which every integral double is printed digit for digit
+    private static final double MAX_EXACT_INTEGER = 9007199254740992.0; // 2^53
+
+    private static final ThreadLocal<FormatState> STATE = new ThreadLocal<FormatState>() {
+        @Override
+        protected FormatState initialValue() {
+            return new FormatState(Locale.getDefault());
+        }
+    };
+
+    /**
+     * Formats with ',' as decimal separator and up to ten fraction digits,
+     * without trailing zeros. The formatter is kept per thread, so a call
+     * allocates little more than the returned string.
+     */
     public static String format(double number) {
-        DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.getDefault());
-        symbols.setDecimalSeparator(',');
-        symbols.setGroupingSeparator('.');
-        
-        DecimalFormat df = new DecimalFormat("#.##########", symbols);
-        String result = df.format(number);
-        
-        // Remove trailing zeros after decimal point
-        if (result.contains(",")) {
-            result = result.replaceAll("0*$", "").replaceAll(",$", "");
+        FormatState state = STATE.get();
+        Locale locale = Locale.getDefault();
+        if (!state.locale.equals(locale)) {
+            state = new FormatState(locale);
+            STATE.set(state);
         }
-        
-        return result;
+
+        // Whole numbers skip DecimalFormat; -0.0 keeps its sign through the slow path
+        if (number == Math.rint(number) && Math.abs(number) < MAX_EXACT_INTEGER
+                && (number != 0 || Double.doubleToRawLongBits(number) == 0L)) {
+            return state.formatInteger((long) number);
+        }
+        return state.formatDecimal(number);
     }
-    
+
     public static double parse(String str) {
         return Double.parseDouble(str.replace(",", "."));
     }
-    
+
     public static boolean isOperator(String str) {
         return str.equals("+") || str.equals("-") || str.equals("*") || str.equals("/");
     }
+
+    private static final class FormatState {
+        final Locale locale;
+        private final DecimalFormat decimalFormat;
+        private final StringBuffer buffer = new StringBuffer(32);
+        private final FieldPosition position = new FieldPosition(0);
+        private final char[] digits = new char[40];
+        private final String negativePrefix;
+        private final String negativeSuffix;
+        private final char zeroDigit;
+
+        FormatState(Locale locale) {
+            this.locale = locale;
+            DecimalFormatSymbols symbols = new DecimalFormatSymbols(locale);
+            symbols.setDecimalSeparator(',');
+            symbols.setGroupingSeparator('.');
+            decimalFormat = new DecimalFormat("#.##########", symbols);
+            negativePrefix = decimalFormat.getNegativePrefix();
+            negativeSuffix = decimalFormat.getNegativeSuffix();
+            zeroDigit = symbols.getZeroDigit();
+        }
+
+        String formatInteger(long value) {
+            boolean negative = value < 0;
+            long remaining = Math.abs(value);
+            int start = digits.length;
+            if (negative) {
+                start -= negativeSuffix.length();
+                negativeSuffix.getChars(0, negativeSuffix.length(), digits, start);
+            }
+            do {
+                digits[--start] = (char) (zeroDigit + (int) (remaining % 10));
+                remaining /= 10;
+            } while (remaining != 0);
+            if (negative) {
+                start -= negativePrefix.length();
+                negativePrefix.getChars(0, negativePrefix.length(), digits, start);
+            }
+            return new String(digits, start, digits.length - start);
+        }
+
+        String formatDecimal(double number) {
+            buffer.setLength(0);
+            decimalFormat.format(number, buffer, position);
+
+            // Remove trailing zeros after decimal point
+            if (buffer.indexOf(",") >= 0) {
+                int length = buffer.length();
+                while (length > 0 && buffer.charAt(length - 1) == '0') {
+                    length--;
+                }
+                if (length > 0 && buffer.charAt(length - 1) == ',') {
+                    length--;
+                }
+                buffer.setLength(length);
+            }
+            return buffer.toString();
+        }
+    }
 }
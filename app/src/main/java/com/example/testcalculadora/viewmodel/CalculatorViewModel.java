@@ -2,251 +2,512 @@ package com.example.testcalculadora.viewmodel;
 
 import com.example.testcalculadora.model.CalculatorState;
 import com.example.testcalculadora.model.ExpressionParser;
+import com.example.testcalculadora.model.IncrementalEvaluator;
 import com.example.testcalculadora.utils.NumberFormatter;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 public class CalculatorViewModel {
     
+    // Pause in typing after which a background preview is computed
+    static final long PREVIEW_DELAY_MS = 50;
+    
     private final CalculatorState state;
     private final ExpressionParser parser;
+    private final IncrementalEvaluator evaluator;
+    private final ScheduledExecutorService previewExecutor;
+    private final Executor mainThread;
     private CalculatorListener listener;
+    private Future<?> pendingPreview;
+    // Advanced on every edit, so previews computed for older text are dropped
+    private volatile long generation;
+    private final StateChange change = new StateChange();
+    private int changeDepth;
+    // What changed since the listener last heard
+    private int expressionStart = StateChange.UNCHANGED;
+    private String notifiedResult = "";
     
     public interface CalculatorListener {
         void onStateChanged(String expression, String result);
+        
+        /**
+         * Receives a read-only view of the expression, so a view can display
+         * it without copying it first. The view follows the next edit and
+         * must not be kept. By default it is copied to a String.
+         */
+        default void onStateChanged(CharSequence expression, String result) {
+            onStateChanged(expression.toString(), result);
+        }
+        
+        /**
+         * Called once per user action that changed what is shown. Views that
+         * only update the changed parts override this; by default the whole
+         * state is passed on.
+         */
+        default void onStateChanged(StateChange change) {
+            onStateChanged(change.getExpression(), change.getResult());
+        }
+    }
+    
+    /**
+     * What one user action changed. The same instance is reused for every
+     * event, so it is only valid during the listener call.
+     */
+    public static final class StateChange {
+        static final int UNCHANGED = Integer.MAX_VALUE;
+        
+        private CharSequence expression;
+        private int expressionStart;
+        private String result;
+        private boolean resultChanged;
+        
+        void set(CharSequence expression, int expressionStart, String result, boolean resultChanged) {
+            this.expression = expression;
+            this.expressionStart = expressionStart;
+            this.result = result;
+            this.resultChanged = resultChanged;
+        }
+        
+        /** The current expression, as a live read-only view; see {@link CalculatorListener}. */
+        public CharSequence getExpression() {
+            return expression;
+        }
+        
+        public boolean isExpressionChanged() {
+            return expressionStart != UNCHANGED;
+        }
+        
+        /**
+         * First position that may differ from the expression in the previous
+         * event; the characters before it are the same. Only meaningful when
+         * {@link #isExpressionChanged()}.
+         */
+        public int getExpressionStart() {
+            return expressionStart;
+        }
+        
+        public String getResult() {
+            return result;
+        }
+        
+        public boolean isResultChanged() {
+            return resultChanged;
+        }
     }
     
+    /**
+     * Computes previews synchronously, on the thread that calls the view model.
+     */
     public CalculatorViewModel() {
+        this(null, null);
+    }
+    
+    /**
+     * Computes previews on {@code previewExecutor} once typing pauses for
+     * {@link #PREVIEW_DELAY_MS}, and delivers them through {@code mainThread},
+     * which must run tasks on the thread that calls the view model. A preview
+     * is dropped when the expression changes before it is shown. The
+     * executors are not shut down by the view model.
+     */
+    public CalculatorViewModel(ScheduledExecutorService previewExecutor, Executor mainThread) {
         this.state = new CalculatorState();
         this.parser = new ExpressionParser();
+        this.evaluator = new IncrementalEvaluator(parser);
+        this.previewExecutor = previewExecutor;
+        this.mainThread = mainThread;
     }
     
     public void setListener(CalculatorListener listener) {
         this.listener = listener;
     }
     
+    /**
+     * Number of previews that needed a full parse of the text; for tests and
+     * tuning.
+     */
+    public long getPreviewFallbackCount() {
+        return evaluator.getFallbackCount();
+    }
+    
     public void appendNumber(String number) {
-        if (state.isLastWasEquals()) {
-            state.setExpression("");
-            state.setLastWasEquals(false);
-        }
+        beginChange();
+        try {
+            if (state.isLastWasEquals()) {
+                setExpression("");
+                state.setLastWasEquals(false);
+            }
         
-        state.setExpression(state.getExpression() + number);
-        state.setLastWasOperator(false);
-        notifyStateChanged();
-        calculatePreview();
+            appendToExpression(number);
+            state.setLastWasOperator(false);
+            calculatePreview();
+        } finally {
+            endChange();
+        }
     }
     
     public void appendDecimalPoint() {
-        if (state.isLastWasEquals()) {
-            state.setExpression("0");
-            state.setLastWasEquals(false);
-        }
+        beginChange();
+        try {
+            if (state.isLastWasEquals()) {
+                setExpression("0");
+                state.setLastWasEquals(false);
+            }
         
-        String[] parts = state.getExpression().split("[+\\-*/()]");
-        if (parts.length > 0) {
-            String lastPart = parts[parts.length - 1];
-            if (!lastPart.contains(",")) {
-                if (state.isLastWasOperator() || state.getExpression().isEmpty()) {
-                    state.setExpression(state.getExpression() + "0,");
-                } else {
-                    state.setExpression(state.getExpression() + ",");
-                }
-                state.setLastWasOperator(false);
-                notifyStateChanged();
-                calculatePreview();
+            if (state.isNumberHasDecimal()) {
+                return;
             }
+            // After an operator or '(' the point starts "0,"; after ')' it is
+            // appended as is, as before, without opening an implicit operand
+            boolean startsNumber = state.getNumberStart() < 0 && !expressionEndsWith(')');
+            appendToExpression(startsNumber ? "0," : ",");
+            state.setLastWasOperator(false);
+            calculatePreview();
+        } finally {
+            endChange();
         }
     }
     
     public void appendOperator(String operator) {
-        if (state.getExpression().isEmpty()) {
-            if (operator.equals("-")) {
-                state.setExpression("-");
-                state.setLastWasOperator(true);
-                notifyStateChanged();
+        beginChange();
+        try {
+            if (isExpressionEmpty()) {
+                if (operator.equals("-")) {
+                    setExpression("-");
+                    state.setLastWasOperator(true);
+                }
+                return;
             }
-            return;
-        }
         
-        if (state.isLastWasEquals()) {
-            String result = state.getResult();
-            if (!result.isEmpty()) {
-                state.setExpression(result);
+            if (state.isLastWasEquals()) {
+                String result = state.getResult();
+                if (!result.isEmpty()) {
+                    setExpression(result);
+                }
+                state.setLastWasEquals(false);
             }
-            state.setLastWasEquals(false);
-        }
         
-        if (state.isLastWasOperator()) {
-            String expr = state.getExpression();
-            state.setExpression(expr.substring(0, expr.length() - 1));
-        }
+            if (state.isLastWasOperator()) {
+                truncateExpression(state.getExpressionText().length() - 1);
+            }
         
-        state.setExpression(state.getExpression() + operator);
-        state.setLastWasOperator(true);
-        notifyStateChanged();
+            appendToExpression(operator);
+            state.setLastWasOperator(true);
+        } finally {
+            endChange();
+        }
     }
     
     public void appendPercent() {
-        if (state.getExpression().isEmpty() || state.isLastWasOperator()) {
-            return;
-        }
-        
-        if (state.isLastWasEquals()) {
-            String result = state.getResult();
-            if (!result.isEmpty()) {
-                state.setExpression(result);
+        beginChange();
+        try {
+            if (isExpressionEmpty() || state.isLastWasOperator()) {
+                return;
             }
-            state.setLastWasEquals(false);
-        }
         
-        try {
-            String[] parts = state.getExpression().split("(?=[+\\-*/])|(?<=[+\\-*/])");
-            if (parts.length > 0) {
-                String lastPart = parts[parts.length - 1].trim();
-                if (!lastPart.isEmpty() && !NumberFormatter.isOperator(lastPart)) {
-                    double value = NumberFormatter.parse(lastPart);
-                    double percentage = value / 100.0;
-                    
-                    int lastNumberStart = state.getExpression().lastIndexOf(lastPart);
-                    String newExpr = state.getExpression().substring(0, lastNumberStart);
-                    state.setExpression(newExpr + NumberFormatter.format(percentage));
-                    notifyStateChanged();
-                    calculatePreview();
+            if (state.isLastWasEquals()) {
+                String result = state.getResult();
+                if (!result.isEmpty()) {
+                    setExpression(result);
                 }
+                state.setLastWasEquals(false);
             }
-        } catch (Exception e) {
-            // Ignore errors
+        
+            // Only a number that is a whole operand, not one after '(' or '^'
+            int start = state.getNumberStart();
+            if (start < 0 || (start > 0
+                    && !NumberFormatter.isOperator(String.valueOf(state.getExpressionText().charAt(start - 1))))) {
+                return;
+            }
+        
+            try {
+                double percentage = state.getNumberValue() / 100.0;
+                truncateExpression(start);
+                appendToExpression(NumberFormatter.format(percentage));
+                calculatePreview();
+            } catch (Exception e) {
+                // Ignore errors
+            }
+        } finally {
+            endChange();
         }
     }
     
     public void addParentheses() {
-        if (state.isLastWasEquals()) {
-            state.setExpression("");
-            state.setLastWasEquals(false);
-        }
+        beginChange();
+        try {
+            if (state.isLastWasEquals()) {
+                setExpression("");
+                state.setLastWasEquals(false);
+            }
         
-        if (state.getExpression().isEmpty() || state.isLastWasOperator() || 
-            state.getExpression().endsWith("(")) {
-            state.setExpression(state.getExpression() + "(");
-            state.incrementOpenParentheses();
-        } else if (state.getOpenParentheses() > 0) {
-            state.setExpression(state.getExpression() + ")");
-            state.decrementOpenParentheses();
-        } else {
-            if (!state.getExpression().isEmpty()) {
-                state.setExpression(state.getExpression() + "*(");
+            if (isExpressionEmpty() || state.isLastWasOperator() || 
+                expressionEndsWith('(')) {
+                appendToExpression("(");
                 state.incrementOpenParentheses();
+            } else if (state.getOpenParentheses() > 0) {
+                appendToExpression(")");
+                state.decrementOpenParentheses();
             } else {
-                state.setExpression("(");
-                state.incrementOpenParentheses();
+                if (!isExpressionEmpty()) {
+                    appendToExpression("*(");
+                    state.incrementOpenParentheses();
+                } else {
+                    setExpression("(");
+                    state.incrementOpenParentheses();
+                }
             }
-        }
         
-        state.setLastWasOperator(false);
-        notifyStateChanged();
-        calculatePreview();
+            state.setLastWasOperator(false);
+            calculatePreview();
+        } finally {
+            endChange();
+        }
     }
     
     public void deleteLast() {
-        if (state.getExpression().isEmpty()) {
-            return;
-        }
+        beginChange();
+        try {
+            if (isExpressionEmpty()) {
+                return;
+            }
         
-        if (state.isLastWasEquals()) {
-            clear();
-            return;
-        }
+            if (state.isLastWasEquals()) {
+                clear();
+                return;
+            }
         
-        String expr = state.getExpression();
-        char lastChar = expr.charAt(expr.length() - 1);
+            CharSequence expr = state.getExpressionText();
+            char lastChar = expr.charAt(expr.length() - 1);
         
-        if (lastChar == '(') {
-            state.decrementOpenParentheses();
-        } else if (lastChar == ')') {
-            state.incrementOpenParentheses();
-        }
+            if (lastChar == '(') {
+                state.decrementOpenParentheses();
+            } else if (lastChar == ')') {
+                state.incrementOpenParentheses();
+            }
         
-        state.setExpression(expr.substring(0, expr.length() - 1));
+            truncateExpression(expr.length() - 1);
         
-        if (!state.getExpression().isEmpty()) {
-            lastChar = state.getExpression().charAt(state.getExpression().length() - 1);
-            state.setLastWasOperator(NumberFormatter.isOperator(String.valueOf(lastChar)));
-        } else {
-            state.setLastWasOperator(false);
-        }
+            if (expr.length() > 0) {
+                lastChar = expr.charAt(expr.length() - 1);
+                state.setLastWasOperator(NumberFormatter.isOperator(String.valueOf(lastChar)));
+            } else {
+                state.setLastWasOperator(false);
+            }
         
-        notifyStateChanged();
-        calculatePreview();
+            calculatePreview();
+        } finally {
+            endChange();
+        }
     }
     
     public void clear() {
-        state.reset();
-        notifyStateChanged();
+        beginChange();
+        try {
+            state.reset();
+            evaluator.clear();
+            expressionChanged(0);
+        } finally {
+            endChange();
+        }
     }
     
     public void calculateResult() {
-        if (state.getExpression().isEmpty()) {
-            return;
-        }
+        beginChange();
         try {
-            String expression = state.getExpression();
-            for (int i = 0; i < state.getOpenParentheses(); i++) {
-                expression += ")";
+            if (isExpressionEmpty()) {
+                return;
             }
-            while (!expression.isEmpty() &&
-                    NumberFormatter.isOperator(String.valueOf(expression.charAt(expression.length() - 1)))) {
-                expression = expression.substring(0, expression.length() - 1);
+            try {
+                int closing = Math.max(state.getOpenParentheses(), 0);
+                double result = evaluator.evaluate(evaluatedLength(closing), closing);
+                String formattedResult = NumberFormatter.format(result); // 1. Formata e armazena
+                state.setResult(formattedResult);       // 2. Define o resultado (para tvResult)
+                setExpression(formattedResult);         // 3. Define a expressão (para tvExpression)
+                state.setResult("");
+                state.setLastWasEquals(true);
+                state.setLastWasOperator(false);
+                state.setOpenParentheses(0);            // 4. Zera a contagem de parênteses
+            } catch (Exception e) {
+                state.setResult("Erro");
             }
-            double result = parser.evaluate(expression);
-            String formattedResult = NumberFormatter.format(result); // 1. Formata e armazena
-            state.setResult(formattedResult);       // 2. Define o resultado (para tvResult)
-            state.setExpression(formattedResult);   // 3. Define a expressão (para tvExpression)
-            state.setResult("");
-            state.setLastWasEquals(true);
-            state.setLastWasOperator(false);
-            state.setOpenParentheses(0);            // 4. Zera a contagem de parênteses
-            notifyStateChanged();
-        } catch (Exception e) {
-            state.setResult("Erro");
-            notifyStateChanged();
+        } finally {
+            endChange();
         }
     }
     
     private void calculatePreview() {
-        if (state.getExpression().isEmpty() || state.isLastWasOperator() || state.isLastWasEquals()) {
+        if (isExpressionEmpty() || state.isLastWasOperator() || state.isLastWasEquals()) {
             if (!state.isLastWasEquals()) {
                 state.setResult("");
-                notifyStateChanged();
             }
             return;
         }
         
+        int closing = Math.max(state.getOpenParentheses(), 0);
+        int length = evaluatedLength(closing);
+        if (length == 0 && closing == 0) {
+            return;
+        }
+        if (previewExecutor != null) {
+            schedulePreview(length, closing);
+            return;
+        }
+        
         try {
-            String expr = state.getExpression();
-            for (int i = 0; i < state.getOpenParentheses(); i++) {
-                expr += ")";
+            // Only the open tail is evaluated; see IncrementalEvaluator
+            showPreview(NumberFormatter.format(evaluator.evaluate(length, closing)), length, closing);
+        } catch (Exception e) {
+            // Don't show error during typing
+        }
+    }
+    
+    /**
+     * Evaluates a snapshot of the parse in the background after a pause in
+     * typing. The previous request, if still waiting, is cancelled.
+     */
+    private void schedulePreview(final int length, final int closing) {
+        // Taken here: the evaluator itself is only used on this thread
+        final IncrementalEvaluator.Snapshot snapshot = evaluator.snapshot(length, closing);
+        final long requested = generation;
+        
+        cancelPendingPreview();
+        pendingPreview = previewExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (requested != generation) {
+                    return;
+                }
+                final String previewStr;
+                try {
+                    previewStr = NumberFormatter.format(snapshot.evaluate());
+                } catch (Exception e) {
+                    // Don't show error during typing
+                    return;
+                }
+                mainThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (requested == generation) {
+                            beginChange();
+                            try {
+                                showPreview(previewStr, length, closing);
+                            } finally {
+                                endChange();
+                            }
+                        }
+                    }
+                });
             }
-            
-            while (!expr.isEmpty() && 
-                   NumberFormatter.isOperator(String.valueOf(expr.charAt(expr.length() - 1)))) {
-                expr = expr.substring(0, expr.length() - 1);
+        }, PREVIEW_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    private void showPreview(String previewStr, int length, int closing) {
+        // Nothing to preview when the expression is already just that number
+        boolean unchanged = closing == 0 && previewStr.length() == length
+                && startsWith(state.getExpressionText(), previewStr);
+        if (!unchanged) {
+            state.setResult(previewStr);
+        }
+    }
+    
+    private void cancelPendingPreview() {
+        if (pendingPreview != null) {
+            pendingPreview.cancel(false);
+            pendingPreview = null;
+        }
+    }
+    
+    /**
+     * Length of the expression that gets evaluated. Trailing operators are
+     * dropped, unless closing parentheses follow them.
+     */
+    private int evaluatedLength(int closing) {
+        CharSequence expression = state.getExpressionText();
+        int length = expression.length();
+        if (closing == 0) {
+            while (length > 0 && NumberFormatter.isOperator(String.valueOf(expression.charAt(length - 1)))) {
+                length--;
             }
-            
-            if (!expr.isEmpty()) {
-                double preview = parser.evaluate(expr);
-                String previewStr = NumberFormatter.format(preview);
-                if (!expr.equals(previewStr)) {
-                    state.setResult(previewStr);
-                    notifyStateChanged();
-                }
+        }
+        return length;
+    }
+    
+    private boolean isExpressionEmpty() {
+        return state.getExpressionText().length() == 0;
+    }
+    
+    private boolean expressionEndsWith(char c) {
+        CharSequence expression = state.getExpressionText();
+        return expression.length() > 0 && expression.charAt(expression.length() - 1) == c;
+    }
+    
+    private static boolean startsWith(CharSequence text, String prefix) {
+        if (prefix.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(i) != prefix.charAt(i)) {
+                return false;
             }
-        } catch (Exception e) {
-            // Don't show error during typing
+        }
+        return true;
+    }
+    
+    // Every change to the expression goes through these, so the evaluator
+    // always holds the same text as the state
+    
+    private void setExpression(CharSequence expression) {
+        state.setExpression(expression);
+        evaluator.clear();
+        evaluator.append(expression);
+        expressionChanged(0);
+    }
+    
+    private void appendToExpression(CharSequence text) {
+        int start = state.getExpressionText().length();
+        state.appendToExpression(text);
+        evaluator.append(text);
+        expressionChanged(start);
+    }
+    
+    private void truncateExpression(int length) {
+        state.truncateExpression(length);
+        evaluator.truncate(length);
+        expressionChanged(length);
+    }
+    
+    /** Records that the expression changed from {@code start} on. */
+    private void expressionChanged(int start) {
+        expressionStart = Math.min(expressionStart, start);
+        if (previewExecutor != null) {
+            generation++;
+            cancelPendingPreview();
         }
     }
     
-    private void notifyStateChanged() {
+    // Every user action is one change: the listener hears about it once,
+    // when the outermost action ends, and only if something visible changed
+    
+    private void beginChange() {
+        changeDepth++;
+    }
+    
+    private void endChange() {
+        if (--changeDepth > 0) {
+            return;
+        }
+        boolean resultChanged = !state.getResult().equals(notifiedResult);
+        if (expressionStart == StateChange.UNCHANGED && !resultChanged) {
+            return;
+        }
+        change.set(state.getExpressionText(), expressionStart, state.getResult(), resultChanged);
+        expressionStart = StateChange.UNCHANGED;
+        notifiedResult = state.getResult();
         if (listener != null) {
-            listener.onStateChanged(state.getExpression(), state.getResult());
+            listener.onStateChanged(change);
         }
     }
     
@@ -277,43 +538,51 @@ public class CalculatorViewModel {
     }
     
     public void appendPower() {
-        if (state.getExpression().isEmpty()) {
-            return;
-        }
+        beginChange();
+        try {
+            if (isExpressionEmpty()) {
+                return;
+            }
         
-        if (state.isLastWasEquals()) {
-            String result = state.getResult();
-            if (!result.isEmpty()) {
-                state.setExpression(result);
+            if (state.isLastWasEquals()) {
+                String result = state.getResult();
+                if (!result.isEmpty()) {
+                    setExpression(result);
+                }
+                state.setLastWasEquals(false);
             }
-            state.setLastWasEquals(false);
-        }
         
-        // Don't allow power after operator
-        if (state.isLastWasOperator()) {
-            return;
-        }
+            // Don't allow power after operator
+            if (state.isLastWasOperator()) {
+                return;
+            }
         
-        state.setExpression(state.getExpression() + "^");
-        state.setLastWasOperator(true);
-        notifyStateChanged();
+            appendToExpression("^");
+            state.setLastWasOperator(true);
+        } finally {
+            endChange();
+        }
     }
     
     private void appendFunction(String functionName) {
-        if (state.isLastWasEquals()) {
-            state.setExpression("");
-            state.setLastWasEquals(false);
-        }
+        beginChange();
+        try {
+            if (state.isLastWasEquals()) {
+                setExpression("");
+                state.setLastWasEquals(false);
+            }
         
-        // If there's a number or closing parenthesis before the function, add multiplication
-        if (!state.getExpression().isEmpty() && !state.isLastWasOperator() && 
-            !state.getExpression().endsWith("(")) {
-            state.setExpression(state.getExpression() + "*");
-        }
+            // If there's a number or closing parenthesis before the function, add multiplication
+            if (!isExpressionEmpty() && !state.isLastWasOperator() && 
+                !expressionEndsWith('(')) {
+                appendToExpression("*");
+            }
         
-        state.setExpression(state.getExpression() + functionName + "(");
-        state.incrementOpenParentheses();
-        state.setLastWasOperator(false);
-        notifyStateChanged();
+            appendToExpression(functionName + "(");
+            state.incrementOpenParentheses();
+            state.setLastWasOperator(false);
+        } finally {
+            endChange();
+        }
     }
 }
@@ -0,0 +1,76 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.BatchEvaluator;
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.ExpressionParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for batch evaluation over input columns
+ */
+public class BatchEvaluatorTest {
+
+    private ExpressionParser parser;
+
+    @Before
+    public void setUp() {
+        parser = new ExpressionParser();
+    }
+
+    @Test
+    public void batch_matches_row_by_row_evaluation() throws Exception {
+        CompiledExpression compiled = parser.compile(
+                "sqrt(a^2+b^2)*sin(a)-log(b+1)/2+ln(a+1)*cos(b)^2-tan(a/4)", "a", "b");
+        int rows = 1500; // not a multiple of the block size
+        Random random = new Random(42);
+        double[] a = new double[rows];
+        double[] b = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            a[i] = random.nextDouble() * 100;
+            b[i] = random.nextDouble() * 100;
+        }
+
+        double[] results = new double[rows];
+        compiled.evaluate(new double[][] {a, b}, results);
+
+        double[] bindings = new double[2];
+        for (int i = 0; i < rows; i++) {
+            bindings[0] = a[i];
+            bindings[1] = b[i];
+            assertEquals(compiled.evaluate(bindings), results[i], 0.0);
+        }
+    }
+
+    @Test
+    public void batch_evaluates_sub_range_only() throws Exception {
+        BatchEvaluator evaluator = new BatchEvaluator(parser.compile("-x*2", "x"));
+        double[] x = {1, 2, 3, 4, 5};
+        double[] results = new double[5];
+        evaluator.evaluate(new double[][] {x}, 1, 4, results);
+        assertArrayEquals(new double[] {0, -4, -6, -8, 0}, results, 0.0);
+    }
+
+    @Test
+    public void constant_expression_fills_results() throws Exception {
+        double[] results = new double[3];
+        parser.compile("2^10").evaluate(new double[0][], results);
+        assertArrayEquals(new double[] {1024, 1024, 1024}, results, 0.0);
+    }
+
+    @Test(expected = Exception.class)
+    public void division_by_zero_in_any_row_throws() throws Exception {
+        double[] x = {1, 2, 0, 4};
+        parser.compile("1/x", "x").evaluate(new double[][] {x}, new double[4]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void short_column_throws() throws Exception {
+        parser.compile("x", "x").evaluate(new double[][] {new double[2]}, new double[3]);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.BytecodeCompiler;
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.ExpressionFunction;
+import com.example.testcalculadora.model.ExpressionParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the bytecode expression backend
+ */
+public class BytecodeCompilerTest {
+
+    private ExpressionParser parser;
+
+    @Before
+    public void setUp() {
+        parser = new ExpressionParser();
+    }
+
+    @Test
+    public void generated_class_is_used_on_the_jvm() throws Exception {
+        assertTrue(BytecodeCompiler.isSupported());
+        ExpressionFunction function = BytecodeCompiler.compile(parser.compile("x+1", "x"));
+        assertTrue(function.getClass().getName().contains("GeneratedExpression"));
+    }
+
+    @Test
+    public void generated_code_matches_tree() throws Exception {
+        String[] expressions = {
+            "x+y*2-3/y", "-x^2+y^3-x^4", "x^y", "sin(x)+cos(y)*tan(x)",
+            "sqrt(x*x+y*y)+log(y)+ln(x)", "sin(x)^2+cos(x)^2+sin(x)*cos(x)",
+            "(1+x/12)^360", "0", "1", "-x", "x+0", "123456.789*x"
+        };
+        double[][] samples = {{1.5, 2}, {30, 45}, {7, 0.25}, {0.001, 1000}};
+        for (String source : expressions) {
+            CompiledExpression compiled = parser.compile(source, "x", "y");
+            ExpressionFunction function = BytecodeCompiler.compile(compiled);
+            for (double[] bindings : samples) {
+                assertEquals(source, compiled.evaluate(bindings), function.evaluate(bindings), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void many_variables_and_locals() throws Exception {
+        StringBuilder source = new StringBuilder();
+        String[] variables = new String[200];
+        double[] bindings = new double[200];
+        for (int i = 0; i < variables.length; i++) {
+            variables[i] = letters(i);
+            bindings[i] = i + 1;
+            if (i > 0) {
+                source.append('+');
+            }
+            source.append("sin(").append(variables[i]).append(")*sin(").append(variables[i]).append(')');
+        }
+        CompiledExpression compiled = parser.compile(source.toString(), variables);
+        ExpressionFunction function = BytecodeCompiler.compile(compiled);
+        assertTrue(function.getClass().getName().contains("GeneratedExpression"));
+        assertEquals(compiled.evaluate(bindings), function.evaluate(bindings), 0.0);
+    }
+
+    @Test
+    public void division_by_zero_throws() throws Exception {
+        ExpressionFunction function = BytecodeCompiler.compile(parser.compile("1/x", "x"));
+        assertEquals(0.5, function.evaluate(new double[] {2}), 0.0);
+        try {
+            function.evaluate(new double[] {0});
+            fail("Expected exception");
+        } catch (Exception e) {
+            assertEquals("Divisão por zero", e.getMessage());
+        }
+    }
+
+    @Test
+    public void shared_subterm_errors_follow_the_tree_order() throws Exception {
+        ExpressionFunction function = BytecodeCompiler.compile(parser.compile("ln(x-1)+1/x+1/x", "x"));
+        try {
+            function.evaluate(new double[] {0});
+            fail("Expected exception");
+        } catch (Exception e) {
+            assertEquals("Logaritmo de número não positivo", e.getMessage());
+        }
+    }
+
+    @Test
+    public void domain_errors_throw() throws Exception {
+        String[] expressions = {"sqrt(x)", "log(x)", "ln(x)"};
+        for (String source : expressions) {
+            ExpressionFunction function = BytecodeCompiler.compile(parser.compile(source, "x"));
+            try {
+                function.evaluate(new double[] {-1});
+                fail("Expected exception for " + source);
+            } catch (Exception e) {
+                assertTrue(e.getMessage().startsWith(source.startsWith("sqrt") ? "Raiz" : "Logaritmo"));
+            }
+            assertTrue(Double.isNaN(function.evaluate(new double[] {Double.NaN})));
+        }
+    }
+
+    private static String letters(int index) {
+        StringBuilder name = new StringBuilder();
+        do {
+            name.append((char) ('a' + index % 26));
+            index /= 26;
+        } while (index > 0);
+        return name.toString();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.viewmodel.CalculatorViewModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for previews computed in the background
+ */
+public class CalculatorViewModelAsyncTest {
+
+    private ScheduledExecutorService previewExecutor;
+    // Stands in for the UI thread: tasks run only when the test drains it
+    private final Queue<Runnable> mainQueue = new ConcurrentLinkedQueue<>();
+    private CalculatorViewModel viewModel;
+    private final Queue<String> results = new ArrayDeque<>();
+    private String expression = "";
+
+    @Before
+    public void setUp() {
+        previewExecutor = Executors.newSingleThreadScheduledExecutor();
+        Executor mainThread = mainQueue::add;
+        viewModel = new CalculatorViewModel(previewExecutor, mainThread);
+        viewModel.setListener((String expression, String result) -> {
+            this.expression = expression;
+            results.add(result);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        previewExecutor.shutdownNow();
+    }
+
+    /** Waits until every preview scheduled so far has run in the background. */
+    private void awaitBackground() throws Exception {
+        previewExecutor.schedule(() -> { }, 4 * 50, TimeUnit.MILLISECONDS).get();
+    }
+
+    private void drainMain() {
+        Runnable task;
+        while ((task = mainQueue.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private String lastResult() {
+        String last = null;
+        for (String result : results) {
+            last = result;
+        }
+        return last;
+    }
+
+    @Test
+    public void burst_of_keys_is_evaluated_once() throws Exception {
+        viewModel.appendNumber("1");
+        viewModel.appendNumber("2");
+        viewModel.appendOperator("+");
+        viewModel.appendNumber("3");
+        viewModel.appendNumber("4");
+        assertTrue(mainQueue.isEmpty());
+
+        awaitBackground();
+        assertEquals(1, mainQueue.size());
+        drainMain();
+        assertEquals("46", lastResult());
+    }
+
+    @Test
+    public void stale_preview_is_dropped() throws Exception {
+        viewModel.appendNumber("2");
+        viewModel.appendOperator("*");
+        viewModel.appendNumber("3");
+        awaitBackground();
+        assertEquals(1, mainQueue.size());
+
+        // The text changes before the UI thread gets to the result for "2*3"
+        viewModel.appendNumber("0");
+        results.clear();
+        drainMain();
+        assertTrue(results.isEmpty());
+
+        awaitBackground();
+        drainMain();
+        assertEquals("60", lastResult());
+    }
+
+    @Test
+    public void clear_cancels_pending_preview() throws Exception {
+        viewModel.appendNumber("9");
+        viewModel.appendOperator("-");
+        viewModel.appendNumber("1");
+        viewModel.clear();
+        awaitBackground();
+        assertTrue(mainQueue.isEmpty());
+        assertEquals("", lastResult());
+    }
+
+    @Test
+    public void errors_leave_no_preview() throws Exception {
+        viewModel.appendNumber("1");
+        viewModel.appendOperator("/");
+        viewModel.appendNumber("0");
+        awaitBackground();
+        assertTrue(mainQueue.isEmpty());
+    }
+
+    @Test
+    public void background_previews_do_not_parse_the_text() throws Exception {
+        viewModel.appendSin();
+        viewModel.appendNumber("30");
+        viewModel.appendOperator("+");
+        viewModel.appendNumber("60");
+        awaitBackground();
+        drainMain();
+        assertEquals("1", lastResult());
+
+        viewModel.appendOperator("*");
+        viewModel.appendNumber("2");
+        awaitBackground();
+        drainMain();
+        assertEquals("0,5", lastResult());
+        assertEquals(0, viewModel.getPreviewFallbackCount());
+    }
+
+    @Test
+    public void equals_is_evaluated_immediately() {
+        viewModel.appendNumber("7");
+        viewModel.appendOperator("*");
+        viewModel.appendNumber("6");
+        viewModel.calculateResult();
+        assertEquals("42", expression);
+        viewModel.appendOperator("+");
+        viewModel.appendNumber("1");
+        viewModel.calculateResult();
+        assertEquals("43", expression);
+        assertEquals("", lastResult());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.viewmodel.CalculatorViewModel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the change events CalculatorViewModel sends its listener
+ */
+public class CalculatorViewModelEventTest {
+
+    private CalculatorViewModel viewModel;
+    private final List<String> events = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        viewModel = new CalculatorViewModel();
+        viewModel.setListener(new CalculatorViewModel.CalculatorListener() {
+            @Override
+            public void onStateChanged(String expression, String result) {
+                fail("Only the StateChange overload should be called");
+            }
+
+            @Override
+            public void onStateChanged(CalculatorViewModel.StateChange change) {
+                // Records e.g. "12+3@3=15": changed expression from 3, new result 15
+                StringBuilder event = new StringBuilder();
+                if (change.isExpressionChanged()) {
+                    event.append(change.getExpression()).append('@').append(change.getExpressionStart());
+                }
+                if (change.isResultChanged()) {
+                    event.append('=').append(change.getResult());
+                }
+                events.add(event.toString());
+            }
+        });
+    }
+
+    @Test
+    public void one_event_per_key() {
+        viewModel.appendNumber("1");
+        viewModel.appendNumber("2");
+        viewModel.appendOperator("+");
+        viewModel.appendNumber("3");
+        assertEquals(4, events.size());
+        assertEquals("12+3@3=15", events.get(3));
+    }
+
+    @Test
+    public void events_carry_only_what_changed() {
+        viewModel.appendNumber("7");
+        viewModel.appendOperator("*");
+        viewModel.appendNumber("2");
+        viewModel.appendOperator("-");
+        viewModel.appendOperator("+");
+        assertEquals("7@0", events.get(0));
+        assertEquals("7*@1", events.get(1));
+        assertEquals("7*2@2=14", events.get(2));
+        // The preview stays, and a second operator replaces the first
+        assertEquals("7*2-@3", events.get(3));
+        assertEquals("7*2+@3", events.get(4));
+    }
+
+    @Test
+    public void no_event_when_nothing_changes() {
+        viewModel.appendNumber("5");
+        viewModel.appendPower();
+        viewModel.appendPower();
+        viewModel.appendPercent();
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void nested_actions_send_one_event() {
+        viewModel.appendNumber("4");
+        viewModel.calculateResult();
+        events.clear();
+        // Deleting after equals clears everything
+        viewModel.deleteLast();
+        assertEquals(1, events.size());
+        assertEquals("@0", events.get(0));
+    }
+}
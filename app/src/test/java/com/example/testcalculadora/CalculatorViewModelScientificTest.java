@@ -275,4 +275,74 @@ public class CalculatorViewModelScientificTest {
         viewModel.calculateResult();
         assertEquals("25", listener.expression);
     }
+    
+    // Decimal point and percent tests
+    
+    @Test
+    public void decimal_point_only_once_per_number() {
+        viewModel.appendNumber("2");
+        viewModel.appendDecimalPoint();
+        viewModel.appendNumber("5");
+        viewModel.appendDecimalPoint();
+        assertEquals("2,5", listener.expression);
+        viewModel.appendOperator("+");
+        viewModel.appendDecimalPoint();
+        viewModel.appendNumber("5");
+        assertEquals("2,5+0,5", listener.expression);
+    }
+    
+    @Test
+    public void decimal_point_allowed_again_after_deleting_it() {
+        viewModel.appendNumber("1");
+        viewModel.appendDecimalPoint();
+        viewModel.deleteLast();
+        viewModel.appendDecimalPoint();
+        viewModel.appendNumber("5");
+        assertEquals("1,5", listener.expression);
+    }
+    
+    @Test
+    public void decimal_point_after_function_starts_with_zero() {
+        viewModel.appendSqrt();
+        viewModel.appendDecimalPoint();
+        viewModel.appendNumber("2");
+        viewModel.appendNumber("5");
+        assertEquals("sqrt(0,25", listener.expression);
+        viewModel.calculateResult();
+        assertEquals("0,5", listener.expression);
+    }
+    
+    @Test
+    public void decimal_point_after_closing_parenthesis_adds_no_zero() {
+        viewModel.addParentheses();
+        viewModel.appendNumber("2");
+        viewModel.addParentheses();
+        viewModel.appendDecimalPoint();
+        assertEquals("(2),", listener.expression);
+    }
+    
+    @Test
+    public void percent_replaces_only_the_last_number() {
+        viewModel.appendNumber("5");
+        viewModel.appendNumber("0");
+        viewModel.appendOperator("+");
+        viewModel.appendNumber("5");
+        viewModel.appendNumber("0");
+        viewModel.appendPercent();
+        assertEquals("50+0,5", listener.expression);
+    }
+    
+    @Test
+    public void percent_ignored_inside_parentheses_and_powers() {
+        viewModel.addParentheses();
+        viewModel.appendNumber("5");
+        viewModel.appendPercent();
+        assertEquals("(5", listener.expression);
+        viewModel.clear();
+        viewModel.appendNumber("2");
+        viewModel.appendPower();
+        viewModel.appendNumber("5");
+        viewModel.appendPercent();
+        assertEquals("2^5", listener.expression);
+    }
 }
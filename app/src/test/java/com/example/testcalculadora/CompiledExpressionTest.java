@@ -0,0 +1,211 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.ExpressionParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for compiled expressions
+ */
+public class CompiledExpressionTest {
+
+    private ExpressionParser parser;
+    private static final double DELTA = 0.0001;
+
+    @Before
+    public void setUp() {
+        parser = new ExpressionParser();
+    }
+
+    @Test
+    public void compiled_expression_matches_evaluate() throws Exception {
+        String[] expressions = {
+            "2+3*4", "2^3^2", "-2^2", "(1+0,05/12)^360", "sqrt(100^2+50^2)",
+            "sin(30)^2+cos(30)^2", "10*log(100)-ln(2.71828)", "4/3*3^3", "--5"
+        };
+        for (String expression : expressions) {
+            CompiledExpression compiled = parser.compile(expression);
+            assertEquals(expression, parser.evaluate(expression), compiled.evaluate(), 0.0);
+        }
+    }
+
+    @Test
+    public void compiled_expression_can_be_evaluated_repeatedly() throws Exception {
+        CompiledExpression compiled = parser.compile("2*sin(30)+sqrt(16)");
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(5.0, compiled.evaluate(), DELTA);
+        }
+    }
+
+    @Test(expected = Exception.class)
+    public void division_by_zero_throws_on_evaluate() throws Exception {
+        CompiledExpression compiled = parser.compile("1/(2-2)");
+        compiled.evaluate();
+    }
+
+    @Test(expected = Exception.class)
+    public void unknown_function_throws_on_compile() throws Exception {
+        parser.compile("unknown(5)");
+    }
+
+    // Variables
+
+    @Test
+    public void variables_are_bound_by_position() throws Exception {
+        CompiledExpression compiled = parser.compile("1000*(1+rate)^t", "rate", "t");
+        assertEquals(1628.89, compiled.evaluate(new double[] {0.05, 10}), 0.01);
+        assertEquals(1000.0, compiled.evaluate(new double[] {0.05, 0}), DELTA);
+    }
+
+    @Test
+    public void variable_sweep_matches_string_evaluation() throws Exception {
+        CompiledExpression compiled = parser.compile("sin(x)^2+cos(x)^2*x", "x");
+        double[] bindings = new double[1];
+        for (int x = -180; x <= 180; x += 15) {
+            bindings[0] = x;
+            double expected = parser.evaluate("sin(" + x + ")^2+cos(" + x + ")^2*(" + x + ")");
+            assertEquals(expected, compiled.evaluate(bindings), 0.0);
+        }
+    }
+
+    @Test
+    public void variable_slots_are_reported() throws Exception {
+        CompiledExpression compiled = parser.compile("a*b", "a", "b");
+        assertEquals(2, compiled.getVariableCount());
+        assertEquals(1, compiled.indexOfVariable("b"));
+        assertEquals(-1, compiled.indexOfVariable("c"));
+    }
+
+    @Test(expected = Exception.class)
+    public void undeclared_variable_throws_on_compile() throws Exception {
+        parser.compile("x+1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missing_bindings_throw() throws Exception {
+        parser.compile("x+y", "x", "y").evaluate(new double[] {1});
+    }
+
+    // Optimization
+
+    @Test
+    public void constant_subexpressions_fold_to_same_value() throws Exception {
+        CompiledExpression compiled = parser.compile("sqrt(16)*x+log(1000)+sin(30)", "x");
+        assertEquals(4 * 2.5 + Math.log10(1000) + Math.sin(Math.toRadians(30)),
+                compiled.evaluate(new double[] {2.5}), 0.0);
+    }
+
+    @Test
+    public void identities_keep_value() throws Exception {
+        CompiledExpression compiled = parser.compile("(x*1-0)/1^1+y^0+--x", "x", "y");
+        assertEquals(2 * 7.25 + 1, compiled.evaluate(new double[] {7.25, 3}), 0.0);
+    }
+
+    @Test
+    public void adding_zero_turns_negative_zero_positive() throws Exception {
+        CompiledExpression compiled = parser.compile("x+0", "x");
+        double result = compiled.evaluate(new double[] {-0.0});
+        assertEquals(0L, Double.doubleToRawLongBits(result));
+    }
+
+    @Test
+    public void small_integer_powers_match_pow() throws Exception {
+        CompiledExpression compiled = parser.compile("x^2+x^3-x^4", "x");
+        double x = 1.5;
+        assertEquals(x * x + x * x * x - x * x * x * x, compiled.evaluate(new double[] {x}), 1e-12);
+    }
+
+    @Test(expected = Exception.class)
+    public void folding_keeps_domain_errors() throws Exception {
+        CompiledExpression compiled = parser.compile("x+sqrt(-4)^0", "x");
+        compiled.evaluate(new double[] {1});
+    }
+
+    // Common subexpressions
+
+    @Test
+    public void repeated_subterms_evaluate_like_the_original() throws Exception {
+        CompiledExpression compiled = parser.compile(
+                "sin(x)^2+cos(x)^2+2*sin(x)*cos(x)+sqrt(a^2+b^2)/sqrt(a^2+b^2)", "x", "a", "b");
+        double x = 33;
+        double sin = Math.sin(Math.toRadians(x));
+        double cos = Math.cos(Math.toRadians(x));
+        double norm = Math.sqrt(3 * 3 + 4 * 4);
+        assertEquals(sin * sin + cos * cos + 2 * sin * cos + norm / norm,
+                compiled.evaluate(new double[] {x, 3, 4}), 0.0);
+    }
+
+    @Test
+    public void shared_subterms_are_recomputed_for_new_bindings() throws Exception {
+        CompiledExpression compiled = parser.compile("ln(x+1)*ln(x+1)", "x");
+        double[] bindings = new double[1];
+        for (int x = 1; x < 50; x++) {
+            bindings[0] = x;
+            double ln = Math.log(x + 1);
+            assertEquals(ln * ln, compiled.evaluate(bindings), 0.0);
+        }
+    }
+
+    @Test
+    public void shared_subterms_work_in_batches() throws Exception {
+        CompiledExpression compiled = parser.compile("tan(x)*tan(x)-tan(x)/(1+tan(x)^2)", "x");
+        double[] x = new double[700];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i * 0.1;
+        }
+        double[] results = new double[x.length];
+        compiled.evaluate(new double[][] {x}, results);
+        for (int i = 0; i < x.length; i++) {
+            assertEquals(compiled.evaluate(new double[] {x[i]}), results[i], 0.0);
+        }
+    }
+
+    @Test
+    public void shared_subterm_errors_follow_the_tree_order() throws Exception {
+        // The shared 1/x is computed first, but ln comes first in the tree
+        CompiledExpression compiled = parser.compile("ln(x-1)+1/x+1/x", "x");
+        try {
+            compiled.evaluate(new double[] {0});
+            fail("Expected exception");
+        } catch (Exception e) {
+            assertEquals("Logaritmo de número não positivo", e.getMessage());
+        }
+
+        double[] results = new double[600];
+        double[] x = new double[results.length];
+        Arrays.fill(x, 2);
+        x[100] = 0;
+        try {
+            compiled.evaluate(new double[][] {x}, results);
+            fail("Expected exception");
+        } catch (Exception e) {
+            assertEquals("Logaritmo de número não positivo", e.getMessage());
+        }
+    }
+
+    @Test
+    public void whitespace_and_commas_are_read_in_place() throws Exception {
+        assertEquals(3.0, parser.evaluate(" 1,5 +\t1.5 "), 0.0);
+        assertEquals(12.5, parser.evaluate("1 2 , 5"), 0.0);
+        assertEquals(0.5, parser.evaluate("s in(30)"), DELTA);
+        assertEquals(6.0, parser.compile("r ate*2", "rate").evaluate(new double[] {3}), 0.0);
+        assertEquals(0.25, parser.evaluate(",25"), 0.0);
+    }
+
+    @Test
+    public void trailing_text_is_ignored() throws Exception {
+        assertEquals(5.0, parser.evaluate("(2+3))1.2.3"), 0.0);
+        assertEquals(4.0, parser.evaluate("2*2 #"), 0.0);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void malformed_number_throws() throws Exception {
+        parser.evaluate("1+1.2.3");
+    }
+}
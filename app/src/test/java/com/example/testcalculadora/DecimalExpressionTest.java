@@ -0,0 +1,140 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.DecimalExpression;
+import com.example.testcalculadora.model.ExpressionParser;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for exact evaluation with BigDecimal
+ */
+public class DecimalExpressionTest {
+
+    private final ExpressionParser parser = new ExpressionParser();
+
+    private BigDecimal exact(String expression) throws Exception {
+        return parser.evaluateExact(expression, MathContext.DECIMAL128);
+    }
+
+    private static void assertSameValue(String expected, BigDecimal actual) {
+        assertEquals(expected + " != " + actual, 0, new BigDecimal(expected).compareTo(actual));
+    }
+
+    private void assertError(String expression, String message) {
+        try {
+            exact(expression);
+            fail("Expected an error for " + expression);
+        } catch (Exception e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    @Test
+    public void decimal_literals_are_exact() throws Exception {
+        assertSameValue("0.3", exact("0,1+0,2"));
+        assertSameValue("0.3", exact("0.1+0.2"));
+        assertSameValue("1628.89462677744140625", exact("1000*1,05^10"));
+        assertSameValue("0.000001", exact("1/1000000"));
+    }
+
+    @Test
+    public void division_rounds_to_context() throws Exception {
+        assertEquals("0.3333333333333333333333333333333333", exact("1/3").toPlainString());
+        assertEquals("0.3333333333333333", parser.evaluateExact("1/3", MathContext.DECIMAL64).toPlainString());
+    }
+
+    @Test
+    public void special_angles_are_exact() throws Exception {
+        assertSameValue("0.5", exact("sin(30)"));
+        assertSameValue("0.5", exact("cos(60)"));
+        assertSameValue("1", exact("tan(45)"));
+        assertSameValue("-1", exact("tan(135)"));
+        assertSameValue("0", exact("sin(180)"));
+        assertSameValue("1", exact("cos(720)"));
+        assertSameValue("-0.5", exact("sin(-30)"));
+    }
+
+    @Test
+    public void functions_have_all_digits() throws Exception {
+        assertEquals("1.414213562373095048801688724209698", exact("sqrt(2)").toPlainString());
+        assertEquals("1.414213562373095048801688724209698", exact("2^0,5").toPlainString());
+        assertEquals("0.6931471805599453094172321214581766", exact("ln(2)").toPlainString());
+        assertEquals("0.3010299956639811952137388947244930", exact("log(2)").toPlainString());
+        assertSameValue("3", exact("log(1000)"));
+    }
+
+    @Test
+    public void square_roots_have_all_digits_at_high_precision() throws Exception {
+        MathContext context = new MathContext(5000);
+        BigDecimal tolerance = BigDecimal.ONE.movePointLeft(4997);
+        for (String value : new String[] {"2", "3", "0,5", "99"}) {
+            BigDecimal root = parser.evaluateExact("sqrt(" + value + ")", context);
+            BigDecimal square = new BigDecimal(value.replace(',', '.'));
+            BigDecimal error = root.multiply(root).subtract(square).abs();
+            assertTrue(value + ": " + error, error.compareTo(tolerance) < 0);
+        }
+    }
+
+    @Test
+    public void agrees_with_higher_precision() throws Exception {
+        Random random = new Random(19);
+        String[] functions = {"sin", "cos", "tan", "sqrt", "ln", "log"};
+        MathContext reference = new MathContext(60);
+        for (int i = 0; i < 300; i++) {
+            String argument = random.nextInt(100000) + "," + random.nextInt(1000);
+            String expression = functions[random.nextInt(functions.length)] + "(" + argument + ")";
+            BigDecimal expected = parser.evaluateExact(expression, reference).round(MathContext.DECIMAL128);
+            BigDecimal actual = exact(expression);
+            // A single function rounds once: within one unit in the last place
+            BigDecimal ulp = actual.ulp();
+            assertTrue(expression + ": " + actual + " vs " + expected,
+                    actual.subtract(expected).abs().compareTo(ulp) <= 0);
+            assertEquals(expression, parser.evaluate(expression), actual.doubleValue(),
+                    1e-9 * Math.max(1, Math.abs(actual.doubleValue())));
+        }
+    }
+
+    @Test
+    public void errors_match_double_mode() {
+        assertError("1/0", "Divisão por zero");
+        assertError("0^-1", "Divisão por zero");
+        assertError("tan(90)", "Divisão por zero");
+        assertError("sqrt(-1)", "Raiz quadrada de número negativo");
+        assertError("ln(0)", "Logaritmo de número não positivo");
+        assertError("(-8)^(1/3)", "Potência de base negativa com expoente fracionário");
+    }
+
+    @Test
+    public void variables_are_bound_on_evaluation() throws Exception {
+        DecimalExpression interest = parser.compileExact("p*(1+r)^n", MathContext.DECIMAL128, "p", "r", "n");
+        assertEquals(3, interest.getVariableCount());
+        assertSameValue("1102.5", interest.evaluate(
+                new BigDecimal("1000"), new BigDecimal("0.05"), new BigDecimal("2")));
+        assertSameValue("121", interest.evaluate(
+                new BigDecimal("100"), new BigDecimal("0.1"), new BigDecimal("2")));
+    }
+
+    @Test
+    public void deep_nesting_does_not_overflow() throws Exception {
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            expression.append("(1+");
+        }
+        expression.append('0');
+        for (int i = 0; i < 5000; i++) {
+            expression.append(')');
+        }
+        assertSameValue("5000", exact(expression.toString()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unlimited_precision_is_rejected() throws Exception {
+        parser.evaluateExact("1/3", MathContext.UNLIMITED);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.DecimalParser;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks DecimalParser bit for bit against Double.parseDouble
+ */
+public class DecimalParserTest {
+
+    private static void assertSameAsParseDouble(String literal) {
+        double expected = Double.parseDouble(literal);
+        assertEquals(literal, Double.doubleToRawLongBits(expected),
+                Double.doubleToRawLongBits(DecimalParser.parse(literal, 0, literal.length())));
+
+        String withComma = literal.replace('.', ',');
+        assertEquals(withComma, Double.doubleToRawLongBits(expected),
+                Double.doubleToRawLongBits(DecimalParser.parse(withComma, 0, withComma.length())));
+    }
+
+    @Test
+    public void common_literals() {
+        String[] literals = {
+            "0", "0.0", "00", ".5", "5.", "1", "12", "3.14159", "0.1", "0.2", "0.3",
+            "1628.894626777442", "100000", "0.000001", "9007199254740992", "9007199254740993",
+            "9007199254740991.5", "123456789012345678", "1234567890123456789",
+            "12345678901234567890123", "0.1234567890123456789012", "0.00000000000000000000001",
+            "179769313486231570000000000000000000000000000000000000000000000000000000000000000000000"
+                + "000000000000000000000000000000000000000000000000000000000000000000000000000000000000"
+                + "000000000000000000000000000000000000000000000000000000000000000000000000000000000000"
+                + "000000000000000000000000000000000000000000000000000000000000000000000000000000000000"
+        };
+        for (String literal : literals) {
+            assertSameAsParseDouble(literal);
+        }
+    }
+
+    @Test
+    public void random_literals() {
+        Random random = new Random(12);
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder literal = new StringBuilder();
+            int integerDigits = random.nextInt(20);
+            for (int d = 0; d < integerDigits; d++) {
+                literal.append((char) ('0' + random.nextInt(10)));
+            }
+            int fractionDigits = random.nextInt(26);
+            if (fractionDigits > 0 || integerDigits == 0) {
+                literal.append('.');
+                for (int d = 0; d < Math.max(fractionDigits, 1); d++) {
+                    literal.append((char) ('0' + random.nextInt(10)));
+                }
+            }
+            assertSameAsParseDouble(literal.toString());
+        }
+    }
+
+    @Test
+    public void shortest_representations_round_trip() {
+        Random random = new Random(13);
+        for (int i = 0; i < 100000; i++) {
+            double value = random.nextDouble() * Math.pow(10, random.nextInt(30) - 10);
+            assertSameAsParseDouble(new BigDecimal(Double.toString(value)).toPlainString());
+        }
+    }
+
+    @Test
+    public void whitespace_is_skipped() {
+        String literal = " 1 2,\t5 ";
+        assertEquals(12.5, DecimalParser.parse(literal, 0, literal.length()), 0.0);
+        assertEquals(2.0, DecimalParser.parse("x2y", 1, 2), 0.0);
+    }
+
+    @Test
+    public void malformed_literals_throw_like_parse_double() {
+        String[] literals = {".", ",", "1.2.3", "1,2,3", ""};
+        for (String literal : literals) {
+            String message;
+            try {
+                Double.parseDouble(literal.replace(',', '.'));
+                message = null;
+            } catch (NumberFormatException e) {
+                message = e.getMessage();
+            }
+            try {
+                DecimalParser.parse(literal, 0, literal.length());
+                fail("Expected exception for " + literal);
+            } catch (NumberFormatException e) {
+                assertEquals(message, e.getMessage());
+            }
+        }
+    }
+}
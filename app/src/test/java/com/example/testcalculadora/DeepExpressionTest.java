@@ -0,0 +1,146 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.BytecodeCompiler;
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.ExpressionParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for deeply nested expressions, parsed and evaluated without recursion
+ */
+public class DeepExpressionTest {
+
+    private static final int DEPTH = 20_000;
+
+    private ExpressionParser parser;
+
+    @Before
+    public void setUp() {
+        parser = new ExpressionParser();
+    }
+
+    @Test
+    public void nested_parentheses() throws Exception {
+        assertEquals(7.0, parser.evaluate(repeat("(", DEPTH) + "3+4" + repeat(")", DEPTH)), 0.0);
+        assertEquals(3.0, parser.evaluate(repeat("sqrt(", 5) + "3^32" + repeat(")", 5)), 1e-9);
+    }
+
+    @Test
+    public void nested_signs() throws Exception {
+        assertEquals(2.0, parser.evaluate(repeat("-(", DEPTH) + "2" + repeat(")", DEPTH)), 0.0);
+        assertEquals(-2.0, parser.evaluate(repeat("-(", DEPTH + 1) + "2" + repeat(")", DEPTH + 1)), 0.0);
+        assertEquals(-5.0, parser.evaluate(repeat("+-", 3) + "5"), 0.0);
+    }
+
+    @Test
+    public void long_power_chain_is_right_associative() throws Exception {
+        StringBuilder source = new StringBuilder("x");
+        for (int i = 1; i < DEPTH; i++) {
+            source.append("^x");
+        }
+        CompiledExpression compiled = parser.compile(source.toString(), "x");
+
+        double x = 1.0001;
+        double expected = x;
+        for (int i = 1; i < DEPTH; i++) {
+            expected = Math.pow(x, expected);
+        }
+        assertEquals(expected, compiled.evaluate(new double[] {x}), 0.0);
+        assertEquals(512.0, parser.evaluate("2^3^2"), 0.0);
+    }
+
+    @Test
+    public void long_sum_in_scalar_batch_and_bytecode() throws Exception {
+        CompiledExpression compiled = parser.compile("x" + repeat("+x", DEPTH - 1), "x");
+        double[] x = {0.5, 1, 3, -2};
+        double[] results = new double[x.length];
+        compiled.evaluate(new double[][] {x}, results);
+        for (int i = 0; i < x.length; i++) {
+            double expected = 0;
+            for (int k = 0; k < DEPTH; k++) {
+                expected += x[i];
+            }
+            assertEquals(expected, compiled.evaluate(new double[] {x[i]}), 0.0);
+            assertEquals(expected, results[i], 0.0);
+            assertEquals(expected, BytecodeCompiler.compile(compiled).evaluate(new double[] {x[i]}), 0.0);
+        }
+    }
+
+    @Test
+    public void shared_subterm_errors_follow_the_tree_order() throws Exception {
+        String source = "ln(x-1)+" + repeat("-(", 200) + "1/x" + repeat(")", 200) + "+1/x";
+        CompiledExpression compiled = parser.compile(source, "x");
+        try {
+            compiled.evaluate(new double[] {0});
+            fail("Expected exception");
+        } catch (Exception e) {
+            assertEquals("Logaritmo de número não positivo", e.getMessage());
+        }
+        assertEquals(1.0, compiled.evaluate(new double[] {2}), 0.0);
+    }
+
+    @Test
+    public void deep_and_shallow_evaluation_agree() throws Exception {
+        String[] expressions = {
+            "x^2-3*x/4", "-x^2", "sin(x)^2+cos(x)^2", "sqrt(x*x+1)*ln(x+2)", "2^-x^2", "(x-1)*(x-1)/(x+1)"
+        };
+        // z is bound to 0, so the padding adds nothing but makes the tree deep
+        String padding = repeat("z+", 500);
+        for (String source : expressions) {
+            CompiledExpression shallow = parser.compile(source, "x", "z");
+            CompiledExpression deep = parser.compile(padding + "(" + source + ")", "x", "z");
+            for (double x = 0.25; x < 10; x += 0.75) {
+                double[] bindings = {x, 0};
+                assertEquals(source, shallow.evaluate(bindings), deep.evaluate(bindings), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void errors_in_deep_expressions() throws Exception {
+        try {
+            parser.evaluate(repeat("(", DEPTH) + "1" + repeat(")", DEPTH - 1));
+            fail("Expected exception");
+        } catch (Exception e) {
+            assertEquals("Parênteses não fechado", e.getMessage());
+        }
+        CompiledExpression compiled = parser.compile(repeat("x+", DEPTH) + "1/x", "x");
+        try {
+            compiled.evaluate(new double[] {0});
+            fail("Expected exception");
+        } catch (Exception e) {
+            assertEquals("Divisão por zero", e.getMessage());
+        }
+    }
+
+    @Test
+    public void small_thread_stack_is_enough() throws Exception {
+        AtomicReference<Object> outcome = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                outcome.set(parser.compile(repeat("-(x+", DEPTH) + "1" + repeat(")", DEPTH), "x")
+                        .evaluate(new double[] {1}));
+            } catch (Throwable t) {
+                outcome.set(t);
+            }
+        }, "small-stack", 64 * 1024);
+        thread.start();
+        thread.join();
+        assertFalse(String.valueOf(outcome.get()), outcome.get() instanceof Throwable);
+        assertEquals(1.0, (Double) outcome.get(), 0.0);
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder repeated = new StringBuilder(text.length() * count);
+        for (int i = 0; i < count; i++) {
+            repeated.append(text);
+        }
+        return repeated.toString();
+    }
+}
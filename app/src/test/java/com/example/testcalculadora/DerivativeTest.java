@@ -0,0 +1,168 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.ExpressionParser;
+import com.example.testcalculadora.model.GradientExpression;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for symbolic derivatives and gradients by automatic differentiation
+ */
+public class DerivativeTest {
+
+    private static final double DEGREE = Math.PI / 180;
+
+    private final ExpressionParser parser = new ExpressionParser();
+
+    private double derivative(String expression, double x) throws Exception {
+        return parser.compileDerivative(expression, "x", "x").evaluate(new double[] {x});
+    }
+
+    private double[] gradient(String expression, double... point) throws Exception {
+        String[] variables = {"x", "y"};
+        double[] gradient = new double[2];
+        parser.compileGradient(expression, variables).evaluate(point, gradient);
+        return gradient;
+    }
+
+    private static String randomExpression(Random random, int depth) {
+        if (depth == 0 || random.nextInt(5) == 0) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    return "x";
+                case 1:
+                    return "y";
+                default:
+                    return (random.nextInt(30) + 5) / 10.0 + "";
+            }
+        }
+        String left = randomExpression(random, depth - 1);
+        String right = randomExpression(random, depth - 1);
+        switch (random.nextInt(10)) {
+            case 0:
+                return "(" + left + "+" + right + ")";
+            case 1:
+                return "(" + left + "-" + right + ")";
+            case 2:
+                return "(" + left + "*" + right + ")";
+            case 3:
+                return "(" + left + "/(" + right + "^2+1))";
+            case 4:
+                return "(" + left + ")^" + (random.nextInt(4) + 1);
+            case 5:
+                return "(" + left + "^2+1)^(" + right + "/10)";
+            case 6:
+                return "sin(" + left + "*30)";
+            case 7:
+                return "cos(" + left + "*30)";
+            case 8:
+                return "sqrt(" + left + "^2+1)";
+            default:
+                return "ln(" + left + "^2+1)-log(" + right + "^2+2)";
+        }
+    }
+
+    @Test
+    public void derivatives_of_each_function() throws Exception {
+        assertEquals(12, derivative("x^3", 2), 1e-12);
+        assertEquals(0.5 * DEGREE, derivative("sin(x)", 60), 1e-15);
+        assertEquals(-Math.sqrt(3) / 2 * DEGREE, derivative("cos(x)", 60), 1e-15);
+        assertEquals(2 * DEGREE, derivative("tan(x)", 45), 1e-15);
+        assertEquals(0.25, derivative("sqrt(x)", 4), 1e-15);
+        assertEquals(1 / (100 * Math.log(10)), derivative("log(x)", 100), 1e-15);
+        assertEquals(0.2, derivative("ln(x)", 5), 1e-15);
+        assertEquals(-1.0 / 9, derivative("1/x", 3), 1e-15);
+        assertEquals(4 * (Math.log(2) + 1), derivative("x^x", 2), 1e-12);
+        assertEquals(Math.log(3) * 9, derivative("3^x", 2), 1e-12);
+        assertEquals(-2, derivative("-2*x+7", 123), 0);
+    }
+
+    @Test
+    public void derivative_of_constant_is_zero() throws Exception {
+        CompiledExpression derivative = parser.compileDerivative("x^2+3", "y", "x", "y");
+        assertEquals(0, derivative.evaluate(new double[] {5, 1}), 0);
+        assertEquals(2, derivative.getVariableCount());
+    }
+
+    @Test
+    public void gradient_in_one_pass() throws Exception {
+        GradientExpression expression = parser.compileGradient("x*y+sin(x)/y", "x", "y");
+        double[] gradient = new double[2];
+        double value = expression.evaluate(new double[] {30, 2}, gradient);
+        assertEquals(60.25, value, 1e-12);
+        assertEquals(2 + Math.cos(30 * DEGREE) * DEGREE / 2, gradient[0], 1e-12);
+        assertEquals(30 - 0.5 / 4, gradient[1], 1e-12);
+    }
+
+    @Test
+    public void gradient_matches_symbolic_and_finite_differences() throws Exception {
+        Random random = new Random(21);
+        int checked = 0;
+        for (int i = 0; i < 500; i++) {
+            String expression = randomExpression(random, 4);
+            double x = 0.5 + 1.5 * random.nextDouble();
+            double y = 0.5 + 1.5 * random.nextDouble();
+            double[] gradient;
+            try {
+                gradient = gradient(expression, x, y);
+            } catch (Exception e) {
+                continue;
+            }
+            double[] point = {x, y};
+            for (int k = 0; k < 2; k++) {
+                String variable = k == 0 ? "x" : "y";
+                double symbolic = parser.compileDerivative(expression, variable, "x", "y").evaluate(point);
+                double scale = Math.max(1, Math.abs(symbolic));
+                assertEquals(expression + " d" + variable, symbolic, gradient[k], 1e-9 * scale);
+
+                CompiledExpression f = parser.compile(expression, "x", "y");
+                double h = 1e-6;
+                double[] up = point.clone();
+                double[] down = point.clone();
+                up[k] += h;
+                down[k] -= h;
+                double central = (f.evaluate(up) - f.evaluate(down)) / (2 * h);
+                assertEquals(expression + " d" + variable, central, gradient[k], 1e-4 * scale);
+            }
+            checked++;
+        }
+        assertTrue(checked > 400);
+    }
+
+    @Test
+    public void variable_exponent_needs_positive_base() {
+        try {
+            gradient("x^y", -2, 2);
+            fail("Expected an error");
+        } catch (Exception e) {
+            assertEquals("Logaritmo de número não positivo", e.getMessage());
+        }
+    }
+
+    @Test
+    public void constant_exponent_allows_negative_base() throws Exception {
+        double[] gradient = gradient("x^3*y", -2, 5);
+        assertEquals(60, gradient[0], 1e-12);
+        assertEquals(-8, gradient[1], 1e-12);
+    }
+
+    @Test
+    public void errors_of_the_expression_surface() {
+        try {
+            gradient("sqrt(x-y)", 1, 2);
+            fail("Expected an error");
+        } catch (Exception e) {
+            assertEquals("Raiz quadrada de número negativo", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void derivative_needs_declared_variable() throws Exception {
+        parser.compileDerivative("x^2", "z", "x");
+    }
+}
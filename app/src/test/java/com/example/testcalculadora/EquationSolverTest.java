@@ -0,0 +1,125 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.EquationSolver;
+import com.example.testcalculadora.model.ExpressionParser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for EquationSolver
+ */
+public class EquationSolverTest {
+
+    private static final double DELTA = 1e-10;
+
+    // Monthly payment of a loan p over n months at yearly rate r
+    private static final String PAYMENT = "p*(r/12)*(1+r/12)^n/((1+r/12)^n-1)";
+
+    private final ExpressionParser parser = new ExpressionParser();
+
+    @Test
+    public void brent_finds_square_root_of_two() throws Exception {
+        EquationSolver solver = parser.compileSolver("x^2", "x", "x");
+        EquationSolver.Solution solution = solver.solveBrent(new double[1], 0, 2, 2);
+        assertTrue(solution.isConverged());
+        assertEquals(Math.sqrt(2), solution.getRoot(), DELTA);
+        assertTrue(solution.getIterations() < 15);
+        // Both bounds, then one per iteration but the last, which only checks convergence
+        assertEquals(solution.getIterations() + 1, solution.getEvaluations());
+    }
+
+    @Test
+    public void newton_finds_square_root_of_two() throws Exception {
+        EquationSolver solver = parser.compileSolver("x^2", "x", "x");
+        assertTrue(solver.hasDerivative());
+        EquationSolver.Solution solution = solver.solveNewton(new double[1], 0, 2, 2);
+        assertTrue(solution.isConverged());
+        assertEquals(Math.sqrt(2), solution.getRoot(), DELTA);
+        assertTrue(solution.getIterations() < 10);
+    }
+
+    @Test
+    public void rate_for_a_loan_payment() throws Exception {
+        EquationSolver solver = parser.compileSolver(PAYMENT, "r", "p", "r", "n");
+        double[] bindings = {200000, 0, 360};
+        for (EquationSolver.Solution solution : new EquationSolver.Solution[] {
+                solver.solveBrent(bindings, 0.001, 0.5, 1199.10),
+                solver.solveNewton(bindings, 0.001, 0.5, 1199.10)}) {
+            assertTrue(solution.toString(), solution.isConverged());
+            assertEquals(0.06, solution.getRoot(), 1e-5);
+            assertTrue(solution.getElapsedNanos() >= 0);
+        }
+    }
+
+    @Test
+    public void newton_beats_bisection_on_smooth_functions() throws Exception {
+        EquationSolver solver = parser.compileSolver("x^3-2*x-5", "x", "x");
+        EquationSolver.Solution newton = solver.solveNewton(new double[1], 2, 3, 0);
+        assertEquals(2.0945514815423265, newton.getRoot(), 1e-14);
+        // Bisection needs about 40 halvings to reach 1e-12
+        assertTrue(newton.getIterations() < 10);
+    }
+
+    @Test
+    public void newton_falls_back_to_bisection() throws Exception {
+        // Newton from 0 overshoots far outside the bracket: tan is steep near 90
+        EquationSolver solver = parser.compileSolver("tan(x)-1000", "x", "x");
+        EquationSolver.Solution solution = solver.solveNewton(new double[1], 0, 89.99, 0.5, 0);
+        assertTrue(solution.isConverged());
+        assertEquals(90 - Math.toDegrees(Math.atan(0.001)), solution.getRoot(), 1e-9);
+    }
+
+    @Test
+    public void secant_slopes_without_derivative() throws Exception {
+        EquationSolver solver = EquationSolver.of(parser.compile("cos(x)-x/100", "x"), "x");
+        assertFalse(solver.hasDerivative());
+        EquationSolver.Solution solution = solver.solveNewton(new double[1], 0, 90, 0);
+        assertTrue(solution.isConverged());
+        double root = solution.getRoot();
+        assertEquals(0, Math.cos(Math.toRadians(root)) - root / 100, 1e-12);
+    }
+
+    @Test
+    public void iteration_limit_is_reported() throws Exception {
+        EquationSolver solver = parser.compileSolver("x-1/3", "x", "x").withMaxIterations(2).withTolerance(0);
+        EquationSolver.Solution solution = solver.solveBrent(new double[1], -1000, 1000, 0);
+        assertFalse(solution.isConverged());
+        assertEquals(2, solution.getIterations());
+    }
+
+    @Test
+    public void bracket_without_sign_change_is_rejected() throws Exception {
+        EquationSolver solver = parser.compileSolver("x^2+1", "x", "x");
+        try {
+            solver.solveBrent(new double[1], -1, 1, 0);
+            fail("Expected an error");
+        } catch (Exception e) {
+            assertEquals("Intervalo sem mudança de sinal", e.getMessage());
+        }
+    }
+
+    @Test
+    public void root_at_a_bound_is_returned() throws Exception {
+        EquationSolver solver = parser.compileSolver("x-3", "x", "x");
+        assertEquals(3, solver.solveNewton(new double[1], 3, 5, 0).getRoot(), 0);
+        assertEquals(3, solver.solveBrent(new double[1], 1, 3, 0).getRoot(), 0);
+    }
+
+    @Test
+    public void many_solves_reuse_the_compiled_formula() throws Exception {
+        EquationSolver solver = parser.compileSolver(PAYMENT, "r", "p", "r", "n");
+        double[] bindings = {100000, 0, 120};
+        for (int payment = 1100; payment < 2000; payment += 7) {
+            EquationSolver.Solution solution = solver.solveBrent(bindings, 1e-6, 1, payment);
+            bindings[1] = solution.getRoot();
+            assertEquals(payment, parser.compile(PAYMENT, "p", "r", "n").evaluate(bindings), 1e-6);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknown_must_be_declared() throws Exception {
+        parser.compileSolver("x^2", "y", "x");
+    }
+}
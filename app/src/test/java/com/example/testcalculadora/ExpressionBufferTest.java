@@ -0,0 +1,133 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.CalculatorState;
+import com.example.testcalculadora.model.ExpressionBuffer;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks ExpressionBuffer edits against a StringBuilder
+ */
+public class ExpressionBufferTest {
+
+    private static void assertSameText(StringBuilder expected, ExpressionBuffer buffer) {
+        assertEquals(expected.length(), buffer.length());
+        assertEquals(expected.length() == 0, buffer.isEmpty());
+        assertEquals(expected.toString(), buffer.toString());
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.charAt(i), buffer.charAt(i));
+        }
+    }
+
+    @Test
+    public void random_edits_match_string_builder() {
+        Random random = new Random(15);
+        StringBuilder expected = new StringBuilder();
+        ExpressionBuffer buffer = new ExpressionBuffer(1);
+        for (int step = 0; step < 20_000; step++) {
+            int action = random.nextInt(6);
+            int length = expected.length();
+            if (action == 0) {
+                int start = random.nextInt(length + 1);
+                int end = start + random.nextInt(length - start + 1);
+                expected.delete(start, end);
+                buffer.delete(start, end);
+            } else if (action == 1) {
+                int newLength = random.nextInt(length + 1);
+                expected.setLength(newLength);
+                buffer.setLength(newLength);
+            } else if (action == 2) {
+                int position = random.nextInt(length + 1);
+                String text = Integer.toString(random.nextInt(1000));
+                expected.insert(position, text);
+                buffer.insert(position, text);
+            } else if (action == 3 && length > 200) {
+                expected.setLength(0);
+                buffer.clear();
+            } else {
+                String text = "sin(" + random.nextInt(100) + ")+";
+                expected.append(text);
+                buffer.append(text);
+            }
+            assertSameText(expected, buffer);
+
+            int start = random.nextInt(expected.length() + 1);
+            int end = start + random.nextInt(expected.length() - start + 1);
+            assertEquals(expected.substring(start, end), buffer.subSequence(start, end).toString());
+        }
+    }
+
+    @Test
+    public void prefixes_and_suffixes() {
+        ExpressionBuffer buffer = new ExpressionBuffer();
+        buffer.append("2*(3+4");
+        buffer.insert(0, "1+");
+        assertTrue(buffer.startsWith("1+2"));
+        assertTrue(buffer.startsWith(""));
+        assertFalse(buffer.startsWith("1+3"));
+        assertTrue(buffer.endsWith("+4"));
+        assertFalse(buffer.endsWith("("));
+        assertFalse(buffer.endsWith("01+2*(3+4"));
+        buffer.setLength(5);
+        assertTrue(buffer.endsWith("("));
+        assertEquals("1+2*(", buffer.toString());
+    }
+
+    @Test
+    public void set_replaces_the_text() {
+        ExpressionBuffer buffer = new ExpressionBuffer();
+        buffer.append("123");
+        buffer.set("45,6");
+        assertEquals("45,6", buffer.toString());
+        buffer.set(buffer);
+        assertEquals("45,6", buffer.toString());
+        buffer.set("");
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void out_of_range_edits_throw() {
+        ExpressionBuffer buffer = new ExpressionBuffer();
+        buffer.append("12+3");
+        try {
+            buffer.charAt(4);
+            fail("Expected exception");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            buffer.delete(3, 5);
+            fail("Expected exception");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            buffer.insert(-1, "1");
+            fail("Expected exception");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        assertEquals("12+3", buffer.toString());
+    }
+
+    @Test
+    public void state_exposes_a_copy_and_a_read_only_view() {
+        CalculatorState state = new CalculatorState();
+        state.appendToExpression("12+3");
+        String copy = state.getExpression();
+        CharSequence view = state.getExpressionText();
+        assertFalse(view instanceof ExpressionBuffer);
+        assertEquals("12+3", view.toString());
+
+        state.truncateExpression(2);
+        assertEquals("12+3", copy);
+        assertEquals("12", view.toString());
+        // Setting the state from its own view keeps the text
+        state.setExpression(view);
+        assertEquals("12", state.getExpression());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.ExpressionCache;
+import com.example.testcalculadora.model.ExpressionParser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the compiled expression cache
+ */
+public class ExpressionCacheTest {
+
+    private ExpressionCache cache;
+    private ExpressionParser parser;
+
+    @Before
+    public void setUp() {
+        cache = new ExpressionCache(2);
+        parser = new ExpressionParser(cache);
+    }
+
+    @Test
+    public void repeated_expression_is_a_hit() throws Exception {
+        CompiledExpression first = parser.compile("2+3");
+        CompiledExpression second = parser.compile("2+3");
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void key_uses_normalized_text() throws Exception {
+        CompiledExpression first = parser.compile("1,5 * 2");
+        CompiledExpression second = parser.compile("1.5*2");
+        assertSame(first, second);
+        assertEquals(3.0, second.evaluate(), 0.0);
+    }
+
+    @Test
+    public void variables_are_part_of_the_key() throws Exception {
+        CompiledExpression x = parser.compile("a*2", "a");
+        CompiledExpression y = parser.compile("a*2", "b", "a");
+        assertNotSame(x, y);
+        assertEquals(6.0, y.evaluate(new double[] {0, 3}), 0.0);
+    }
+
+    @Test
+    public void least_recently_used_entry_is_evicted() throws Exception {
+        CompiledExpression one = parser.compile("1");
+        parser.compile("2");
+        parser.compile("1"); // "1" is now the most recently used
+        parser.compile("3"); // evicts "2"
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(one, parser.compile("1"));
+        long misses = cache.getMissCount();
+        parser.compile("2");
+        assertEquals(misses + 1, cache.getMissCount());
+    }
+
+    @Test
+    public void failed_parse_is_not_cached() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                parser.compile("sqrt(");
+                fail("Expected exception");
+            } catch (Exception e) {
+                // expected
+            }
+        }
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getMissCount());
+    }
+}
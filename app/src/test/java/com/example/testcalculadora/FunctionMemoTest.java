@@ -0,0 +1,191 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.BatchEvaluator;
+import com.example.testcalculadora.model.BytecodeCompiler;
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.ExpressionFunction;
+import com.example.testcalculadora.model.ExpressionParser;
+import com.example.testcalculadora.model.FunctionMemo;
+import com.example.testcalculadora.model.ParallelEvaluator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for FunctionMemo
+ */
+public class FunctionMemoTest {
+
+    private static final String FORMULA = "sin(x)+cos(x)*tan(x/3)+sqrt(abs)+log(abs+1)-ln(abs+2)";
+
+    private final ExpressionParser parser = new ExpressionParser();
+
+    @Before
+    public void emptyTable() {
+        FunctionMemo.current().reset();
+    }
+
+    @Test
+    public void results_match_plain_evaluation() throws Exception {
+        CompiledExpression plain = parser.compile(FORMULA, "x", "abs");
+        CompiledExpression memoized = parser.compileMemoized(FORMULA, "x", "abs");
+        Random random = new Random(7);
+        double[] bindings = new double[2];
+        for (int i = 0; i < 20000; i++) {
+            // Half the arguments repeat
+            double x = i % 2 == 0 ? random.nextInt(50) * 7.5 : random.nextDouble() * 720 - 360;
+            bindings[0] = x;
+            bindings[1] = Math.abs(x);
+            assertEquals(Double.doubleToLongBits(plain.evaluate(bindings)),
+                    Double.doubleToLongBits(memoized.evaluate(bindings)));
+        }
+    }
+
+    @Test
+    public void batches_match_plain_evaluation() throws Exception {
+        int rows = 3000;
+        double[] x = new double[rows];
+        double[] abs = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            x[i] = (i % 37) * 10 - 180;
+            abs[i] = Math.abs(x[i]);
+        }
+        double[] expected = new double[rows];
+        double[] actual = new double[rows];
+        new BatchEvaluator(parser.compile(FORMULA, "x", "abs")).evaluate(new double[][] {x, abs}, expected);
+        new BatchEvaluator(parser.compileMemoized(FORMULA, "x", "abs")).evaluate(new double[][] {x, abs}, actual);
+        assertArrayEquals(expected, actual, 0);
+        assertTrue(FunctionMemo.current().getHitRate() > 0.9);
+    }
+
+    @Test
+    public void repeated_angles_hit() throws Exception {
+        CompiledExpression memoized = parser.compileMemoized("sin(x)*100", "x");
+        double[] bindings = new double[1];
+        for (int i = 0; i < 10000; i++) {
+            bindings[0] = (i % 12) * 30;
+            memoized.evaluate(bindings);
+        }
+        FunctionMemo memo = FunctionMemo.current();
+        assertEquals(10000, memo.getLookups());
+        assertEquals(10000 - 12, memo.getHits());
+        assertFalse(memo.isBypassing());
+        assertEquals(0, memo.getBypassedCalls());
+    }
+
+    @Test
+    public void unique_arguments_bypass_the_table() throws Exception {
+        CompiledExpression memoized = parser.compileMemoized("ln(x)", "x");
+        double[] bindings = new double[1];
+        for (int i = 1; i <= FunctionMemo.WINDOW + 100; i++) {
+            bindings[0] = i;
+            assertEquals(Math.log(i), memoized.evaluate(bindings), 0);
+        }
+        FunctionMemo memo = FunctionMemo.current();
+        assertTrue(memo.isBypassing());
+        assertEquals(FunctionMemo.WINDOW, memo.getLookups());
+        assertEquals(100, memo.getBypassedCalls());
+        assertEquals(0, memo.getHitRate(), 0);
+    }
+
+    @Test
+    public void errors_are_not_remembered() throws Exception {
+        CompiledExpression memoized = parser.compileMemoized("sqrt(x)", "x");
+        for (int i = 0; i < 3; i++) {
+            try {
+                memoized.evaluate(new double[] {-4});
+                fail("Expected an error");
+            } catch (Exception e) {
+                assertEquals("Raiz quadrada de número negativo", e.getMessage());
+            }
+        }
+        assertEquals(0, FunctionMemo.current().getHits());
+    }
+
+    @Test
+    public void signed_zeros_are_distinct_keys() throws Exception {
+        CompiledExpression memoized = parser.compileMemoized("sqrt(x)", "x");
+        assertEquals(Double.POSITIVE_INFINITY, 1 / memoized.evaluate(new double[] {0.0}), 0);
+        assertEquals(Double.NEGATIVE_INFINITY, 1 / memoized.evaluate(new double[] {-0.0}), 0);
+    }
+
+    @Test
+    public void deeply_nested_expressions_use_the_table() throws Exception {
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            expression.append("cos(");
+        }
+        expression.append('x');
+        for (int i = 0; i < 300; i++) {
+            expression.append(')');
+        }
+        double expected = parser.compile(expression.toString(), "x").evaluate(new double[] {10});
+        assertEquals(expected, parser.compileMemoized(expression.toString(), "x").evaluate(new double[] {10}), 0);
+        assertEquals(300, FunctionMemo.current().getLookups());
+    }
+
+    @Test
+    public void each_thread_has_its_own_table() throws Exception {
+        final CompiledExpression memoized = parser.compileMemoized("tan(x)", "x");
+        memoized.evaluate(new double[] {45});
+        final long[] otherLookups = new long[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                otherLookups[0] = FunctionMemo.current().getLookups();
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals(0, otherLookups[0]);
+        assertEquals(1, FunctionMemo.current().getLookups());
+    }
+
+    @Test
+    public void parallel_workers_use_their_own_tables() throws Exception {
+        int rows = 20000;
+        double[] x = new double[rows];
+        double[] abs = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            x[i] = (i % 90) * 4 - 180;
+            abs[i] = Math.abs(x[i]);
+        }
+        double[] expected = new double[rows];
+        double[] actual = new double[rows];
+        new BatchEvaluator(parser.compile(FORMULA, "x", "abs")).evaluate(new double[][] {x, abs}, expected);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new ParallelEvaluator(parser.compileMemoized(FORMULA, "x", "abs"), pool, 512)
+                    .evaluate(new double[][] {x, abs}, actual);
+        } finally {
+            pool.shutdown();
+        }
+        assertArrayEquals(expected, actual, 0);
+    }
+
+    @Test
+    public void generated_bytecode_uses_the_table() throws Exception {
+        ExpressionFunction function = BytecodeCompiler.compile(parser.compileMemoized("sin(x)*100+sqrt(x)", "x"));
+        assertTrue(function.getClass().getName().contains("GeneratedExpression"));
+        CompiledExpression plain = parser.compile("sin(x)*100+sqrt(x)", "x");
+        double[] bindings = new double[1];
+        for (int i = 0; i < 1000; i++) {
+            bindings[0] = (i % 10) * 30;
+            assertEquals(plain.evaluate(bindings), function.evaluate(bindings), 0.0);
+        }
+        FunctionMemo memo = FunctionMemo.current();
+        assertEquals(2000, memo.getLookups());
+        assertEquals(2000 - 20, memo.getHits());
+        try {
+            function.evaluate(new double[] {-4});
+            fail("Expected an error");
+        } catch (Exception e) {
+            assertEquals("Raiz quadrada de número negativo", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.ExpressionParser;
+import com.example.testcalculadora.model.IncrementalEvaluator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for keystroke-by-keystroke evaluation
+ */
+public class IncrementalEvaluatorTest {
+
+    private static final String[] KEYS = {
+        "0", "1", "2", "3", "5", "7", "9", ",", ".", "+", "-", "*", "/", "^", "(", ")", ")",
+        "sin(", "cos(", "tan(", "sqrt(", "log(", "ln(", "SIN(", "foo(", "x", " ", "%"
+    };
+
+    private ExpressionParser parser;
+    private IncrementalEvaluator evaluator;
+
+    @Before
+    public void setUp() {
+        parser = new ExpressionParser();
+        evaluator = new IncrementalEvaluator(parser);
+    }
+
+    private String outcome(String text, int length, int closing, boolean incremental) {
+        try {
+            double value;
+            if (incremental) {
+                value = evaluator.evaluate(length, closing);
+            } else {
+                StringBuilder closed = new StringBuilder(text.substring(0, length));
+                for (int i = 0; i < closing; i++) {
+                    closed.append(')');
+                }
+                value = parser.evaluate(closed.toString());
+            }
+            return Long.toHexString(Double.doubleToRawLongBits(value));
+        } catch (Exception e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    private static int openParentheses(String text) {
+        int open = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '(') {
+                open++;
+            } else if (text.charAt(i) == ')') {
+                open--;
+            }
+        }
+        return Math.max(open, 0);
+    }
+
+    @Test
+    public void matches_parser_on_random_typing() {
+        Random random = new Random(14);
+        StringBuilder text = new StringBuilder();
+        for (int step = 0; step < 50_000; step++) {
+            int action = random.nextInt(10);
+            if (action == 0) {
+                int length = random.nextInt(text.length() + 1);
+                text.setLength(length);
+                evaluator.truncate(length);
+            } else if (action == 1 && text.length() > 40) {
+                text.setLength(0);
+                evaluator.clear();
+            } else {
+                String key = KEYS[random.nextInt(KEYS.length)];
+                text.append(key);
+                evaluator.append(key);
+            }
+
+            String current = text.toString();
+            assertEquals(current.length(), evaluator.length());
+            int length = random.nextInt(current.length() + 1);
+            int[] closings = {openParentheses(current.substring(0, length)), random.nextInt(3)};
+            for (int closing : closings) {
+                assertEquals(current.substring(0, length) + " + " + closing + " ')'",
+                        outcome(current, length, closing, false), outcome(current, length, closing, true));
+            }
+        }
+    }
+
+    @Test
+    public void typing_a_long_expression_never_reparses() throws Exception {
+        String expression = "12,5+3*(2-sin(30))^2/(1+sqrt(16)*-ln(2))-2^3^2+log(1000)*(4-(1,5*2))+cos(60)";
+        for (int i = 0; i < expression.length(); i++) {
+            evaluator.append(expression.substring(i, i + 1));
+            char last = expression.charAt(i);
+            if (Character.isDigit(last) || last == ')') {
+                String prefix = expression.substring(0, i + 1);
+                int closing = openParentheses(prefix);
+                assertEquals(prefix, outcome(prefix, i + 1, closing, false), outcome(prefix, i + 1, closing, true));
+            }
+        }
+        assertEquals(0, evaluator.getFallbackCount());
+        assertEquals(parser.evaluate(expression), evaluator.evaluate(expression.length(), 0), 0.0);
+    }
+
+    @Test
+    public void erasing_returns_to_earlier_values() throws Exception {
+        evaluator.append("2*(3+4");
+        assertEquals(14.0, evaluator.evaluate(6, 1), 0.0);
+        evaluator.truncate(5);
+        evaluator.append("5");
+        assertEquals(16.0, evaluator.evaluate(6, 1), 0.0);
+        assertEquals(2.0, evaluator.evaluate(1, 0), 0.0);
+        assertEquals(0, evaluator.getFallbackCount());
+    }
+
+    @Test
+    public void errors_come_from_the_parser() {
+        evaluator.append("1/(2-2)+3");
+        try {
+            evaluator.evaluate(9, 0);
+            fail("Expected exception");
+        } catch (Exception e) {
+            assertEquals("Divisão por zero", e.getMessage());
+        }
+        assertEquals(1, evaluator.getFallbackCount());
+    }
+
+    @Test
+    public void snapshot_keeps_its_value_after_later_edits() throws Exception {
+        evaluator.append("2*(3+45");
+        IncrementalEvaluator.Snapshot snapshot = evaluator.snapshot(7, 1);
+        evaluator.truncate(3);
+        evaluator.append("1-1)");
+        assertFalse(snapshot.isFallback());
+        assertEquals(96, snapshot.evaluate(), 0);
+        assertEquals(0, evaluator.getFallbackCount());
+    }
+
+    @Test
+    public void snapshot_of_unmodelled_text_is_parsed() throws Exception {
+        evaluator.append("2 + 3");
+        IncrementalEvaluator.Snapshot snapshot = evaluator.snapshot(5, 0);
+        evaluator.clear();
+        assertTrue(snapshot.isFallback());
+        assertEquals(5, snapshot.evaluate(), 0);
+        assertEquals(1, evaluator.getFallbackCount());
+    }
+}
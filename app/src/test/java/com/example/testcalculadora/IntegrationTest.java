@@ -0,0 +1,153 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.Estimate;
+import com.example.testcalculadora.model.ExpressionParser;
+import com.example.testcalculadora.model.Integrator;
+import com.example.testcalculadora.model.Summation;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Integrator and Summation
+ */
+public class IntegrationTest {
+
+    private final ExpressionParser parser = new ExpressionParser();
+
+    private Integrator integrator(String expression, String... variables) throws Exception {
+        return new Integrator(parser.compile(expression, variables), "x");
+    }
+
+    @Test
+    public void polynomials_are_exact_on_one_panel() throws Exception {
+        Estimate estimate = integrator("3*x^5-x^2+7", "x").integrate(new double[1], -1, 2);
+        assertTrue(estimate.isConverged());
+        assertEquals(3 * 64 / 6.0 - 8 / 3.0 + 14 - (3 / 6.0 + 1 / 3.0 - 7), estimate.getValue(), 1e-12);
+        assertEquals(15, estimate.getEvaluations());
+    }
+
+    @Test
+    public void sine_in_degrees() throws Exception {
+        Estimate estimate = integrator("sin(x)", "x").integrate(new double[1], 0, 180);
+        assertTrue(estimate.isConverged());
+        assertEquals(360 / Math.PI, estimate.getValue(), 1e-9);
+        assertTrue(estimate.getErrorEstimate() <= 1e-10 * 360 / Math.PI);
+    }
+
+    @Test
+    public void singular_endpoint_is_refined() throws Exception {
+        Estimate estimate = integrator("1/sqrt(x)", "x").integrate(new double[1], 0, 1);
+        assertTrue(estimate.toString(), estimate.isConverged());
+        assertEquals(2, estimate.getValue(), 1e-9);
+        // Panels are only halved near the singularity
+        assertTrue(estimate.getEvaluations() < 3000);
+    }
+
+    @Test
+    public void reversed_bounds_negate_and_parameters_are_bound() throws Exception {
+        Integrator integrator = integrator("a*x+b", "a", "x", "b");
+        Estimate forward = integrator.integrate(new double[] {2, 0, 1}, 0, 3);
+        Estimate backward = integrator.integrate(new double[] {2, 0, 1}, 3, 0);
+        assertEquals(12, forward.getValue(), 1e-12);
+        assertEquals(-12, backward.getValue(), 1e-12);
+        assertEquals(0, integrator.integrate(new double[3], 5, 5).getValue(), 0);
+    }
+
+    @Test
+    public void estimated_error_covers_actual_error() throws Exception {
+        Integrator integrator = integrator("cos(x*k)", "x", "k").withTolerance(1e-6, 0);
+        for (int k = 1; k <= 40; k += 3) {
+            Estimate estimate = integrator.integrate(new double[] {0, k}, 0, 100);
+            double exact = Math.sin(Math.toRadians(100.0 * k)) / Math.toRadians(k);
+            assertTrue(estimate.toString(), estimate.isConverged());
+            assertTrue(estimate.toString(), Math.abs(estimate.getValue() - exact) <= Math.max(estimate.getErrorEstimate(), 1e-12));
+        }
+    }
+
+    @Test
+    public void budget_exhaustion_is_reported() throws Exception {
+        Integrator integrator = integrator("sin(x*1000)", "x").withMaxEvaluations(100);
+        Estimate estimate = integrator.integrate(new double[1], 1, 300);
+        assertFalse(estimate.isConverged());
+        assertTrue(estimate.getEvaluations() <= 100);
+    }
+
+    @Test
+    public void parallel_rounds_match_sequential() throws Exception {
+        CompiledExpression expression = parser.compile("sqrt(1+sin(x)^2)", "x");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Estimate sequential = new Integrator(expression, "x", pool, Integer.MAX_VALUE)
+                    .integrate(new double[1], 0, 36000);
+            Estimate parallel = new Integrator(expression, "x", pool, 64).integrate(new double[1], 0, 36000);
+            assertEquals(sequential.getValue(), parallel.getValue(), 0);
+            assertEquals(sequential.getEvaluations(), parallel.getEvaluations());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void basel_sum() throws Exception {
+        Summation summation = new Summation(parser.compile("1/k^2", "k"), "k");
+        Estimate estimate = summation.sum(new double[1], 1, 1000000);
+        assertEquals(1000000, estimate.getEvaluations());
+        assertEquals(Math.PI * Math.PI / 6 - 1 / (1000000 + 0.5), estimate.getValue(), 1e-15);
+    }
+
+    @Test
+    public void compensation_cancels_rounding() throws Exception {
+        Summation summation = new Summation(parser.compile("0.1+0*k", "k"), "k");
+        Estimate estimate = summation.sum(new double[1], 1, 1000000);
+        double naive = 0;
+        for (int k = 1; k <= 1000000; k++) {
+            naive += 0.1;
+        }
+        assertNotEquals(100000, naive, 1e-9);
+        assertEquals(100000, estimate.getValue(), 0);
+        assertTrue(estimate.getErrorEstimate() < 1e-10);
+    }
+
+    @Test
+    public void parallel_sum_matches_sequential() throws Exception {
+        CompiledExpression expression = parser.compile("(-1)^k/(2*k+1)*a", "a", "k");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            double sequential = new Summation(expression, "k", pool, Integer.MAX_VALUE)
+                    .sum(new double[] {4, 0}, 0, 199999).getValue();
+            double parallel = new Summation(expression, "k", pool, 1024).sum(new double[] {4, 0}, 0, 199999).getValue();
+            assertEquals(sequential, parallel, 0);
+            assertEquals(Math.PI, parallel, 1e-5);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void empty_and_oversized_ranges() throws Exception {
+        Summation summation = new Summation(parser.compile("k", "k"), "k").withMaxEvaluations(10);
+        assertEquals(0, summation.sum(new double[1], 5, 4).getValue(), 0);
+        assertEquals(55, summation.sum(new double[1], 1, 10).getValue(), 0);
+        try {
+            summation.sum(new double[1], 1, 11);
+            fail("Expected an error");
+        } catch (IllegalArgumentException expected) {
+            // over the budget
+        }
+    }
+
+    @Test
+    public void evaluation_errors_are_rethrown() throws Exception {
+        try {
+            new Summation(parser.compile("1/k", "k"), "k").sum(new double[1], -3, 3);
+            fail("Expected an error");
+        } catch (Exception e) {
+            assertEquals("Divisão por zero", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.ExpressionParser;
+import com.example.testcalculadora.model.Interval;
+import com.example.testcalculadora.model.IntervalExpression;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for interval evaluation and its error bounds
+ */
+public class IntervalExpressionTest {
+
+    private static final MathContext REFERENCE = new MathContext(60);
+
+    private final ExpressionParser parser = new ExpressionParser();
+
+    private static void assertEncloses(String what, BigDecimal exact, Interval interval) {
+        assertTrue(what + ": " + exact + " not in " + interval,
+                new BigDecimal(interval.getLower()).compareTo(exact) <= 0
+                        && exact.compareTo(new BigDecimal(interval.getUpper())) <= 0);
+    }
+
+    private void assertError(String expression, String message, Interval... bindings) {
+        try {
+            parser.compileInterval(expression, "x").evaluate(bindings);
+            fail("Expected an error for " + expression);
+        } catch (Exception e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static String randomExpression(Random random, int depth) {
+        if (depth == 0 || random.nextInt(4) == 0) {
+            return (random.nextInt(200) + 1) + "," + random.nextInt(1000);
+        }
+        String left = randomExpression(random, depth - 1);
+        String right = randomExpression(random, depth - 1);
+        switch (random.nextInt(9)) {
+            case 0:
+                return "(" + left + "+" + right + ")";
+            case 1:
+                return "(" + left + "-" + right + ")";
+            case 2:
+                return "(" + left + "*" + right + ")";
+            case 3:
+                return "(" + left + "/" + right + ")";
+            case 4:
+                return "(" + left + ")^" + (random.nextInt(5) - 2);
+            case 5:
+                return "sin(" + left + ")";
+            case 6:
+                return "cos(" + left + ")";
+            case 7:
+                return "sqrt(" + left + ")";
+            default:
+                return "ln(" + left + ")";
+        }
+    }
+
+    @Test
+    public void literals_are_enclosed() throws Exception {
+        Interval tenth = parser.evaluateInterval("0,1");
+        assertTrue(tenth.getLower() < tenth.getUpper());
+        assertEquals(Math.nextUp(tenth.getLower()), tenth.getUpper(), 0);
+        assertEncloses("0,1", new BigDecimal("0.1"), tenth);
+        assertEncloses("0,1+0,2", new BigDecimal("0.3"), parser.evaluateInterval("0,1+0,2"));
+    }
+
+    @Test
+    public void exact_sums_stay_points() throws Exception {
+        assertEquals(Interval.point(3), parser.evaluateInterval("1+2"));
+        assertEquals(Interval.point(-1), parser.evaluateInterval("1,5-2,5"));
+        assertEquals(Interval.point(1), parser.evaluateInterval("7^0"));
+    }
+
+    @Test
+    public void random_expressions_enclose_exact_value() throws Exception {
+        Random random = new Random(20);
+        int checked = 0;
+        for (int i = 0; i < 2000; i++) {
+            String expression = randomExpression(random, 4);
+            BigDecimal exact;
+            try {
+                exact = parser.evaluateExact(expression, REFERENCE);
+            } catch (Exception e) {
+                continue;
+            }
+            Interval interval;
+            try {
+                interval = parser.evaluateInterval(expression);
+            } catch (Exception e) {
+                // Only an operand interval touching a domain edge may fail here
+                continue;
+            }
+            assertEncloses(expression, exact, interval);
+            // Tight: a few ulps per operation, more only where a large angle
+            // carries its own ulps into the sine
+            double value = parser.evaluate(expression);
+            if (Math.abs(value) > 1e-3 && Math.abs(value) < 1e6) {
+                assertTrue(expression + " too wide: " + interval, interval.width() < Math.abs(value) * 1e-8);
+            }
+            checked++;
+        }
+        assertTrue(checked > 1000);
+    }
+
+    @Test
+    public void ranges_enclose_every_point() throws Exception {
+        IntervalExpression expression = parser.compileInterval("x^2-3*x+sin(x*10)/x", "x");
+        Interval range = Interval.of(0.5, 4);
+        Interval result = expression.evaluate(range);
+        for (int i = 0; i <= 100; i++) {
+            BigDecimal x = new BigDecimal(0.5 + 3.5 * i / 100);
+            BigDecimal exact = parser.compileExact("x^2-3*x+sin(x*10)/x", REFERENCE, "x").evaluate(x);
+            assertEncloses("x=" + x, exact, result);
+        }
+    }
+
+    @Test
+    public void functions_follow_their_shape() throws Exception {
+        IntervalExpression square = parser.compileInterval("x^2", "x");
+        Interval around = square.evaluate(Interval.of(-2, 3));
+        assertEquals(0, around.getLower(), 0);
+        assertTrue(around.contains(9) && around.getUpper() < 9.000001);
+
+        Interval sine = parser.compileInterval("sin(x)", "x").evaluate(Interval.of(0, 180));
+        assertEquals(1, sine.getUpper(), 0);
+        // sin(180) is 0, but pi/180 is known only to a double
+        assertTrue(sine.getLower() <= 0 && sine.getLower() > -1e-14);
+
+        Interval cosine = parser.compileInterval("cos(x)", "x").evaluate(Interval.of(-10, 1000));
+        assertEquals(Interval.of(-1, 1), cosine);
+
+        Interval logarithm = parser.compileInterval("log(x)", "x").evaluate(Interval.of(10, 1000));
+        assertTrue(logarithm.contains(1) && logarithm.contains(3));
+        assertTrue(logarithm.getLower() > 0.999999 && logarithm.getUpper() < 3.000001);
+    }
+
+    @Test
+    public void dependent_operands_widen_but_still_enclose() throws Exception {
+        // Each x ranges independently, so x-x is not 0
+        Interval difference = parser.compileInterval("x-x", "x").evaluate(Interval.of(0, 1));
+        assertEquals(Interval.of(-1, 1), difference);
+    }
+
+    @Test
+    public void possible_errors_are_reported() {
+        assertError("1/x", "Divisão por zero", Interval.of(-1, 1));
+        assertError("sqrt(x)", "Raiz quadrada de número negativo", Interval.of(-1, 4));
+        assertError("ln(x)", "Logaritmo de número não positivo", Interval.of(0, 4));
+        assertError("tan(x)", "Divisão por zero", Interval.of(80, 100));
+        assertError("x^0,5", "Potência de base negativa com expoente fracionário", Interval.of(-1, 1));
+    }
+
+    @Test
+    public void tangent_pole_is_an_error_even_at_a_point() throws Exception {
+        // Double evaluation only misses the pole by rounding
+        assertEquals(1.633e16, parser.evaluate("tan(90)"), 1e13);
+        try {
+            parser.evaluateInterval("tan(90)");
+            fail("Expected exception");
+        } catch (Exception e) {
+            assertEquals("Divisão por zero", e.getMessage());
+        }
+        assertError("tan(x)", "Divisão por zero", Interval.point(-270));
+    }
+
+    @Test
+    public void tangent_next_to_a_pole_is_an_error() {
+        assertError("tan(x)", "Divisão por zero", Interval.point(Math.nextDown(90.0)));
+        assertError("tan(x)", "Divisão por zero", Interval.point(Math.nextUp(90.0)));
+        assertError("tan(x)", "Divisão por zero", Interval.of(0, Math.nextDown(90.0)));
+        assertError("tan(x)", "Divisão por zero", Interval.point(Math.nextUp(-90.0)));
+    }
+
+    @Test
+    public void sweep_can_skip_ranges_without_roots() throws Exception {
+        // Roots of x^3-2x-5 in [-10, 10]: split ranges, dropping those whose
+        // enclosure excludes 0
+        IntervalExpression cubic = parser.compileInterval("x^3-2*x-5", "x");
+        ArrayDeque<Interval> pending = new ArrayDeque<>();
+        List<Interval> roots = new ArrayList<>();
+        pending.push(Interval.of(-10, 10));
+        int evaluations = 0;
+        while (!pending.isEmpty()) {
+            Interval range = pending.pop();
+            evaluations++;
+            if (!cubic.evaluate(range).contains(0)) {
+                continue;
+            }
+            if (range.width() < 1e-9) {
+                roots.add(range);
+            } else {
+                pending.push(Interval.of(range.midpoint(), range.getUpper()));
+                pending.push(Interval.of(range.getLower(), range.midpoint()));
+            }
+        }
+        assertFalse(roots.isEmpty());
+        for (Interval root : roots) {
+            assertEquals(2.0945514815423265, root.midpoint(), 1e-8);
+        }
+        // Sampling at 1e-9 steps would take 2e10 evaluations
+        assertTrue("evaluations: " + evaluations, evaluations < 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reversed_interval_is_rejected() {
+        Interval.of(2, 1);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.utils.NumberFormatter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks NumberFormatter against the original DecimalFormat-per-call implementation
+ */
+public class NumberFormatterTest {
+
+    private Locale defaultLocale;
+
+    @Before
+    public void setUp() {
+        defaultLocale = Locale.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    /** The implementation NumberFormatter.format must stay equivalent to. */
+    private static String referenceFormat(double number) {
+        DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.getDefault());
+        symbols.setDecimalSeparator(',');
+        symbols.setGroupingSeparator('.');
+
+        DecimalFormat df = new DecimalFormat("#.##########", symbols);
+        String result = df.format(number);
+
+        if (result.contains(",")) {
+            result = result.replaceAll("0*$", "").replaceAll(",$", "");
+        }
+
+        return result;
+    }
+
+    private static void assertSameAsReference(double number) {
+        assertEquals("format(" + number + ")", referenceFormat(number), NumberFormatter.format(number));
+    }
+
+    @Test
+    public void special_values_match_reference() {
+        double[] values = {
+            0.0, -0.0, 1, -1, 0.5, -0.5, 0.1, 0.2 + 0.1, 1.0 / 3, 2.0 / 3,
+            1628.894626777442, 1e-10, 5e-11, 1.5e-10, 4.9e-11, 1e-11, 123456789.123456789,
+            9007199254740991.0, 9007199254740992.0, 9007199254740993.0, -9007199254740991.0,
+            1e15, 1e16, 1e22, 1e23, 6.022e23, 1.602e-19, Double.MAX_VALUE, Double.MIN_VALUE,
+            -Double.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+        };
+        for (double value : values) {
+            assertSameAsReference(value);
+        }
+    }
+
+    @Test
+    public void random_values_match_reference() {
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            assertSameAsReference((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 15));
+            assertSameAsReference(random.nextInt(2_000_001) - 1_000_000);
+            assertSameAsReference(Math.round(random.nextDouble() * 1e6) / 1e4);
+            assertSameAsReference(Double.longBitsToDouble(random.nextLong()));
+        }
+    }
+
+    @Test
+    public void other_locales_match_reference() {
+        Locale[] locales = {
+            Locale.US, Locale.GERMANY, new Locale("pt", "BR"), new Locale("ar", "EG"),
+            new Locale("fa", "IR"), new Locale("he", "IL"), new Locale("hi", "IN"), Locale.CHINA
+        };
+        Random random = new Random(11);
+        for (Locale locale : locales) {
+            Locale.setDefault(locale);
+            for (int i = 0; i < 500; i++) {
+                assertSameAsReference(random.nextInt(20001) - 10000);
+                assertSameAsReference((random.nextDouble() - 0.5) * 1000);
+            }
+            assertSameAsReference(-0.0);
+            assertSameAsReference(Double.NaN);
+            assertSameAsReference(Double.NEGATIVE_INFINITY);
+        }
+    }
+
+    @Test
+    public void uses_comma_decimal_separator() {
+        Locale.setDefault(Locale.US);
+        assertEquals("1,5", NumberFormatter.format(1.5));
+        assertEquals("-1628,8946267774", NumberFormatter.format(-1628.894626777442));
+        assertEquals("12", NumberFormatter.format(12.0));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.ExpressionParser;
+import com.example.testcalculadora.model.ParallelEvaluator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for parallel batch evaluation
+ */
+public class ParallelEvaluatorTest {
+
+    private ExpressionParser parser;
+
+    @Before
+    public void setUp() {
+        parser = new ExpressionParser();
+    }
+
+    @Test
+    public void parallel_results_keep_input_order() throws Exception {
+        CompiledExpression compiled = parser.compile("x*2+sin(x)", "x");
+        int rows = 100_003;
+        double[] x = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            x[i] = i;
+        }
+
+        double[] parallel = new double[rows];
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new ParallelEvaluator(compiled, pool, 1000).evaluate(new double[][] {x}, parallel);
+        } finally {
+            pool.shutdown();
+        }
+
+        double[] sequential = new double[rows];
+        compiled.evaluate(new double[][] {x}, sequential);
+        assertArrayEquals(sequential, parallel, 0.0);
+    }
+
+    @Test
+    public void small_batches_run_sequentially() throws Exception {
+        ParallelEvaluator evaluator = new ParallelEvaluator(parser.compile("x^2", "x"));
+        double[] results = new double[3];
+        evaluator.evaluate(new double[][] {{1, 2, 3}}, results);
+        assertArrayEquals(new double[] {1, 4, 9}, results, 0.0);
+    }
+
+    @Test
+    public void evaluation_error_is_rethrown() throws Exception {
+        double[] x = new double[50_000];
+        x[42_000] = -1;
+        ParallelEvaluator evaluator = new ParallelEvaluator(
+                parser.compile("sqrt(x)", "x"), ForkJoinPool.commonPool(), 1000);
+        try {
+            evaluator.evaluate(new double[][] {x}, new double[x.length]);
+            fail("Expected exception");
+        } catch (Exception e) {
+            assertEquals("Raiz quadrada de número negativo", e.getMessage());
+        }
+    }
+
+    @Test
+    public void lowest_failing_row_is_reported_after_every_piece_finished() throws Exception {
+        int rows = 40_000;
+        double[] x = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            x[i] = 1 + i % 3;
+        }
+        x[100] = -1;
+        x[39_000] = 5;
+        double[] results = new double[rows];
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new ParallelEvaluator(parser.compile("ln(x)+1/(x-5)", "x"), pool, 512)
+                    .evaluate(new double[][] {x}, results);
+            fail("Expected exception");
+        } catch (Exception e) {
+            assertEquals("Logaritmo de número não positivo", e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+        // Pieces after the failures ran to their end
+        assertEquals(Math.log(x[rows - 1]) + 1 / (x[rows - 1] - 5), results[rows - 1], 0.0);
+    }
+}
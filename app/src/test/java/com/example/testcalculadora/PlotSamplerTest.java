@@ -0,0 +1,138 @@
+package com.example.testcalculadora;
+
+import com.example.testcalculadora.model.ExpressionParser;
+import com.example.testcalculadora.model.PlotSampler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PlotSampler
+ */
+public class PlotSamplerTest {
+
+    private static final int COLUMNS = 100;
+
+    private final ExpressionParser parser = new ExpressionParser();
+
+    private PlotSampler sampler(String expression, String... variables) throws Exception {
+        return new PlotSampler(parser.compile(expression, variables), "x", COLUMNS);
+    }
+
+    private static float min(float[] buffer, int column) {
+        return buffer[column * PlotSampler.STRIDE + PlotSampler.MIN];
+    }
+
+    private static float max(float[] buffer, int column) {
+        return buffer[column * PlotSampler.STRIDE + PlotSampler.MAX];
+    }
+
+    @Test
+    public void straight_lines_cost_two_evaluations_per_column() throws Exception {
+        PlotSampler sampler = sampler("2*x+1", "x");
+        float[] buffer = sampler.sample(new double[1], -50, 0.1, 0.01);
+        assertEquals(2 * COLUMNS + 1, sampler.getEvaluations());
+        // Column 0 covers [-5, -4.9]
+        assertEquals(-9, min(buffer, 0), 1e-6);
+        assertEquals(-8.8, max(buffer, 0), 1e-6);
+    }
+
+    @Test
+    public void bars_cover_the_curve() throws Exception {
+        PlotSampler sampler = sampler("x^2", "x");
+        float[] buffer = sampler.sample(new double[1], -50, 0.02, 0.001);
+        for (int c = 0; c < COLUMNS; c++) {
+            for (int i = 0; i <= 10; i++) {
+                double x = (c - 50 + i / 10.0) * 0.02;
+                assertTrue(min(buffer, c) <= x * x + 0.001);
+                assertTrue(max(buffer, c) >= x * x - 0.001);
+            }
+        }
+        // The column left of 0 reaches its minimum at its right edge
+        assertEquals(0, min(buffer, 49), 0);
+        assertEquals(0, min(buffer, 50), 0);
+    }
+
+    @Test
+    public void poles_are_followed() throws Exception {
+        PlotSampler sampler = sampler("tan(x)", "x");
+        // Columns of 0.3 degrees; column 50 covers [90, 90.3] and column 49 [89.7, 90]
+        float[] buffer = sampler.sample(new double[1], 250, 0.3, 0.1);
+        assertTrue(max(buffer, 49) > 1000);
+        assertTrue(min(buffer, 50) < -1000);
+        assertTrue(max(buffer, 48) < 200);
+        // Flat far from the pole, steep close to it
+        assertTrue(sampler.getEvaluations() > 2 * COLUMNS + 1);
+    }
+
+    @Test
+    public void undefined_columns_are_empty() throws Exception {
+        PlotSampler sampler = sampler("sqrt(x)", "x");
+        float[] buffer = sampler.sample(new double[1], -50, 1, 0.01);
+        for (int c = 0; c < 49; c++) {
+            assertTrue(Float.isNaN(min(buffer, c)));
+            assertTrue(Float.isNaN(max(buffer, c)));
+        }
+        // Column 49 covers [-1, 0] and holds only sqrt(0)
+        assertEquals(0, min(buffer, 49), 0);
+        assertEquals(0, max(buffer, 49), 0);
+        assertEquals(1, max(buffer, 50), 0);
+    }
+
+    @Test
+    public void panning_samples_only_exposed_columns() throws Exception {
+        PlotSampler sampler = sampler("sin(x)*a", "x", "a");
+        double[] bindings = {0, 3};
+        sampler.sample(bindings, 0, 1, 0.05);
+        float[] panned = sampler.sample(bindings, 10, 1, 0.05).clone();
+        int panEvaluations = sampler.getEvaluations();
+
+        PlotSampler fresh = sampler("sin(x)*a", "x", "a");
+        assertArrayEquals(fresh.sample(bindings, 10, 1, 0.05), panned, 0);
+        assertTrue(panEvaluations * 5 < fresh.getEvaluations());
+
+        sampler.sample(bindings, 5, 1, 0.05);
+        assertTrue(sampler.getEvaluations() < panEvaluations);
+    }
+
+    @Test
+    public void zooming_out_merges_columns() throws Exception {
+        PlotSampler sampler = sampler("sin(x)", "x");
+        double[] bindings = new double[1];
+        float[] fine = sampler.sample(bindings, 0, 1, 0.01).clone();
+        // Twice the range around the same center: columns 25 to 74 are merged
+        float[] coarse = sampler.sample(bindings, -25, 2, 0.02);
+        for (int c = 25; c < 75; c++) {
+            int i = 2 * (c - 25);
+            assertEquals(Math.min(min(fine, i), min(fine, i + 1)), min(coarse, c), 0);
+            assertEquals(Math.max(max(fine, i), max(fine, i + 1)), max(coarse, c), 0);
+        }
+        PlotSampler fresh = sampler("sin(x)", "x");
+        fresh.sample(bindings, -25, 2, 0.02);
+        assertTrue(sampler.getEvaluations() < fresh.getEvaluations());
+    }
+
+    @Test
+    public void zooming_in_and_new_bindings_resample() throws Exception {
+        PlotSampler sampler = sampler("x*a", "x", "a");
+        sampler.sample(new double[] {0, 1}, 0, 1, 0.01);
+        sampler.sample(new double[] {0, 1}, 0, 0.5, 0.01);
+        assertEquals(2 * COLUMNS + 1, sampler.getEvaluations());
+        float[] buffer = sampler.sample(new double[] {0, 2}, 0, 0.5, 0.01);
+        assertEquals(2 * COLUMNS + 1, sampler.getEvaluations());
+        assertEquals(2 * 0.5 * COLUMNS, max(buffer, COLUMNS - 1), 1e-6);
+        sampler.invalidate();
+        sampler.sample(new double[] {0, 2}, 0, 0.5, 0.01);
+        assertEquals(2 * COLUMNS + 1, sampler.getEvaluations());
+    }
+
+    @Test
+    public void the_same_buffer_is_reused() throws Exception {
+        PlotSampler sampler = sampler("x", "x");
+        float[] buffer = sampler.sample(new double[1], 0, 1, 1);
+        assertSame(buffer, sampler.sample(new double[1], 3, 1, 1));
+        assertSame(buffer, sampler.sample(new double[1], 0, 4, 1));
+        assertEquals(4 * COLUMNS, max(buffer, COLUMNS - 1), 0);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.testcalculadora.benchmark;
+
+import com.example.testcalculadora.viewmodel.CalculatorViewModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A full keystroke sequence through the view model, including the preview
+ * that is recalculated after each key, as the UI drives it.
+ */
+@State(Scope.Thread)
+public class CalculatorViewModelBenchmark {
+
+    private CalculatorViewModel viewModel;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        viewModel = new CalculatorViewModel();
+        viewModel.setListener(new CalculatorViewModel.CalculatorListener() {
+            @Override
+            public void onStateChanged(String expression, String result) {
+                CalculatorViewModelBenchmark.this.blackhole.consume(expression);
+                CalculatorViewModelBenchmark.this.blackhole.consume(result);
+            }
+
+            @Override
+            public void onStateChanged(CharSequence expression, String result) {
+                CalculatorViewModelBenchmark.this.blackhole.consume(expression);
+                CalculatorViewModelBenchmark.this.blackhole.consume(result);
+            }
+        });
+    }
+
+    /** Types 1000*(1+0,05)^10 + sin(30) - 25% and presses equals. */
+    @Benchmark
+    public void keystrokeSequence() {
+        viewModel.clear();
+        viewModel.appendNumber("1");
+        viewModel.appendNumber("0");
+        viewModel.appendNumber("0");
+        viewModel.appendNumber("0");
+        viewModel.appendOperator("*");
+        viewModel.addParentheses();
+        viewModel.appendNumber("1");
+        viewModel.appendOperator("+");
+        viewModel.appendNumber("0");
+        viewModel.appendDecimalPoint();
+        viewModel.appendNumber("0");
+        viewModel.appendNumber("5");
+        viewModel.addParentheses();
+        viewModel.appendPower();
+        viewModel.appendNumber("1");
+        viewModel.appendNumber("0");
+        viewModel.appendOperator("+");
+        viewModel.appendSin();
+        viewModel.appendNumber("3");
+        viewModel.appendNumber("0");
+        viewModel.addParentheses();
+        viewModel.appendOperator("-");
+        viewModel.appendNumber("2");
+        viewModel.appendNumber("5");
+        viewModel.appendPercent();
+        viewModel.deleteLast();
+        viewModel.appendNumber("5");
+        viewModel.calculateResult();
+    }
+}
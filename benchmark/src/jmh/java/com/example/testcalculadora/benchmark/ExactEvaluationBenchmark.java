@@ -0,0 +1,69 @@
+package com.example.testcalculadora.benchmark;
+
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.DecimalExpression;
+import com.example.testcalculadora.model.ExpressionParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * The same expressions evaluated with doubles and with BigDecimal at
+ * 16 (DECIMAL64) and 34 (DECIMAL128) digits.
+ */
+@State(Scope.Benchmark)
+public class ExactEvaluationBenchmark {
+
+    @Param({"arithmetic", "financial", "scientific"})
+    public String shape;
+
+    @Param({"16", "34"})
+    public int precision;
+
+    private ExpressionParser parser;
+    private String expression;
+    private MathContext context;
+    private CompiledExpression compiled;
+    private DecimalExpression exact;
+
+    @Setup
+    public void setUp() throws Exception {
+        parser = new ExpressionParser();
+        switch (shape) {
+            case "arithmetic":
+                expression = "12,5+3*4-18/6+7,25*2";
+                break;
+            case "financial":
+                expression = "250000*(0,06/12)*(1+0,06/12)^360/((1+0,06/12)^360-1)";
+                break;
+            default:
+                expression = "sin(30)^2+cos(30)^2+sqrt(100^2+50^2)*log(1000)-ln(2,71828)/tan(45)";
+                break;
+        }
+        context = new MathContext(precision);
+        compiled = parser.compile(expression);
+        exact = parser.compileExact(expression, context);
+    }
+
+    @Benchmark
+    public double evaluateDouble() throws Exception {
+        return compiled.evaluate();
+    }
+
+    @Benchmark
+    public BigDecimal evaluateExact() throws Exception {
+        return exact.evaluate();
+    }
+
+    /** Parsing included, as for an expression typed once. */
+    @Benchmark
+    public BigDecimal parseAndEvaluateExact() throws Exception {
+        return parser.evaluateExact(expression, context);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.testcalculadora.benchmark;
+
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.ExpressionParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parsing and evaluating the kinds of expressions users type: plain
+ * arithmetic, deeply nested parentheses and scientific functions.
+ */
+@State(Scope.Benchmark)
+public class ExpressionParserBenchmark {
+
+    @Param({"simple", "nested", "scientific"})
+    public String shape;
+
+    private ExpressionParser parser;
+    private String expression;
+
+    @Setup
+    public void setUp() throws Exception {
+        parser = new ExpressionParser();
+        switch (shape) {
+            case "simple":
+                expression = "12,5+3*4-18/6+7,25*2";
+                break;
+            case "nested":
+                expression = nested(32);
+                break;
+            default:
+                expression = "sin(30)^2+cos(30)^2+sqrt(100^2+50^2)*log(1000)-ln(2,71828)/tan(45)";
+                break;
+        }
+    }
+
+    private static String nested(int depth) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            builder.append("(1+");
+        }
+        builder.append('1');
+        for (int i = 0; i < depth; i++) {
+            builder.append(")*2");
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    public double evaluate() throws Exception {
+        return parser.evaluate(expression);
+    }
+
+    /** Parsing and optimization alone, without evaluating. */
+    @Benchmark
+    public CompiledExpression compile() throws Exception {
+        return parser.compile(expression);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.testcalculadora.benchmark;
+
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.ExpressionParser;
+import com.example.testcalculadora.model.GradientExpression;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The gradient of a three-variable expression by central differences,
+ * by symbolic derivatives and by automatic differentiation, against one
+ * plain evaluation.
+ */
+@State(Scope.Benchmark)
+public class GradientBenchmark {
+
+    private static final String EXPRESSION = "x^2*sin(y)+sqrt(x*z+1)-ln(y^2+z^2)/(1+x)";
+    private static final String[] VARIABLES = {"x", "y", "z"};
+
+    private CompiledExpression compiled;
+    private CompiledExpression[] derivatives;
+    private GradientExpression gradientExpression;
+    private final double[] point = {1.5, 40, 2.5};
+    private final double[] shifted = new double[3];
+    private final double[] gradient = new double[3];
+
+    @Setup
+    public void setUp() throws Exception {
+        ExpressionParser parser = new ExpressionParser();
+        compiled = parser.compile(EXPRESSION, VARIABLES);
+        derivatives = new CompiledExpression[VARIABLES.length];
+        for (int i = 0; i < VARIABLES.length; i++) {
+            derivatives[i] = parser.compileDerivative(EXPRESSION, VARIABLES[i], VARIABLES);
+        }
+        gradientExpression = parser.compileGradient(EXPRESSION, VARIABLES);
+    }
+
+    @Benchmark
+    public double evaluate() throws Exception {
+        return compiled.evaluate(point);
+    }
+
+    @Benchmark
+    public double[] finiteDifferences() throws Exception {
+        double h = 1e-6;
+        for (int i = 0; i < point.length; i++) {
+            System.arraycopy(point, 0, shifted, 0, point.length);
+            shifted[i] = point[i] + h;
+            double up = compiled.evaluate(shifted);
+            shifted[i] = point[i] - h;
+            gradient[i] = (up - compiled.evaluate(shifted)) / (2 * h);
+        }
+        return gradient;
+    }
+
+    @Benchmark
+    public double[] symbolic() throws Exception {
+        for (int i = 0; i < derivatives.length; i++) {
+            gradient[i] = derivatives[i].evaluate(point);
+        }
+        return gradient;
+    }
+
+    @Benchmark
+    public double[] automatic() throws Exception {
+        gradientExpression.evaluate(point, gradient);
+        return gradient;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.testcalculadora.benchmark;
+
+import com.example.testcalculadora.model.CompiledExpression;
+import com.example.testcalculadora.model.ExpressionParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * One row of an angle table, with and without the function memo: with
+ * arguments drawn from a few dozen angles, and with arguments that never
+ * repeat, where the memo should step aside.
+ */
+@State(Scope.Benchmark)
+public class MemoizationBenchmark {
+
+    private static final String EXPRESSION = "r*cos(a)+r*sin(a)*tan(a/2)";
+
+    @Param({"repeating", "unique"})
+    public String arguments;
+
+    private CompiledExpression plain;
+    private CompiledExpression memoized;
+    private final double[] angles = new double[1 << 16];
+    private final double[] bindings = {2.5, 0};
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        ExpressionParser parser = new ExpressionParser();
+        plain = parser.compile(EXPRESSION, "r", "a");
+        memoized = parser.compileMemoized(EXPRESSION, "r", "a");
+        Random random = new Random(42);
+        for (int i = 0; i < angles.length; i++) {
+            angles[i] = arguments.equals("repeating") ? random.nextInt(36) * 5 : random.nextDouble() * 360;
+        }
+    }
+
+    @Benchmark
+    public double plain() throws Exception {
+        bindings[1] = angles[next++ & (angles.length - 1)];
+        return plain.evaluate(bindings);
+    }
+
+    @Benchmark
+    public double memoized() throws Exception {
+        bindings[1] = angles[next++ & (angles.length - 1)];
+        return memoized.evaluate(bindings);
+    }
+}
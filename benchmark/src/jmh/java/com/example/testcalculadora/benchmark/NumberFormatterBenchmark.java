@@ -0,0 +1,23 @@
+package com.example.testcalculadora.benchmark;
+
+import com.example.testcalculadora.utils.NumberFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Formatting results for display, which happens on every keystroke.
+ */
+@State(Scope.Benchmark)
+public class NumberFormatterBenchmark {
+
+    @Param({"42", "-1628.894626777442", "0.1", "6.022E23", "1.602E-19"})
+    public double value;
+
+    @Benchmark
+    public String format() {
+        return NumberFormatter.format(value);
+    }
+}